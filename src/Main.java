@@ -1,8 +1,31 @@
+import controller.Campionato;
+import controller.RigaDiComando;
+import util.GameMetrics;
 import view.MainFrame;
 
+import java.util.Arrays;
+
 
 public class Main {
     public static void main(String[] args) {
+        // Con argomenti si gioca da riga di comando, senza caricare AWT, Swing né suoni
+        if (args.length > 0) {
+            String[] opzioni = Arrays.copyOfRange(args, 1, args.length);
+            switch (args[0]) {
+                case "partite":
+                    RigaDiComando.main(opzioni);
+                    return;
+                case "campionato":
+                    Campionato.main(opzioni);
+                    return;
+                default:
+                    System.err.println(RigaDiComando.getUso());
+                    System.err.println(Campionato.getUso());
+                    System.exit(2);
+                    return;
+            }
+        }
+        GameMetrics.getInstance().registraJmx();
         new MainFrame();
     }
-}
\ No newline at end of file
+}
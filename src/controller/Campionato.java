@@ -0,0 +1,307 @@
+package controller;
+
+import model.ChiusuraAnticipata;
+import model.Classifica;
+import model.Giocatore;
+import model.Mazzo;
+import model.Strategia;
+import model.StrategiaBot;
+import model.Tavolo;
+import util.AudioManager;
+import util.SplitMix64;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Campionato tra strategie a riga di comando: i concorrenti si affrontano a due a due in un girone
+ * all'italiana ripetuto, e ogni partita aggiorna la {@link Classifica} Elo e Glicko.
+ * <p>
+ * Un concorrente è il nome di una strategia con, facoltativo, il numero di simulazioni per carta
+ * dei bot ({@code bot:200}): ogni impostazione ha il suo punteggio. Ogni giro è un periodo Glicko:
+ * le coppie giocano in parallelo, ciascuna al suo tavolo da due con un seed ricavato da quello
+ * del campionato, dal numero del periodo e dalla coppia; i risultati si registrano nell'ordine delle coppie,
+ * così con lo stesso seed e simulazioni fisse la classifica non dipende da quale tavolo finisce prima.
+ * Il primo di mano si alterna a ogni partita. Dopo ogni giro la classifica viene stampata e salvata,
+ * e l'esecuzione successiva riprende dai punteggi salvati.
+ * <p>
+ * Uso: {@code java Main campionato [--concorrenti c1,c2,...] [--giri N] [--partite N] [--seed S]
+ * [--budget MS] [--file F] [-v]}
+ */
+public class Campionato {
+    private static final String USO = String.join("\n",
+            "Uso: java Main campionato [opzioni]",
+            "  --concorrenti c1,...  strategie in gara, con le simulazioni per carta dei bot dopo i due punti",
+            "                        (predefinito bot:50,bot:200,casuale,prima)",
+            "  --giri N              giri del girone, 0 per continuare fino all'interruzione (predefinito 10)",
+            "  --partite N           partite per coppia in ogni giro (predefinito 20)",
+            "  --seed S              seed del campionato (predefinito: casuale)",
+            "  --budget MS           tempo per mossa dei bot in millisecondi (predefinito 5,",
+            "                        10000 se tutti i bot hanno le simulazioni)",
+            "  --file F              file della classifica (predefinito " + Classifica.PERCORSO_PREDEFINITO
+                    + " o -Dj3sette.classifica)",
+            "  -v                    stampa il log di gioco");
+
+    private List<String> concorrenti = List.of("bot:50", "bot:200", "casuale", "prima");
+    private int giri = 10;
+    private int partite = 20;
+    private long seed = new Random().nextLong();
+    private long budgetMillis = -1;
+    private Path file = Classifica.percorsoPredefinito();
+    private boolean verboso;
+
+    /**
+     * Interpreta gli argomenti della riga di comando.
+     *
+     * @param args Gli argomenti, senza il comando iniziale.
+     * @throws IllegalArgumentException se un argomento non è valido.
+     */
+    Campionato(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-v":
+                    verboso = true;
+                    break;
+                case "--concorrenti":
+                    concorrenti = Arrays.asList(valore(args, ++i, arg).split(","));
+                    break;
+                case "--giri":
+                    giri = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                case "--partite":
+                    partite = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(valore(args, ++i, arg));
+                    break;
+                case "--budget":
+                    budgetMillis = Long.parseLong(valore(args, ++i, arg));
+                    if (budgetMillis < 0) {
+                        throw new IllegalArgumentException("Il budget non può essere negativo");
+                    }
+                    break;
+                case "--file":
+                    file = Paths.get(valore(args, ++i, arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argomento sconosciuto: " + arg);
+            }
+        }
+        List<String> nomi = new ArrayList<>();
+        boolean simulazioniFisse = true;
+        for (String concorrente : concorrenti) {
+            String nome = concorrente.trim();
+            if (nomi.contains(nome)) {
+                throw new IllegalArgumentException("Concorrente ripetuto: " + nome);
+            }
+            // Crea una strategia di prova per validare subito nome e simulazioni
+            Strategia strategia = creaStrategia(nome, 0);
+            if (strategia instanceof StrategiaBot && getSimulazioni(nome) == 0) {
+                simulazioniFisse = false;
+            }
+            nomi.add(nome);
+        }
+        concorrenti = nomi;
+        if (concorrenti.size() < 2) {
+            throw new IllegalArgumentException("Servono almeno due concorrenti");
+        }
+        if (giri < 0 || partite <= 0) {
+            throw new IllegalArgumentException("Giri e partite devono essere positivi");
+        }
+        if (budgetMillis < 0) {
+            // Con un numero fisso di simulazioni il tempo serve solo da rete di sicurezza
+            budgetMillis = simulazioniFisse ? 10_000 : 5;
+        }
+    }
+
+    private static String valore(String[] args, int i, String opzione) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Manca il valore di " + opzione);
+        }
+        return args[i];
+    }
+
+    private static int getSimulazioni(String concorrente) {
+        int separatore = concorrente.indexOf(':');
+        if (separatore < 0) {
+            return 0;
+        }
+        int simulazioni = Integer.parseInt(concorrente.substring(separatore + 1));
+        if (simulazioni <= 0) {
+            throw new IllegalArgumentException("Simulazioni non valide: " + concorrente);
+        }
+        return simulazioni;
+    }
+
+    /**
+     * Crea la strategia di un concorrente.
+     *
+     * @param concorrente Il nome della strategia, con le simulazioni per carta dopo i due punti.
+     * @param seed        Il seed della strategia.
+     * @return La strategia.
+     * @throws IllegalArgumentException se il concorrente non è valido.
+     */
+    private static Strategia creaStrategia(String concorrente, long seed) {
+        int separatore = concorrente.indexOf(':');
+        Strategia strategia = RigaDiComando.creaStrategia(
+                separatore < 0 ? concorrente : concorrente.substring(0, separatore), seed);
+        int simulazioni = getSimulazioni(concorrente);
+        if (simulazioni > 0) {
+            if (!(strategia instanceof StrategiaBot)) {
+                throw new IllegalArgumentException("Solo i bot hanno le simulazioni: " + concorrente);
+            }
+            ((StrategiaBot) strategia).setMaxSimulazioni(simulazioni);
+        }
+        return strategia;
+    }
+
+    /**
+     * Gioca le partite di una coppia in un giro.
+     *
+     * @param primo      Il concorrente al posto 0.
+     * @param secondo    Il concorrente al posto 1.
+     * @param seedTavolo Il seed del tavolo.
+     * @return Il risultato del primo in ogni partita: 1 vittoria, 0.5 pareggio, 0 sconfitta.
+     */
+    private double[] giocaCoppia(String primo, String secondo, long seedTavolo) {
+        List<Giocatore> giocatori = new ArrayList<>(2);
+        giocatori.add(new Giocatore("bot", primo, 0, 0, creaStrategia(primo, seedTavolo)));
+        giocatori.add(new Giocatore("bot", secondo, 0, 0, creaStrategia(secondo, seedTavolo)));
+        SimulatoreTorneo simulatore = new SimulatoreTorneo(giocatori, new Mazzo(new Random(seedTavolo)), 31, budgetMillis);
+        Tavolo tavolo = simulatore.getTavolo();
+        tavolo.setSeed(seedTavolo);
+        // Conta solo chi vince: una mano decisa si chiude senza far pensare i bot
+        simulatore.setChiusuraAnticipata(ChiusuraAnticipata.VINCITORE);
+
+        double[] risultati = new double[partite];
+        for (int partita = 0; partita < partite; partita++) {
+            int[] punti = simulatore.giocaMano();
+            risultati[partita] = punti[0] > punti[1] ? 1 : punti[0] == punti[1] ? 0.5 : 0;
+        }
+        return risultati;
+    }
+
+    /**
+     * Gioca i giri del campionato, aggiornando e salvando la classifica dopo ognuno.
+     *
+     * @param console Dove stampare la classifica.
+     * @throws InterruptedException se il thread viene interrotto mentre attende i tavoli.
+     * @throws IOException          se la classifica non si può leggere o salvare.
+     */
+    void esegui(PrintStream console) throws InterruptedException, IOException {
+        Classifica classifica;
+        try {
+            classifica = Classifica.carica(file);
+        } catch (NoSuchFileException e) {
+            classifica = new Classifica();
+        }
+        for (String concorrente : concorrenti) {
+            classifica.get(concorrente);
+        }
+
+        List<String[]> coppie = new ArrayList<>();
+        for (int i = 0; i < concorrenti.size(); i++) {
+            for (int j = i + 1; j < concorrenti.size(); j++) {
+                coppie.add(new String[]{concorrenti.get(i), concorrenti.get(j)});
+            }
+        }
+        ExecutorService esecutore = Executors.newFixedThreadPool(
+                Math.min(coppie.size(), Runtime.getRuntime().availableProcessors()));
+        console.println("seed " + seed + ", concorrenti " + concorrenti + ", " + partite
+                + " partite per coppia, budget " + budgetMillis + " ms, classifica " + file);
+        try {
+            for (int giro = 1; giri == 0 || giro <= giri; giro++) {
+                long inizio = System.nanoTime();
+                // Il periodo prosegue la numerazione della classifica salvata: ogni giro ha mani nuove
+                long seedGiro = SplitMix64.deriva(seed, classifica.getPeriodi());
+                List<Future<double[]>> futuri = new ArrayList<>(coppie.size());
+                for (int c = 0; c < coppie.size(); c++) {
+                    String[] coppia = coppie.get(c);
+                    long seedTavolo = SplitMix64.deriva(seedGiro, c);
+                    futuri.add(esecutore.submit(() -> giocaCoppia(coppia[0], coppia[1], seedTavolo)));
+                }
+                for (int c = 0; c < coppie.size(); c++) {
+                    for (double risultato : futuri.get(c).get()) {
+                        classifica.registra(coppie.get(c)[0], coppie.get(c)[1], risultato);
+                    }
+                }
+                classifica.chiudiPeriodo();
+                classifica.salva(file);
+                stampa(console, classifica, giro, (System.nanoTime() - inizio) / 1e9);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Errore in un tavolo", e.getCause());
+        } finally {
+            esecutore.shutdownNow();
+        }
+    }
+
+    private void stampa(PrintStream console, Classifica classifica, int giro, double secondi) {
+        console.printf("Giro %d (periodo %d), %d partite in %.3f s%n", giro, classifica.getPeriodi(),
+                coppieGiocate() * partite, secondi);
+        int posizione = 1;
+        for (Classifica.Valutazione v : classifica.getOrdinate()) {
+            if (!concorrenti.contains(v.getNome())) {
+                continue;
+            }
+            console.printf("%2d. %-16s Glicko %6.0f +/- %3.0f  Elo %6.0f  %7d partite (%5.1f%%)%n", posizione++,
+                    v.getNome(), v.getGlicko(), 2 * v.getRd(), v.getElo(), v.getPartite(), 100 * v.getPercentuale());
+        }
+    }
+
+    private int coppieGiocate() {
+        return concorrenti.size() * (concorrenti.size() - 1) / 2;
+    }
+
+    /**
+     * Punto di ingresso del campionato a riga di comando.
+     *
+     * @param args Gli argomenti, senza il comando iniziale.
+     */
+    public static void main(String[] args) {
+        Campionato campionato;
+        try {
+            campionato = new Campionato(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+            return;
+        }
+
+        // Il log di gioco rallenterebbe le partite: lo si scarta salvo con -v
+        PrintStream console = System.out;
+        if (!campionato.verboso) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        AudioManager.getInstance().setAbilitato(false);
+        try {
+            campionato.esegui(console);
+        } catch (IOException e) {
+            System.err.println("Classifica non accessibile: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Il testo di aiuto del campionato.
+     */
+    public static String getUso() {
+        return USO;
+    }
+}
@@ -0,0 +1,140 @@
+package controller;
+
+import model.Carta;
+import model.ContestoDecisione;
+import model.Rank;
+import model.Seme;
+import model.Strategia;
+import util.GameMetrics;
+import util.jfr.DecisioneBotEvent;
+import util.jfr.EventiJfr;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Calcola le scelte dei bot fuori dall'Event Dispatch Thread.
+ * <p>
+ * Ogni posto ha un proprio thread daemon: bot diversi possono pensare in parallelo, mentre le decisioni
+ * dello stesso bot, la cui strategia non è thread-safe, restano in fila una dopo l'altra.
+ * La carta scelta viene consegnata sull'EDT, e solo se nel frattempo la decisione non è stata superata:
+ * ogni nuova richiesta e ogni {@link #annullaTutte()} (riavvio, fine partita, annullamento di mosse)
+ * interrompono i calcoli in corso e ne scartano i risultati. L'EDT non attende mai un bot.
+ * <p>
+ * I metodi pubblici vanno chiamati dall'EDT.
+ */
+public class DecisioniBot {
+    private final ExecutorService[] esecutori;
+    private final Future<?>[] inCorso;
+    private int generazione;
+
+    /**
+     * Costruisce il servizio per un tavolo con il numero di posti indicato.
+     *
+     * @param numGiocatori Il numero di posti al tavolo.
+     */
+    public DecisioniBot(int numGiocatori) {
+        this.esecutori = new ExecutorService[numGiocatori];
+        this.inCorso = new Future<?>[numGiocatori];
+    }
+
+    /**
+     * Avvia in background la scelta della carta per il bot al posto indicato, annullando
+     * qualunque decisione ancora in attesa.
+     *
+     * @param posto         Il posto del bot.
+     * @param strategia     La strategia del bot.
+     * @param contesto      La fotografia di ciò che il bot conosce, presa sull'EDT.
+     * @param scadenzaNanos L'istante, secondo {@link System#nanoTime()}, entro cui il bot deve rispondere.
+     * @param suScelta      Riceve sull'EDT l'indice della carta scelta, se la decisione è ancora valida.
+     */
+    public void pensa(int posto, Strategia strategia, ContestoDecisione contesto, long scadenzaNanos, IntConsumer suScelta) {
+        annullaTutte();
+        int richiesta = generazione;
+        inCorso[posto] = getEsecutore(posto).submit(() -> {
+            int indice = scegli(posto, strategia, contesto, scadenzaNanos);
+            SwingUtilities.invokeLater(() -> {
+                if (richiesta == generazione) {
+                    inCorso[posto] = null;
+                    suScelta.accept(indice);
+                } else {
+                    System.out.println("Decisione del posto " + posto + " scartata: superata");
+                }
+            });
+        });
+    }
+
+    /**
+     * Annulla le decisioni in attesa: i calcoli in corso vengono interrotti e i loro risultati scartati.
+     */
+    public void annullaTutte() {
+        generazione++;
+        for (int posto = 0; posto < inCorso.length; posto++) {
+            if (inCorso[posto] != null) {
+                inCorso[posto].cancel(true);
+                inCorso[posto] = null;
+            }
+        }
+    }
+
+    /**
+     * @return true se un bot sta ancora pensando a una decisione valida.
+     */
+    public boolean isInAttesa() {
+        for (Future<?> futuro : inCorso) {
+            if (futuro != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ExecutorService getEsecutore(int posto) {
+        if (esecutori[posto] == null) {
+            esecutori[posto] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "j3sette-bot-" + posto);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return esecutori[posto];
+    }
+
+    /**
+     * Chiede la carta alla strategia sul thread del bot, registrando tempo di decisione ed evento JFR.
+     * Se la strategia fallisce o sceglie una carta non giocabile gioca la carta giocabile di indice minore,
+     * così il tavolo non resta bloccato.
+     */
+    private static int scegli(int posto, Strategia strategia, ContestoDecisione contesto, long scadenzaNanos) {
+        long inizio = System.nanoTime();
+        DecisioneBotEvent evento = EventiJfr.isAbilitati() ? new DecisioneBotEvent() : null;
+        if (evento != null) {
+            evento.begin();
+        }
+        int indice;
+        try {
+            indice = strategia.scegliCarta(contesto, scadenzaNanos);
+        } catch (RuntimeException e) {
+            System.out.println("ERRORE nella strategia del posto " + posto + ": " + e);
+            indice = Long.numberOfTrailingZeros(contesto.getCarteGiocabili());
+        }
+        if (indice < 0 || indice >= 64 || (contesto.getCarteGiocabili() & (1L << indice)) == 0) {
+            System.out.println("ERRORE nella strategia del posto " + posto + ": carta " + indice + " non giocabile");
+            indice = Long.numberOfTrailingZeros(contesto.getCarteGiocabili());
+        }
+        long durata = System.nanoTime() - inizio;
+        GameMetrics.getInstance().getDecisioneBot().registra(durata);
+        if (evento != null && evento.shouldCommit()) {
+            Carta carta = new Carta(Seme.values()[indice / 10], Rank.values()[indice % 10]);
+            evento.posto = posto;
+            evento.carta = carta.getValore() + " di " + carta.getSeme();
+            evento.carteInMano = Long.bitCount(contesto.getMano());
+            evento.tempoDecisione = durata;
+            evento.commit();
+        }
+        return indice;
+    }
+}
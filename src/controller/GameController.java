@@ -1,9 +1,14 @@
 package controller;
 
 import model.*;
+import util.GameMetrics;
 import view.CardTablePanel;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Controller principale per la gestione della logica di gioco.
@@ -15,6 +20,11 @@ public class GameController {
     private CardTablePanel cardTablePanel;
     private int indiceGiocatoreAttuale = 0;
     private boolean turnoAttivo = true;
+    private final DecisioniBot decisioniBot;
+    private final Ponderazione ponderazione;
+    private final Suggerimento suggerimento = new Suggerimento();
+    private final ProbabilitaVittoria probabilitaVittoria = new ProbabilitaVittoria();
+    private int generazione;
 
     /**
      * Costruttore del controller di gioco.
@@ -26,6 +36,8 @@ public class GameController {
     public GameController(Tavolo tavolo, CardTablePanel cardTablePanel) {
         this.tavolo = tavolo;
         this.cardTablePanel = cardTablePanel;
+        this.decisioniBot = new DecisioniBot(tavolo.getGiocatori().size());
+        this.ponderazione = new Ponderazione(tavolo);
 
         // Registra la view come observer del modello
         tavolo.addObserver(cardTablePanel);
@@ -33,12 +45,19 @@ public class GameController {
         // Imposta il controller nella view
         this.cardTablePanel.setController(this);
 
+        // Trasmette il tavolo agli spettatori se richiesto con -Dj3sette.spettatori=porta
+        TrasmissioneSpettatori.avviaSeRichiesta(tavolo);
+
+        // Riprende l'incontro interrotto, se ce n'è uno compatibile salvato su disco
+        ripristinaIncontro();
+
         // Inizia la partita
         tavolo.iniziaPartita();
-        indiceGiocatoreAttuale = 0;
+        indiceGiocatoreAttuale = tavolo.getPrimoDiMano();
 
         System.out.println("=== PARTITA INIZIATA ===");
         stampaStatoGioco();
+        aggiornaProbabilitaVittoria();
 
         // Avvia il primo turno se necessario
         processaTurnoBot();
@@ -67,7 +86,7 @@ public class GameController {
         Giocatore giocatoreAttuale = tavolo.getGiocatori().get(indiceGiocatoreAttuale);
         System.out.println("Giocatore attuale: " + giocatoreAttuale.getNome());
 
-        if (!giocatore.equals(giocatoreAttuale)) {
+        if (giocatore != giocatoreAttuale) {
             System.out.println("RESPINTA: Non è il turno di " + giocatore.getNome());
             if ("user".equals(giocatore.getRuolo())) {
                 JOptionPane.showMessageDialog(cardTablePanel, "Non è il tuo turno!", "Attenzione", JOptionPane.WARNING_MESSAGE);
@@ -75,6 +94,15 @@ public class GameController {
             return;
         }
 
+        // Verifica che la carta risponda al seme di uscita, se possibile
+        if (!isCartaLegale(giocatore, carta)) {
+            System.out.println("RESPINTA: " + giocatore.getNome() + " deve rispondere al seme di uscita");
+            if ("user".equals(giocatore.getRuolo())) {
+                JOptionPane.showMessageDialog(cardTablePanel, "Devi rispondere al seme di uscita!", "Attenzione", JOptionPane.WARNING_MESSAGE);
+            }
+            return;
+        }
+
         System.out.println("GIOCATA ACCETTATA");
 
         try {
@@ -96,6 +124,144 @@ public class GameController {
         }
     }
 
+    /**
+     * Indica se l'utente può annullare: la partita è in corso, tocca all'utente
+     * e nella storia c'è una sua giocata precedente.
+     *
+     * @return true se {@link #annullaMossa()} ha effetto.
+     */
+    public boolean puoAnnullare() {
+        return isTurnoUtente() && cercaTurnoUtente(-1) >= 0;
+    }
+
+    /**
+     * Indica se l'utente può ripristinare mosse annullate in precedenza.
+     *
+     * @return true se {@link #ripristinaMossa()} ha effetto.
+     */
+    public boolean puoRipristinare() {
+        return isTurnoUtente() && tavolo.getStoria().puoRipristinare();
+    }
+
+    /**
+     * Riporta la partita all'ultima posizione precedente in cui toccava all'utente,
+     * annullando la sua giocata e quelle dei bot che l'hanno seguita.
+     * La storia conserva le posizioni annullate, che si possono ripristinare con {@link #ripristinaMossa()}.
+     */
+    public void annullaMossa() {
+        if (!puoAnnullare()) {
+            return;
+        }
+        int indice = cercaTurnoUtente(-1);
+        System.out.println("\n=== ANNULLA: torno alla posizione " + indice + " ===");
+        vaiAPosizione(indice);
+    }
+
+    /**
+     * Ripristina le mosse annullate fino alla successiva posizione in cui tocca all'utente,
+     * oppure fino all'ultima posizione registrata, da cui i bot riprendono a giocare.
+     */
+    public void ripristinaMossa() {
+        if (!puoRipristinare()) {
+            return;
+        }
+        int indice = cercaTurnoUtente(1);
+        if (indice < 0) {
+            indice = tavolo.getStoria().getNumPosizioni() - 1;
+        }
+        System.out.println("\n=== RIPRISTINA: vado alla posizione " + indice + " ===");
+        vaiAPosizione(indice);
+    }
+
+    /**
+     * Avvia in background il calcolo della carta consigliata all'utente, se è il suo turno.
+     * La vista viene aggiornata man mano che il suggerimento si raffina.
+     */
+    public void chiediSuggerimento() {
+        if (!isTurnoUtente()) {
+            return;
+        }
+        ContestoDecisione contesto = tavolo.getContesto(indiceGiocatoreAttuale);
+        suggerimento.avvia(contesto, () -> {
+            if (isTurnoUtente() && contesto.equals(tavolo.getContesto(indiceGiocatoreAttuale))) {
+                cardTablePanel.aggiornaSuggerimento();
+            }
+        });
+        cardTablePanel.aggiornaSuggerimento();
+    }
+
+    /**
+     * Restituisce il suggerimento calcolato finora per la posizione corrente dell'utente.
+     *
+     * @return Le statistiche delle carte giocabili dall'utente, oppure null se non è il suo turno
+     *         o il suggerimento non è stato chiesto.
+     */
+    public RisultatoRicerca getSuggerimento() {
+        return isTurnoUtente() ? suggerimento.get(tavolo.getContesto(indiceGiocatoreAttuale)) : null;
+    }
+
+    /**
+     * @return true se il suggerimento per la posizione corrente dell'utente ha concluso l'analisi.
+     */
+    public boolean isSuggerimentoCompleto() {
+        return isTurnoUtente() && suggerimento.isCompleto(tavolo.getContesto(indiceGiocatoreAttuale));
+    }
+
+    /**
+     * Avvia la stima della probabilità che la squadra dell'utente vinca la mano dalla posizione corrente;
+     * il pannello informazioni si aggiorna man mano che la stima converge.
+     */
+    private void aggiornaProbabilitaVittoria() {
+        List<Giocatore> giocatori = tavolo.getGiocatori();
+        for (int posto = 0; posto < giocatori.size(); posto++) {
+            if ("user".equals(giocatori.get(posto).getRuolo())) {
+                probabilitaVittoria.aggiorna(tavolo.getStoria(), posto, cardTablePanel::mostraProbabilitaVittoria);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Riporta il tavolo alla posizione indicata della storia e ridà il turno a chi deve giocare.
+     */
+    private void vaiAPosizione(int indice) {
+        interrompiGioco();
+        Posizione posizione = tavolo.vaiAPosizione(indice);
+        indiceGiocatoreAttuale = posizione.getTurno();
+        turnoAttivo = true;
+        stampaStatoGioco();
+        cardTablePanel.aggiornaVista();
+        aggiornaProbabilitaVittoria();
+        processaTurnoBot();
+    }
+
+    /**
+     * @return true se la partita è in corso, il turno è attivo e tocca all'utente.
+     */
+    private boolean isTurnoUtente() {
+        Giocatore attuale = getGiocatoreAttuale();
+        return turnoAttivo && tavolo.isPartitaInCorso() && tavolo.getStoria().isIniziata()
+                && attuale != null && "user".equals(attuale.getRuolo());
+    }
+
+    /**
+     * Cerca nella storia, a partire dalla posizione corrente e nella direzione indicata,
+     * la prima posizione in cui tocca a un giocatore con ruolo "user".
+     *
+     * @param direzione -1 per cercare indietro, 1 per cercare avanti.
+     * @return L'indice della posizione, oppure -1 se non c'è.
+     */
+    private int cercaTurnoUtente(int direzione) {
+        StoriaPartita storia = tavolo.getStoria();
+        for (int i = storia.getIndiceCorrente() + direzione; i >= 0 && i < storia.getNumPosizioni(); i += direzione) {
+            int turno = storia.getPosizione(i).getTurno();
+            if ("user".equals(tavolo.getGiocatori().get(turno).getRuolo())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Passa il turno al prossimo giocatore in lista.
      * Se tutti i giocatori hanno giocato, avvia il controllo della presa.
@@ -117,9 +283,14 @@ public class GameController {
             turnoAttivo = false;
 
             // Aspetta un po' prima di controllare la presa per far vedere le carte
+            int richiesta = generazione;
             Timer timer = new Timer(2000, e -> {
                 System.out.println("Timer scaduto - Controllo presa");
                 SwingUtilities.invokeLater(() -> {
+                    if (richiesta != generazione) {
+                        System.out.println("Controllo presa annullato: partita riavviata");
+                        return;
+                    }
                     try {
                         controllaPresa();
                         verificaFinePartita();
@@ -146,7 +317,9 @@ public class GameController {
 
     /**
      * Gestisce il turno automatico del bot.
-     * Se è il turno di un bot e ha carte, gioca una carta dopo un breve ritardo.
+     * Se è il turno di un bot e ha carte, la scelta viene calcolata in background da {@link DecisioniBot}
+     * entro il budget per mossa del tavolo; la carta viene giocata sull'EDT quando arriva,
+     * se nel frattempo la partita non è stata riavviata o riportata indietro.
      */
     private void processaTurnoBot() {
         if (!turnoAttivo) {
@@ -163,35 +336,82 @@ public class GameController {
         System.out.println("ProcessaTurnoBot: Giocatore attuale = " + giocatoreAttuale.getNome() + " (ruolo: " + giocatoreAttuale.getRuolo() + ")");
 
         if ("bot".equals(giocatoreAttuale.getRuolo()) && !giocatoreAttuale.getCarte().isEmpty()) {
-            System.out.println("Bot deve giocare - Avvio timer");
-            // Ritarda leggermente l'azione del bot per rendere più realistico
-            Timer timer = new Timer(1000, e -> {
-                System.out.println("Timer bot scaduto");
-                // Verifica ancora una volta che il turno sia attivo e che il bot abbia carte
-                if (turnoAttivo && !giocatoreAttuale.getCarte().isEmpty()) {
-                    System.out.println("Bot gioca carta");
-                    Carta cartaBot = scegliCartaBot(giocatoreAttuale);
-                    giocaCarta(giocatoreAttuale, cartaBot);
-                } else {
-                    System.out.println("Bot non può giocare - Turno attivo: " + turnoAttivo + ", Carte: " + giocatoreAttuale.getCarte().size());
-                }
-            });
-            timer.setRepeats(false);
-            timer.start();
+            System.out.println("Bot deve giocare");
+            ponderazione.ferma();
+            suggerimento.ferma();
+            // Il bot pensa al più per il budget del tavolo, su un suo thread: nessun ritardo fisso e nessun blocco dell'EDT
+            int posto = indiceGiocatoreAttuale;
+            long scadenza = System.nanoTime() + tavolo.getBudgetMossaMillis() * 1_000_000L;
+            decisioniBot.pensa(posto, giocatoreAttuale.getStrategiaGiocata(), tavolo.getContesto(posto), scadenza,
+                    indice -> {
+                        // Verifica ancora una volta che il turno sia attivo e che il bot abbia carte
+                        if (turnoAttivo && indiceGiocatoreAttuale == posto && !giocatoreAttuale.getCarte().isEmpty()) {
+                            System.out.println("Bot gioca carta");
+                            giocaCarta(giocatoreAttuale, cartaInMano(giocatoreAttuale, indice));
+                        } else {
+                            System.out.println("Bot non può giocare - Turno attivo: " + turnoAttivo + ", Carte: " + giocatoreAttuale.getCarte().size());
+                        }
+                    });
+        } else if ("user".equals(giocatoreAttuale.getRuolo()) && !giocatoreAttuale.getCarte().isEmpty()) {
+            // Mentre l'utente decide i bot ponderano le posizioni che possono seguire
+            ponderazione.avvia();
         } else {
             System.out.println("Non è turno del bot o bot senza carte");
         }
     }
 
     /**
-     * Strategia semplice per il bot.
-     * Sceglie la prima carta disponibile nella mano del bot.
+     * Cerca nella mano del bot la carta scelta dalla strategia.
+     * Se la carta non è in mano o non è giocabile, restituisce la prima carta giocabile:
+     * {@link #giocaCarta} respingerebbe la scelta senza chiederne un'altra e il tavolo resterebbe fermo.
      *
-     * @param bot Il giocatore bot.
-     * @return La carta scelta dal bot da giocare.
+     * @param bot    Il giocatore bot.
+     * @param indice L'indice della carta scelta.
+     * @return La carta da giocare.
+     */
+    private Carta cartaInMano(Giocatore bot, int indice) {
+        Carta riserva = null;
+        for (Carta carta : bot.getCarte()) {
+            if (isCartaLegale(bot, carta)) {
+                if (carta.getIndice() == indice) {
+                    return carta;
+                }
+                if (riserva == null || carta.getIndice() < riserva.getIndice()) {
+                    riserva = carta;
+                }
+            }
+        }
+        System.out.println("ERRORE: carta " + indice + " non giocabile per " + bot.getNome() + ", gioca la carta di riserva");
+        return riserva;
+    }
+
+    /**
+     * Annulla le decisioni dei bot in corso, la ponderazione e i controlli di presa in attesa,
+     * così che nulla di quanto calcolato per la posizione precedente venga applicato.
      */
-    private Carta scegliCartaBot(Giocatore bot) {
-        return bot.getCarte().get(0);
+    private void interrompiGioco() {
+        generazione++;
+        decisioniBot.annullaTutte();
+        ponderazione.ferma();
+        suggerimento.ferma();
+    }
+
+    /**
+     * Riavvia la partita corrente: annulla i calcoli dei bot in corso, ridistribuisce le carte
+     * e ridà il turno al giocatore di mano.
+     */
+    public void riavviaPartita() {
+        interrompiGioco();
+        ponderazione.svuota();
+        suggerimento.svuota();
+        probabilitaVittoria.svuota();
+        tavolo.reset();
+        tavolo.iniziaPartita();
+        indiceGiocatoreAttuale = tavolo.getPrimoDiMano();
+        turnoAttivo = true;
+        cardTablePanel.aggiornaVista();
+        aggiornaProbabilitaVittoria();
+        processaTurnoBot();
     }
 
     /**
@@ -203,8 +423,11 @@ public class GameController {
         System.out.println("\n=== CONTROLLO PRESA ===");
 
         try {
-            // Trova il vincitore della presa
-            int vincitoreIndex = tavolo.getStatoMano().ControllaPresa(tavolo.getGiocatori());
+            // Trova il vincitore della presa (e, a 2 giocatori, fa pescare dal mazzo)
+            int puntiTerzi = tavolo.getStatoMano().getPuntiPresaTerzi();
+            int vincitoreIndex = tavolo.controllaPresa();
+            System.out.println("Giocatore " + tavolo.getGiocatori().get(vincitoreIndex).getNome()
+                    + " ha vinto la presa con " + puntiTerzi + "/3 punti");
 
             System.out.println("Vincitore index: " + vincitoreIndex);
 
@@ -218,6 +441,7 @@ public class GameController {
                 // IMPORTANTE: Aggiorna la vista e poi processa il turno
                 cardTablePanel.aggiornaVista();
                 System.out.println("Vista aggiornata - Processando turno");
+                aggiornaProbabilitaVittoria();
 
                 // Processa il turno del bot se necessario
                 processaTurnoBot();
@@ -235,7 +459,8 @@ public class GameController {
 
     /**
      * Verifica se la partita è terminata (tutte le mani dei giocatori sono vuote).
-     * Se la partita è finita, avvia la fine partita e il reset per una nuova partita.
+     * Se la partita è finita, aggiorna e salva la classifica dell'incontro e, dopo una pausa,
+     * distribuisce la mano successiva; se l'incontro è concluso ne inizia uno nuovo.
      */
     private void verificaFinePartita() {
         boolean tutteManiVuote = tavolo.getGiocatori().stream()
@@ -245,19 +470,35 @@ public class GameController {
 
         if (tutteManiVuote) {
             System.out.println("FINE PARTITA");
+            interrompiGioco();
+            ponderazione.svuota();
+            suggerimento.svuota();
+            probabilitaVittoria.svuota();
             tavolo.finePartita();
-            // Ricomincia una nuova partita dopo una pausa
+            salvaIncontro();
+            System.out.println(GameMetrics.getInstance().dump());
+            // Distribuisce la mano successiva dell'incontro dopo una pausa
+            int richiesta = generazione;
             Timer timer = new Timer(3000, e -> {
+                if (richiesta != generazione) {
+                    System.out.println("Riavvio annullato: partita già riavviata");
+                    return;
+                }
                 System.out.println("Riavvio nuova partita");
                 try {
+                    if (tavolo.getIncontro().isConcluso()) {
+                        System.out.println("Nuovo incontro");
+                        tavolo.nuovoIncontro();
+                    }
                     tavolo.reset();
                     tavolo.iniziaPartita();
-                    indiceGiocatoreAttuale = 0;
+                    indiceGiocatoreAttuale = tavolo.getPrimoDiMano();
                     turnoAttivo = true;
 
                     // Aggiorna la vista e poi processa il turno del bot
                     SwingUtilities.invokeLater(() -> {
                         cardTablePanel.aggiornaVista();
+                        aggiornaProbabilitaVittoria();
                         processaTurnoBot();
                     });
                 } catch (Exception ex) {
@@ -270,6 +511,39 @@ public class GameController {
         }
     }
 
+    /**
+     * Sostituisce l'incontro del tavolo con quello salvato su disco, se è ancora in corso
+     * e ha lo stesso obiettivo e lo stesso numero di squadre.
+     */
+    private void ripristinaIncontro() {
+        Path file = Incontro.percorsoPredefinito();
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            Incontro salvato = Incontro.carica(file);
+            Incontro attuale = tavolo.getIncontro();
+            if (!salvato.isConcluso() && salvato.getObiettivo() == attuale.getObiettivo()
+                    && salvato.getNumSquadre() == attuale.getNumSquadre()) {
+                tavolo.setIncontro(salvato);
+                System.out.println("Incontro ripreso da " + file + " dopo " + salvato.getManiGiocate() + " mani");
+            }
+        } catch (IOException e) {
+            System.err.println("Incontro non ripristinato: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Salva su disco la fotografia dell'incontro, così da poterlo riprendere dopo un riavvio.
+     */
+    private void salvaIncontro() {
+        try {
+            tavolo.getIncontro().salva(Incontro.percorsoPredefinito());
+        } catch (IOException e) {
+            System.err.println("Incontro non salvato: " + e.getMessage());
+        }
+    }
+
     /**
      * Stampa sul console lo stato attuale del gioco,
      * inclusi giocatore attuale, turno attivo, carte sul banco e punteggi dei giocatori.
@@ -303,6 +577,20 @@ public class GameController {
         return null;
     }
 
+    /**
+     * Verifica se la carta rispetta l'obbligo di rispondere al seme della prima carta sul banco.
+     *
+     * @param giocatore Il giocatore che vuole giocare la carta.
+     * @param carta     La carta da verificare.
+     * @return true se la carta può essere giocata, false altrimenti.
+     */
+    public boolean isCartaLegale(Giocatore giocatore, Carta carta) {
+        List<CartaBanco> carteSulBanco = tavolo.getStatoMano().getCarteSulBanco();
+        int semeUscita = carteSulBanco.isEmpty() ? -1 : carteSulBanco.get(0).getSeme().ordinal();
+        long giocabili = Regole.carteGiocabili(Regole.maschera(giocatore.getCarte()), semeUscita);
+        return (giocabili & (1L << carta.getIndice())) != 0;
+    }
+
     /**
      * Indica se il turno corrente è attivo e quindi se è possibile giocare.
      *
@@ -0,0 +1,106 @@
+package controller;
+
+import model.CacheRicerca;
+import model.Giocatore;
+import model.Posizione;
+import model.StrategiaBot;
+import model.Tavolo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fa ponderare ai bot le posizioni successive mentre l'utente decide.
+ * <p>
+ * Per ogni carta che l'utente può giocare si calcola, sulla {@link Posizione} corrente della storia,
+ * la posizione risultante; se tocca poi a un bot, un {@link StrategiaBot} dedicato a quel posto ne simula
+ * il contesto e pubblica le statistiche nella {@link CacheRicerca} condivisa con il bot vero,
+ * che quando la posizione si presenta riparte da lì o risponde subito.
+ * Il contesto previsto contiene solo ciò che il bot saprà in quella posizione, quindi la ponderazione
+ * non gli rivela nulla di nuovo. Tutto gira su un solo thread daemon a priorità minima, così non
+ * contende la CPU all'EDT né ai bot di turno.
+ * <p>
+ * I metodi pubblici vanno chiamati dall'EDT.
+ */
+public class Ponderazione {
+    /**
+     * Tempo di ponderazione per ogni posizione prevista, in multipli del budget per mossa del tavolo.
+     */
+    private static final int BUDGET_PER_POSIZIONE = 4;
+
+    private final Tavolo tavolo;
+    private final CacheRicerca cache = new CacheRicerca(256);
+    private final StrategiaBot[] ponderatori;
+    private final ExecutorService esecutore;
+    private final List<Future<?>> inCorso = new ArrayList<>();
+
+    /**
+     * Prepara la ponderazione per i bot del tavolo con strategia {@link StrategiaBot},
+     * a cui collega la cache condivisa.
+     *
+     * @param tavolo Il tavolo di gioco.
+     */
+    public Ponderazione(Tavolo tavolo) {
+        this.tavolo = tavolo;
+        List<Giocatore> giocatori = tavolo.getGiocatori();
+        this.ponderatori = new StrategiaBot[giocatori.size()];
+        for (int posto = 0; posto < giocatori.size(); posto++) {
+            if (giocatori.get(posto).getStrategiaGiocata() instanceof StrategiaBot) {
+                ((StrategiaBot) giocatori.get(posto).getStrategiaGiocata()).setCache(cache);
+                ponderatori[posto] = new StrategiaBot();
+                ponderatori[posto].setCache(cache);
+            }
+        }
+        this.esecutore = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "j3sette-ponderazione");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Avvia la ponderazione delle posizioni che seguono le possibili giocate del giocatore di turno,
+     * fermando quella precedente.
+     */
+    public void avvia() {
+        ferma();
+        if (!tavolo.getStoria().isIniziata()) {
+            return;
+        }
+        Posizione corrente = tavolo.getStoria().getCorrente();
+        long durataNanos = BUDGET_PER_POSIZIONE * tavolo.getBudgetMossaMillis() * 1_000_000L;
+        for (long giocabili = corrente.getCarteGiocabili(); giocabili != 0; giocabili &= giocabili - 1) {
+            Posizione dopo = corrente.gioca(Long.numberOfTrailingZeros(giocabili));
+            int turno = dopo.getTurno();
+            if (dopo.isFinita() || ponderatori[turno] == null) {
+                continue;
+            }
+            StrategiaBot ponderatore = ponderatori[turno];
+            inCorso.add(esecutore.submit(() ->
+                    ponderatore.pondera(dopo.getContesto(turno), System.nanoTime() + durataNanos)));
+        }
+    }
+
+    /**
+     * Ferma la ponderazione in corso; le statistiche già pubblicate restano in cache.
+     */
+    public void ferma() {
+        for (Future<?> futuro : inCorso) {
+            futuro.cancel(true);
+        }
+        inCorso.clear();
+    }
+
+    /**
+     * Ferma la ponderazione e svuota la cache, ad esempio a fine partita.
+     */
+    public void svuota() {
+        ferma();
+        System.out.println("Ponderazione: " + cache.getTrovati() + " posizioni trovate, " + cache.getMancati() + " mancate");
+        cache.svuota();
+    }
+}
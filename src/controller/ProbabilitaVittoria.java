@@ -0,0 +1,210 @@
+package controller;
+
+import model.Posizione;
+import model.StimatoreVittoria;
+import model.StoriaPartita;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Stima in background la probabilità che la squadra dell'utente vinca la mano, con simulazioni
+ * parallele di {@link StimatoreVittoria}.
+ * <p>
+ * Ogni stima procede a giri: in ogni giro ciascun thread gioca un blocco di simulazioni sulle
+ * determinizzazioni condivise, e al termine la stima viene pubblicata sull'EDT, così il primo valore
+ * arriva in pochi millisecondi. Ci si ferma quando l'errore standard scende sotto la soglia,
+ * oppure al limite di simulazioni o di tempo. Le determinizzazioni della stima precedente ancora
+ * coerenti con le carte giocate nel frattempo vengono riusate; si campionano solo quelle mancanti.
+ * <p>
+ * I metodi pubblici vanno chiamati dall'EDT.
+ */
+public class ProbabilitaVittoria {
+    private static final int NUM_DETERMINIZZAZIONI = 2048;
+    private static final int SIMULAZIONI_PER_GIRO = 256;
+    private static final int MAX_SIMULAZIONI = 100_000;
+    private static final long DURATA_MASSIMA_NANOS = 400_000_000L;
+
+    /**
+     * Errore standard sotto il quale la stima si considera stabile (mezzo punto percentuale).
+     */
+    private static final double ERRORE_MASSIMO = 0.005;
+
+    /**
+     * Determinizzazioni usate da una stima, con la posizione della storia a cui si riferiscono.
+     */
+    private static final class Campione {
+        final Posizione posizione;
+        final int indice;
+        final long[][] determinizzazioni;
+
+        Campione(Posizione posizione, int indice, long[][] determinizzazioni) {
+            this.posizione = posizione;
+            this.indice = indice;
+            this.determinizzazioni = determinizzazioni;
+        }
+    }
+
+    private final ExecutorService coordinatore;
+    private final ExecutorService simulatori;
+    private final int numSimulatori;
+    private Future<?> inCorso;
+    private int generazione;
+    private volatile Campione ultimo;
+
+    /**
+     * Prepara un thread di simulazione per ogni processore disponibile oltre al primo, fino a quattro.
+     */
+    public ProbabilitaVittoria() {
+        this.numSimulatori = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        this.coordinatore = Executors.newSingleThreadExecutor(r -> creaThread(r, "j3sette-probabilita"));
+        this.simulatori = Executors.newFixedThreadPool(numSimulatori, r -> creaThread(r, "j3sette-probabilita-sim"));
+    }
+
+    private static Thread creaThread(Runnable r, String nome) {
+        Thread thread = new Thread(r, nome);
+        thread.setDaemon(true);
+        // Un gradino sotto l'EDT, che resta reattivo anche con tutti i processori occupati
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }
+
+    /**
+     * Avvia la stima per la posizione corrente della storia, fermando quella in corso.
+     *
+     * @param storia La storia della partita.
+     * @param posto  Il posto dell'utente.
+     * @param suStima Riceve sull'EDT la probabilità di vittoria e il numero di simulazioni su cui si basa,
+     *                a ogni giro finché la stima è quella corrente.
+     */
+    public void aggiorna(StoriaPartita storia, int posto, BiConsumer<Double, Integer> suStima) {
+        ferma();
+        if (!storia.isIniziata()) {
+            return;
+        }
+        int indice = storia.getIndiceCorrente();
+        Posizione posizione = storia.getCorrente();
+        long[][] riusabili = determinizzazioniRiusabili(storia, indice, posizione, posto);
+        int richiesta = generazione;
+        inCorso = coordinatore.submit(() -> stima(posizione, indice, posto, riusabili, (probabilita, simulazioni) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (richiesta == generazione) {
+                        suStima.accept(probabilita, simulazioni);
+                    }
+                })));
+    }
+
+    /**
+     * Ferma la stima in corso; le sue determinizzazioni restano disponibili per la prossima.
+     */
+    public void ferma() {
+        generazione++;
+        if (inCorso != null) {
+            inCorso.cancel(true);
+            inCorso = null;
+        }
+    }
+
+    /**
+     * Ferma la stima e dimentica le determinizzazioni, ad esempio a fine partita.
+     */
+    public void svuota() {
+        ferma();
+        ultimo = null;
+    }
+
+    /**
+     * Adatta alla posizione corrente le determinizzazioni della stima precedente, se questa
+     * si riferisce a una posizione precedente della stessa storia.
+     *
+     * @return Le determinizzazioni ancora coerenti, eventualmente nessuna.
+     */
+    private long[][] determinizzazioniRiusabili(StoriaPartita storia, int indice, Posizione posizione, int posto) {
+        Campione campione = ultimo;
+        if (campione == null || campione.indice > indice || storia.getPosizione(campione.indice) != campione.posizione) {
+            return new long[0][];
+        }
+        // Le carte giocate da ciascuno tra le due posizioni
+        long[] giocate = new long[posizione.getNumGiocatori()];
+        for (int i = campione.indice; i < indice; i++) {
+            Posizione prima = storia.getPosizione(i);
+            Posizione dopo = storia.getPosizione(i + 1);
+            int turno = prima.getTurno();
+            giocate[turno] |= prima.getMano(turno) & ~dopo.getMano(turno);
+        }
+        List<long[]> riusabili = new ArrayList<>(campione.determinizzazioni.length);
+        for (long[] determinizzazione : campione.determinizzazioni) {
+            long[] aggiornata = StimatoreVittoria.aggiorna(determinizzazione, posizione, posto, giocate);
+            if (aggiornata != null) {
+                riusabili.add(aggiornata);
+            }
+        }
+        return riusabili.toArray(new long[0][]);
+    }
+
+    /**
+     * Esegue la stima sul thread coordinatore: completa le determinizzazioni, poi simula a giri
+     * sui thread di simulazione fino alla convergenza.
+     */
+    private void stima(Posizione posizione, int indice, int posto, long[][] riusabili,
+                       BiConsumer<Double, Integer> suStima) {
+        long inizio = System.nanoTime();
+        StimatoreVittoria[] stimatori = new StimatoreVittoria[numSimulatori];
+        for (int i = 0; i < numSimulatori; i++) {
+            stimatori[i] = new StimatoreVittoria(ThreadLocalRandom.current().nextLong());
+            stimatori[i].prepara(posizione, posto);
+        }
+        long[][] determinizzazioni = new long[NUM_DETERMINIZZAZIONI][];
+        int riusate = Math.min(riusabili.length, NUM_DETERMINIZZAZIONI);
+        System.arraycopy(riusabili, 0, determinizzazioni, 0, riusate);
+        for (int i = riusate; i < NUM_DETERMINIZZAZIONI; i++) {
+            determinizzazioni[i] = stimatori[0].campiona();
+        }
+        ultimo = new Campione(posizione, indice, determinizzazioni);
+
+        long vittorie = 0;
+        int simulazioni = 0;
+        List<Callable<Long>> giro = new ArrayList<>(numSimulatori);
+        try {
+            while (simulazioni < MAX_SIMULAZIONI && System.nanoTime() - inizio < DURATA_MASSIMA_NANOS) {
+                giro.clear();
+                for (int s = 0; s < numSimulatori; s++) {
+                    StimatoreVittoria stimatore = stimatori[s];
+                    int primo = simulazioni + s * SIMULAZIONI_PER_GIRO;
+                    giro.add(() -> {
+                        long esiti = 0;
+                        for (int k = 0; k < SIMULAZIONI_PER_GIRO; k++) {
+                            esiti += stimatore.simula(determinizzazioni[(primo + k) % NUM_DETERMINIZZAZIONI]);
+                        }
+                        return esiti;
+                    });
+                }
+                for (Future<Long> esito : simulatori.invokeAll(giro)) {
+                    vittorie += esito.get();
+                }
+                simulazioni += numSimulatori * SIMULAZIONI_PER_GIRO;
+
+                // Gli esiti valgono 2 per una vittoria e 1 per un pareggio
+                double probabilita = vittorie / (2.0 * simulazioni);
+                suStima.accept(probabilita, simulazioni);
+                if (Math.sqrt(probabilita * (1 - probabilita) / simulazioni) < ERRORE_MASSIMO) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stima superata da una più recente
+        } catch (ExecutionException e) {
+            System.out.println("ERRORE nella stima di vittoria: " + e.getCause());
+        }
+        System.out.println("Stima di vittoria: " + simulazioni + " simulazioni, " + riusate
+                + " determinizzazioni riusate, " + (System.nanoTime() - inizio) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,434 @@
+package controller;
+
+import model.ChiusuraAnticipata;
+import model.Giocatore;
+import model.Mazzo;
+import model.RegistroStrategie;
+import model.Strategia;
+import model.StrategiaBot;
+import model.Tavolo;
+import util.AudioManager;
+import util.SplitMix64;
+import util.jfr.EventiJfr;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Modalità a riga di comando: gioca in serie un numero di partite con le strategie scelte
+ * e stampa risultati e prestazioni, senza interfaccia grafica.
+ * <p>
+ * Non carica né AWT né Swing né Java Sound né immagini, e salvo {@code --jfr} nemmeno Flight Recorder,
+ * così parte in poche decine di millisecondi e funziona su macchine senza display:
+ * è pensata per essere richiamata in serie da script.
+ * Ogni tavolo ha un seed ricavato da quello della serie, e ogni partita uno ricavato da quello del tavolo
+ * (vedi {@link Tavolo#setSeed}): con lo stesso seed mazzo e strategie casuali ripetono le stesse scelte.
+ * I bot Monte Carlo dipendono anche dal tempo concesso per mossa, salvo fissare {@code --simulazioni}.
+ * Con {@code --tavoli} le partite si dividono tra più tavoli giocati in parallelo; i risultati
+ * si sommano nell'ordine dei tavoli e non dipendono da quale thread finisce prima.
+ * Con {@code --duplicato} ogni partita è una smazzata giocata una volta per ogni rotazione delle strategie
+ * tra i posti, con le stesse carte: il confronto tra le strategie non risente della fortuna delle carte
+ * e basta un numero di partite molto minore per un risultato significativo.
+ * <p>
+ * Uso: {@code java Main partite [--giocatori N] [--partite N] [--strategie s1,s2,...] [--seed S] [--budget MS]
+ * [--simulazioni N] [--tavoli N] [--duplicato] [--chiusura M] [--jfr] [-v]}
+ */
+public class RigaDiComando {
+    private static final String USO = String.join("\n",
+            "Uso: java Main partite [opzioni]",
+            "  --giocatori N       giocatori al tavolo, da 2 a 4 (predefinito 2)",
+            "  --partite N         partite da giocare (predefinito 100)",
+            "  --strategie s1,...  strategia per posto: bot, casuale, prima o una installata come plug-in",
+            "                      (predefinito bot); l'ultima si ripete per i posti rimanenti",
+            "  --seed S            seed di mazzo e strategie (predefinito: casuale)",
+            "  --budget MS         tempo per mossa dei bot in millisecondi (predefinito 5,",
+            "                      10000 con --simulazioni)",
+            "  --simulazioni N     simulazioni per carta dei bot: con il seed rende le partite ripetibili",
+            "  --tavoli N          tavoli giocati in parallelo tra cui dividere le partite (predefinito 1)",
+            "  --duplicato         ogni partita è una smazzata rigiocata ruotando le strategie tra tutti i posti",
+            "  --chiusura M        quando chiudere una mano decisa senza chiedere le carte ai bot (predefinito punti):",
+            "                      mai; punti, senza più punti in gioco; vincitore, a vincitore deciso",
+            "                      (i punti medi non sono più quelli della partita completa)",
+            "  --jfr               crea gli eventi JFR (rallenta l'avvio)",
+            "  -v                  stampa il log di gioco");
+
+    private int numGiocatori = 2;
+    private int partite = 100;
+    private List<String> strategie = List.of("bot");
+    private long seed = new Random().nextLong();
+    private long budgetMillis = -1;
+    private int maxSimulazioni;
+    private int tavoli = 1;
+    private boolean duplicato;
+    private ChiusuraAnticipata chiusura = ChiusuraAnticipata.PUNTI;
+    private boolean verboso;
+    private boolean jfr;
+
+    /**
+     * Interpreta gli argomenti della riga di comando.
+     *
+     * @param args Gli argomenti, senza il comando iniziale.
+     * @throws IllegalArgumentException se un argomento non è valido.
+     */
+    RigaDiComando(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-v":
+                    verboso = true;
+                    break;
+                case "--jfr":
+                    jfr = true;
+                    break;
+                case "--duplicato":
+                    duplicato = true;
+                    break;
+                case "--chiusura":
+                    chiusura = ChiusuraAnticipata.daNome(valore(args, ++i, arg));
+                    break;
+                case "--giocatori":
+                    numGiocatori = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                case "--partite":
+                    partite = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                case "--strategie":
+                    strategie = Arrays.asList(valore(args, ++i, arg).split(","));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(valore(args, ++i, arg));
+                    break;
+                case "--budget":
+                    budgetMillis = Long.parseLong(valore(args, ++i, arg));
+                    if (budgetMillis < 0) {
+                        throw new IllegalArgumentException("Il budget non può essere negativo");
+                    }
+                    break;
+                case "--simulazioni":
+                    maxSimulazioni = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                case "--tavoli":
+                    tavoli = Integer.parseInt(valore(args, ++i, arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argomento sconosciuto: " + arg);
+            }
+        }
+        if (numGiocatori < 2 || numGiocatori > 4) {
+            throw new IllegalArgumentException("Giocatori non supportati: " + numGiocatori);
+        }
+        if (partite <= 0 || tavoli <= 0 || maxSimulazioni < 0) {
+            throw new IllegalArgumentException("Partite, tavoli e simulazioni devono essere positivi");
+        }
+        if (budgetMillis < 0) {
+            // Con un numero fisso di simulazioni il tempo serve solo da rete di sicurezza
+            budgetMillis = maxSimulazioni > 0 ? 10_000 : 5;
+        }
+    }
+
+    private static String valore(String[] args, int i, String opzione) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Manca il valore di " + opzione);
+        }
+        return args[i];
+    }
+
+    /**
+     * Crea la strategia indicata per nome, tra quelle di {@link RegistroStrategie}.
+     *
+     * @param nome Il nome della strategia: "bot", "casuale", "prima" o quello di una strategia installata.
+     * @param seed Il seed della strategia.
+     * @return La strategia.
+     * @throws IllegalArgumentException se il nome non è noto.
+     */
+    static Strategia creaStrategia(String nome, long seed) {
+        return RegistroStrategie.getInstance().crea(nome, seed);
+    }
+
+    /**
+     * Risultati di un tavolo, per squadra, con le statistiche della differenza di punti tra le squadre
+     * dei primi due posti su cui stimare l'errore standard del confronto tra le loro strategie.
+     * In modalità duplicato le squadre sono quelle delle strategie, che ruotano tra i posti,
+     * e ogni campione della differenza è la media delle rotazioni di una smazzata.
+     */
+    private static final class Risultato {
+        final String[] nomiSquadre;
+        final int[] vittorie;
+        final long[] puntiTerzi;
+        int campioni;
+        double sommaDifferenze;
+        double sommaQuadrati;
+
+        Risultato(int numSquadre) {
+            this.nomiSquadre = new String[numSquadre];
+            this.vittorie = new int[numSquadre];
+            this.puntiTerzi = new long[numSquadre];
+        }
+
+        void registraDifferenza(double differenzaPunti) {
+            campioni++;
+            sommaDifferenze += differenzaPunti;
+            sommaQuadrati += differenzaPunti * differenzaPunti;
+        }
+
+        void aggiungi(Risultato altro) {
+            for (int squadra = 0; squadra < vittorie.length; squadra++) {
+                vittorie[squadra] += altro.vittorie[squadra];
+                puntiTerzi[squadra] += altro.puntiTerzi[squadra];
+            }
+            campioni += altro.campioni;
+            sommaDifferenze += altro.sommaDifferenze;
+            sommaQuadrati += altro.sommaQuadrati;
+        }
+    }
+
+    /**
+     * Crea un tavolo con le strategie della serie, ruotate del numero di posti indicato:
+     * la strategia del posto {@code p} siede al posto {@code (p + rotazione) % giocatori}, con il suo nome.
+     */
+    private SimulatoreTorneo creaTavolo(long seedTavolo, int rotazione) {
+        // Il mazzo viene rimescolato a ogni partita con il seed della partita, e così le strategie
+        Mazzo mazzo = new Mazzo(new Random(seedTavolo));
+        List<Giocatore> giocatori = new ArrayList<>();
+        for (int posto = 0; posto < numGiocatori; posto++) {
+            int origine = (posto - rotazione + numGiocatori) % numGiocatori;
+            String nome = getNomeStrategia(origine);
+            Strategia strategia = creaStrategia(nome, seedTavolo);
+            if (strategia instanceof StrategiaBot) {
+                ((StrategiaBot) strategia).setMaxSimulazioni(maxSimulazioni);
+                ((StrategiaBot) strategia).setChiusuraAnticipata(chiusura);
+            }
+            // StringBuilder esplicito: la concatenazione con + avvierebbe il bootstrap invokedynamic alla prima partita
+            String nomeGiocatore = new StringBuilder(nome).append(' ').append(origine + 1).toString();
+            giocatori.add(new Giocatore("bot", nomeGiocatore, 0, 0, strategia));
+        }
+
+        SimulatoreTorneo simulatore = new SimulatoreTorneo(giocatori, mazzo, 31, budgetMillis);
+        simulatore.getTavolo().setSeed(seedTavolo);
+        simulatore.setChiusuraAnticipata(chiusura);
+        return simulatore;
+    }
+
+    /**
+     * Gioca un tavolo completo: crea giocatori e strategie e gioca le partite indicate.
+     *
+     * @param seedTavolo Il seed del tavolo.
+     * @param numPartite Le partite da giocare.
+     * @return I risultati del tavolo.
+     */
+    private Risultato giocaTavolo(long seedTavolo, int numPartite) {
+        SimulatoreTorneo simulatore = creaTavolo(seedTavolo, 0);
+        Tavolo tavolo = simulatore.getTavolo();
+        Risultato risultato = new Risultato(tavolo.getNumSquadre());
+        for (int squadra = 0; squadra < risultato.nomiSquadre.length; squadra++) {
+            risultato.nomiSquadre[squadra] = tavolo.getNomeSquadra(squadra);
+        }
+        for (int partita = 0; partita < numPartite; partita++) {
+            int[] punti = simulatore.giocaMano();
+            int vincente = 0;
+            for (int squadra = 0; squadra < punti.length; squadra++) {
+                risultato.puntiTerzi[squadra] += punti[squadra];
+                if (punti[squadra] > punti[vincente]) {
+                    vincente = squadra;
+                }
+            }
+            risultato.vittorie[vincente]++;
+            risultato.registraDifferenza((punti[0] - punti[1]) / 3.0);
+        }
+        return risultato;
+    }
+
+    /**
+     * Gioca in modalità duplicato le smazzate indicate: ognuna viene rigiocata a un tavolo per ogni rotazione
+     * delle strategie, con le stesse carte agli stessi posti e lo stesso primo di mano, così la fortuna
+     * delle carte si compensa tra le strategie.
+     *
+     * @param seedTavolo Il seed dei tavoli, da cui ricavare quello delle strategie.
+     * @param smazzate   I seed delle smazzate della serie, condivisi tra i tavoli.
+     * @param prima      La prima smazzata da giocare.
+     * @param numPartite Il numero di smazzate da giocare.
+     * @return I risultati per squadra delle strategie.
+     */
+    private Risultato giocaDuplicato(long seedTavolo, long[] smazzate, int prima, int numPartite) {
+        SimulatoreTorneo[] rotazioni = new SimulatoreTorneo[numGiocatori];
+        for (int r = 0; r < numGiocatori; r++) {
+            rotazioni[r] = creaTavolo(SplitMix64.deriva(seedTavolo, r), r);
+        }
+        Tavolo base = rotazioni[0].getTavolo();
+        int numSquadre = base.getNumSquadre();
+        Risultato risultato = new Risultato(numSquadre);
+        for (int squadra = 0; squadra < numSquadre; squadra++) {
+            risultato.nomiSquadre[squadra] = base.getNomeSquadra(squadra);
+        }
+        for (int partita = prima; partita < prima + numPartite; partita++) {
+            double differenza = 0;
+            for (int r = 0; r < numGiocatori; r++) {
+                // Un incontro nuovo a ogni mano: il primo di mano è sempre il posto 0
+                rotazioni[r].getTavolo().nuovoIncontro();
+                int[] punti = rotazioni[r].giocaMano(smazzate[partita]);
+                // Con la rotazione la squadra s della serie gioca come squadra (s + r) % numSquadre
+                int vincente = 0;
+                for (int squadra = 0; squadra < numSquadre; squadra++) {
+                    risultato.puntiTerzi[squadra] += punti[(squadra + r) % numSquadre];
+                    if (punti[squadra] > punti[vincente]) {
+                        vincente = squadra;
+                    }
+                }
+                risultato.vittorie[(vincente - r % numSquadre + numSquadre) % numSquadre]++;
+                differenza += punti[r % numSquadre] - punti[(1 + r) % numSquadre];
+            }
+            risultato.registraDifferenza(differenza / 3.0 / numGiocatori);
+        }
+        return risultato;
+    }
+
+    /**
+     * Genera i seed delle smazzate della modalità duplicato, una per partita.
+     *
+     * @return I seed delle smazzate, condivisi in sola lettura dai tavoli.
+     */
+    private long[] generaSmazzate() {
+        long seedSmazzate = SplitMix64.deriva(seed, -1);
+        long[] smazzate = new long[partite];
+        for (int i = 0; i < partite; i++) {
+            smazzate[i] = SplitMix64.deriva(seedSmazzate, i);
+        }
+        return smazzate;
+    }
+
+    private String getNomeStrategia(int posto) {
+        return strategie.get(Math.min(posto, strategie.size() - 1)).trim();
+    }
+
+    /**
+     * Gioca le partite e stampa il riepilogo.
+     *
+     * @param console Dove stampare i risultati.
+     * @throws InterruptedException se il thread viene interrotto mentre attende i tavoli.
+     */
+    void esegui(PrintStream console) throws InterruptedException {
+        int numTavoli = Math.min(tavoli, partite);
+        // Un tavolo solo si gioca su questo thread: niente pool né lambda da avviare per una serie breve
+        ExecutorService esecutore = numTavoli > 1
+                ? Executors.newFixedThreadPool(Math.min(numTavoli, Runtime.getRuntime().availableProcessors()))
+                : null;
+        long inizio = System.nanoTime();
+        try {
+            // In duplicato le smazzate si generano una volta sola e i tavoli se le dividono
+            long[] smazzate = duplicato ? generaSmazzate() : null;
+            Risultato totale = null;
+            if (esecutore == null) {
+                totale = duplicato ? giocaDuplicato(seed, smazzate, 0, partite) : giocaTavolo(seed, partite);
+            } else {
+                List<Future<Risultato>> futuri = new ArrayList<>(numTavoli);
+                int prima = 0;
+                for (int t = 0; t < numTavoli; t++) {
+                    // Il primo tavolo usa il seed della serie, così una serie a un tavolo si rigioca con setSeed(seed)
+                    long seedTavolo = t == 0 ? seed : SplitMix64.deriva(seed, t);
+                    int numPartite = partite / numTavoli + (t < partite % numTavoli ? 1 : 0);
+                    int primaDelTavolo = prima;
+                    futuri.add(esecutore.submit(() -> duplicato
+                            ? giocaDuplicato(seedTavolo, smazzate, primaDelTavolo, numPartite)
+                            : giocaTavolo(seedTavolo, numPartite)));
+                    prima += numPartite;
+                }
+                for (Future<Risultato> futuro : futuri) {
+                    Risultato risultato = futuro.get();
+                    if (totale == null) {
+                        totale = risultato;
+                    } else {
+                        totale.aggiungi(risultato);
+                    }
+                }
+            }
+            double secondi = (System.nanoTime() - inizio) / 1e9;
+            int mani = duplicato ? partite * numGiocatori : partite;
+
+            String[] nomiStrategie = new String[numGiocatori];
+            for (int posto = 0; posto < numGiocatori; posto++) {
+                nomiStrategie[posto] = getNomeStrategia(posto);
+            }
+            StringBuilder intestazione = new StringBuilder("seed ").append(seed)
+                    .append(", ").append(numGiocatori).append(" giocatori, strategie ").append(Arrays.toString(nomiStrategie))
+                    .append(", budget ").append(budgetMillis).append(" ms");
+            if (maxSimulazioni > 0) {
+                intestazione.append(", ").append(maxSimulazioni).append(" simulazioni");
+            }
+            if (numTavoli > 1) {
+                intestazione.append(", ").append(numTavoli).append(" tavoli");
+            }
+            if (duplicato) {
+                intestazione.append(", duplicato su ").append(partite).append(" smazzate");
+            }
+            if (chiusura != ChiusuraAnticipata.PUNTI) {
+                intestazione.append(", chiusura ").append(chiusura.name().toLowerCase());
+            }
+            console.println(intestazione);
+            for (int squadra = 0; squadra < totale.vittorie.length; squadra++) {
+                console.printf("%-24s %6d vittorie (%5.1f%%)  %6.2f punti medi%n", totale.nomiSquadre[squadra],
+                        totale.vittorie[squadra], 100.0 * totale.vittorie[squadra] / mani,
+                        totale.puntiTerzi[squadra] / 3.0 / mani);
+            }
+            console.printf("%d partite in %.3f s (%.1f partite/s)%n", mani, secondi, mani / secondi);
+            if (totale.campioni > 1) {
+                double media = totale.sommaDifferenze / totale.campioni;
+                double varianza = (totale.sommaQuadrati - media * totale.sommaDifferenze) / (totale.campioni - 1);
+                console.printf("differenza %s - %s: %+.3f punti per partita (errore standard %.3f)%n",
+                        totale.nomiSquadre[0], totale.nomiSquadre[1], media,
+                        Math.sqrt(Math.max(0, varianza) / totale.campioni));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Errore in un tavolo", e.getCause());
+        } finally {
+            if (esecutore != null) {
+                esecutore.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Punto di ingresso della modalità a riga di comando.
+     *
+     * @param args Gli argomenti, senza il comando iniziale.
+     */
+    public static void main(String[] args) {
+        RigaDiComando riga;
+        try {
+            riga = new RigaDiComando(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+            return;
+        }
+
+        // Il log di gioco rallenterebbe le partite: lo si scarta salvo con -v
+        PrintStream console = System.out;
+        if (!riga.verboso) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            Tavolo.setCronacaAbilitata(false);
+        }
+        AudioManager.getInstance().setAbilitato(false);
+        EventiJfr.setAbilitati(riga.jfr);
+        try {
+            riga.esegui(console);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Il testo di aiuto della modalità a riga di comando.
+     */
+    public static String getUso() {
+        return USO;
+    }
+}
@@ -0,0 +1,241 @@
+package controller;
+
+import model.*;
+import util.AudioManager;
+import util.GameMetrics;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulatore senza interfaccia di incontri tra bot.
+ * Gioca le mani direttamente sul {@link Tavolo}, senza timer né vista, alla velocità del motore:
+ * l'unico tempo speso è quello concesso ai bot per ogni mossa. Quando le prese rimanenti non possono più
+ * cambiare l'esito (vedi {@link #setChiusuraAnticipata}) la mano si chiude senza interpellare le strategie.
+ * <p>
+ * Uso: {@code java controller.SimulatoreTorneo [giocatori] [incontri] [obiettivo] [budgetMs] [-v]}
+ */
+public class SimulatoreTorneo {
+    private final Tavolo tavolo;
+    private ChiusuraAnticipata chiusura = ChiusuraAnticipata.PUNTI;
+
+    /**
+     * Costruisce un simulatore con un tavolo di soli bot.
+     *
+     * @param numGiocatori      Il numero di bot al tavolo (da 2 a 4).
+     * @param obiettivo         Il punteggio da raggiungere in ogni incontro.
+     * @param budgetMossaMillis Il tempo concesso ai bot per ogni mossa.
+     */
+    public SimulatoreTorneo(int numGiocatori, int obiettivo, long budgetMossaMillis) {
+        this(creaBot(numGiocatori), new Mazzo(), obiettivo, budgetMossaMillis);
+    }
+
+    /**
+     * Costruisce un simulatore con giocatori e mazzo a scelta, ad esempio con strategie diverse
+     * o con generatori casuali inizializzati da un seed.
+     *
+     * @param giocatori         I giocatori al tavolo (da 2 a 4), che giocano con la loro strategia.
+     * @param mazzo             Il mazzo da usare.
+     * @param obiettivo         Il punteggio da raggiungere in ogni incontro.
+     * @param budgetMossaMillis Il tempo concesso a ogni strategia per ogni mossa.
+     */
+    public SimulatoreTorneo(List<Giocatore> giocatori, Mazzo mazzo, int obiettivo, long budgetMossaMillis) {
+        tavolo = new Tavolo("assets/deck.jpeg", 1, giocatori, mazzo);
+        tavolo.setIncontro(new Incontro(obiettivo, tavolo.getNumSquadre()));
+        tavolo.setBudgetMossaMillis(budgetMossaMillis);
+    }
+
+    private static List<Giocatore> creaBot(int numGiocatori) {
+        List<Giocatore> giocatori = new ArrayList<>();
+        for (int i = 1; i <= numGiocatori; i++) {
+            giocatori.add(GiocatoreFactory.creaGiocatoreBot("Bot " + i));
+        }
+        return giocatori;
+    }
+
+    /**
+     * @return Il tavolo su cui si svolgono le simulazioni.
+     */
+    public Tavolo getTavolo() {
+        return tavolo;
+    }
+
+    /**
+     * Sceglie quando smettere di chiedere le carte alle strategie: da quel momento la mano si chiude
+     * giocando per ciascuno la prima carta giocabile, senza tempo di decisione. Con
+     * {@link ChiusuraAnticipata#PUNTI}, il default, punti e vincitore di ogni mano sono quelli che si
+     * avrebbero giocandola tutta; con {@link ChiusuraAnticipata#VINCITORE} è esatto solo il vincitore,
+     * mentre i punti, e con loro la classifica dell'incontro, sono quelli della chiusura rapida.
+     *
+     * @param chiusura La modalità di chiusura anticipata.
+     */
+    public void setChiusuraAnticipata(ChiusuraAnticipata chiusura) {
+        this.chiusura = chiusura;
+    }
+
+    /**
+     * Distribuisce e gioca una mano completa, aggiornando la classifica dell'incontro.
+     *
+     * @return I punti della mano in terzi per squadra, accusi compresi.
+     */
+    public int[] giocaMano() {
+        return giocaMano(tavolo.getSeedPartita());
+    }
+
+    /**
+     * Distribuisce e gioca una mano completa con il seed di partita indicato, ad esempio per
+     * rigiocare la stessa smazzata (vedi {@link Tavolo#iniziaPartita(long)}).
+     *
+     * @param seedPartita Il seed della partita.
+     * @return I punti della mano in terzi per squadra, accusi compresi.
+     */
+    public int[] giocaMano(long seedPartita) {
+        tavolo.reset();
+        tavolo.iniziaPartita(seedPartita);
+        List<Giocatore> giocatori = tavolo.getGiocatori();
+        int numGiocatori = giocatori.size();
+        int turno = tavolo.getPrimoDiMano();
+        int[] puntiTerzi = new int[tavolo.getNumSquadre()];
+
+        // Punti ancora in gioco, in terzi: a 3 giocatori le carte non distribuite restano fuori dalla mano
+        int rimanenti = 0;
+        if (tavolo.isConPesca()) {
+            rimanenti = Regole.PUNTI_TOTALI_TERZI;
+        } else {
+            for (Giocatore giocatore : giocatori) {
+                rimanenti += Regole.puntiTerzi(Regole.maschera(giocatore.getCarte()));
+            }
+        }
+        int puntiPresa = 0;
+        boolean decisa = false;
+
+        while (!giocatori.get(turno).getCarte().isEmpty()) {
+            Giocatore giocatore = giocatori.get(turno);
+            Carta scelta = decisa ? primaGiocabile(giocatore) : chiediCarta(giocatore, turno);
+            puntiPresa += Regole.puntiTerzi(scelta.getIndice());
+            tavolo.giocaCarta(giocatore, scelta);
+            if (tavolo.getStatoMano().getCarteSulBanco().size() == numGiocatori) {
+                turno = tavolo.controllaPresa();
+                rimanenti -= puntiPresa;
+                puntiPresa = 0;
+                if (!decisa) {
+                    leggiPunti(puntiTerzi);
+                    decisa = chiusura.isDecisa(puntiTerzi, puntiTerzi.length, rimanenti);
+                }
+            } else {
+                turno = (turno + 1) % numGiocatori;
+            }
+        }
+
+        leggiPunti(puntiTerzi);
+        tavolo.finePartita();
+        return puntiTerzi;
+    }
+
+    /**
+     * Chiede la carta alla strategia del giocatore. Se la strategia sceglie una carta non giocabile
+     * gioca la carta giocabile di indice minore, come {@link StrategiaConLimite}.
+     */
+    private Carta chiediCarta(Giocatore giocatore, int posto) {
+        long inizio = System.nanoTime();
+        long scadenza = inizio + tavolo.getBudgetMossaMillis() * 1_000_000L;
+        ContestoDecisione contesto = tavolo.getContesto(posto);
+        long giocabili = contesto.getCarteGiocabili();
+        int indice = giocatore.getStrategiaGiocata().scegliCarta(contesto, scadenza);
+        GameMetrics.getInstance().getDecisioneBot().registraDa(inizio);
+        if (indice < 0 || indice >= 64 || (giocabili & (1L << indice)) == 0) {
+            System.err.println("Strategia di " + giocatore.getNome() + ": carta " + indice
+                    + " non giocabile, gioca la carta di riserva");
+            indice = Long.numberOfTrailingZeros(giocabili);
+        }
+        for (Carta carta : giocatore.getCarte()) {
+            if (carta.getIndice() == indice) {
+                return carta;
+            }
+        }
+        return giocatore.getCarte().get(0);
+    }
+
+    /**
+     * Sceglie senza strategia la carta giocabile di indice minore, per chiudere una mano già decisa.
+     */
+    private Carta primaGiocabile(Giocatore giocatore) {
+        List<CartaBanco> banco = tavolo.getStatoMano().getCarteSulBanco();
+        long giocabili = Regole.carteGiocabili(Regole.maschera(giocatore.getCarte()),
+                banco.isEmpty() ? -1 : Regole.seme(banco.get(0).getIndice()));
+        int indice = Long.numberOfTrailingZeros(giocabili);
+        for (Carta carta : giocatore.getCarte()) {
+            if (carta.getIndice() == indice) {
+                return carta;
+            }
+        }
+        return giocatore.getCarte().get(0);
+    }
+
+    private void leggiPunti(int[] puntiTerzi) {
+        for (int squadra = 0; squadra < puntiTerzi.length; squadra++) {
+            puntiTerzi[squadra] = (int) Math.round(tavolo.getPunteggioSquadra(squadra) * 3);
+        }
+    }
+
+    /**
+     * Gioca un incontro completo a partire da una classifica azzerata.
+     *
+     * @return L'incontro concluso.
+     */
+    public Incontro giocaIncontro() {
+        tavolo.nuovoIncontro();
+        while (!tavolo.getIncontro().isConcluso()) {
+            giocaMano();
+        }
+        return tavolo.getIncontro();
+    }
+
+    public static void main(String[] args) {
+        boolean verboso = false;
+        List<Integer> numeri = new ArrayList<>();
+        for (String arg : args) {
+            if ("-v".equals(arg)) {
+                verboso = true;
+            } else {
+                numeri.add(Integer.parseInt(arg));
+            }
+        }
+        int numGiocatori = numeri.size() > 0 ? numeri.get(0) : 2;
+        int incontri = numeri.size() > 1 ? numeri.get(1) : 10;
+        int obiettivo = numeri.size() > 2 ? numeri.get(2) : Incontro.OBIETTIVO_PREDEFINITO;
+        long budget = numeri.size() > 3 ? numeri.get(3) : 10;
+
+        // Il log di gioco rallenterebbe la simulazione: lo si scarta salvo con -v
+        PrintStream console = System.out;
+        if (!verboso) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        AudioManager.getInstance().setAbilitato(false);
+
+        SimulatoreTorneo simulatore = new SimulatoreTorneo(numGiocatori, obiettivo, budget);
+        Tavolo tavolo = simulatore.getTavolo();
+        TrasmissioneSpettatori.avviaSeRichiesta(tavolo);
+        int[] incontriVinti = new int[tavolo.getNumSquadre()];
+        long maniTotali = 0;
+        long inizio = System.nanoTime();
+        for (int i = 1; i <= incontri; i++) {
+            Incontro incontro = simulatore.giocaIncontro();
+            incontriVinti[incontro.getVincitore()]++;
+            maniTotali += incontro.getManiGiocate();
+            console.println("Incontro " + i + ": vince " + tavolo.getNomeSquadra(incontro.getVincitore())
+                    + " in " + incontro.getManiGiocate() + " mani");
+        }
+        double secondi = (System.nanoTime() - inizio) / 1e9;
+
+        console.println("=== RIEPILOGO ===");
+        for (int squadra = 0; squadra < incontriVinti.length; squadra++) {
+            console.println(tavolo.getNomeSquadra(squadra) + ": " + incontriVinti[squadra] + " incontri vinti");
+        }
+        console.printf("%d incontri, %d mani in %.2f s (%.1f mani/s)%n",
+                incontri, maniTotali, secondi, maniTotali / secondi);
+        console.println(GameMetrics.getInstance().dump());
+    }
+}
@@ -0,0 +1,75 @@
+package controller;
+
+import model.Carta;
+import model.EventoTavolo;
+import model.Rank;
+import model.Seme;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Spettatore minimale da terminale per {@link TrasmissioneSpettatori}:
+ * si collega alla porta indicata e stampa la fotografia iniziale e gli eventi man mano che arrivano.
+ * <p>
+ * Uso: {@code java controller.SpettatoreConsole porta}
+ */
+public class SpettatoreConsole {
+    private static final EventoTavolo.Tipo[] TIPI = EventoTavolo.Tipo.values();
+
+    public static void main(String[] args) throws IOException {
+        int porta = Integer.parseInt(args[0]);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), porta);
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            while (true) {
+                byte tipo = in.readByte();
+                int lunghezza = in.readUnsignedShort();
+                if (tipo == TrasmissioneSpettatori.FRAME_EVENTO) {
+                    long sequenza = in.readLong();
+                    EventoTavolo.Tipo tipoEvento = TIPI[in.readByte()];
+                    int posto = in.readByte();
+                    int carta = in.readByte();
+                    int punti = in.readShort();
+                    System.out.println("#" + sequenza + " " + tipoEvento + (posto >= 0 ? " posto " + posto : "")
+                            + (carta >= 0 ? " " + descrivi(carta) : "") + (punti != 0 ? " punti " + punti + "/3" : ""));
+                } else if (tipo == TrasmissioneSpettatori.FRAME_FOTOGRAFIA) {
+                    stampaFotografia(in);
+                } else {
+                    in.skipBytes(lunghezza);
+                }
+            }
+        } catch (EOFException e) {
+            System.out.println("Trasmissione terminata");
+        }
+    }
+
+    private static void stampaFotografia(DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder("=== FOTOGRAFIA #").append(in.readLong()).append(" ===\n");
+        int numGiocatori = in.readUnsignedByte();
+        for (int i = 0; i < numGiocatori; i++) {
+            sb.append(in.readUTF()).append(": ").append(in.readUnsignedByte()).append(" carte, ")
+                    .append(in.readShort()).append("/3 punti\n");
+        }
+        int numSquadre = in.readUnsignedByte();
+        sb.append("Squadre:");
+        for (int i = 0; i < numSquadre; i++) {
+            sb.append(' ').append(in.readShort()).append("/3");
+        }
+        sb.append("\nDa pescare: ").append(in.readUnsignedByte())
+                .append(", carte uscite: ").append(Long.bitCount(in.readLong())).append("\nBanco:");
+        int carteSulBanco = in.readUnsignedByte();
+        for (int i = 0; i < carteSulBanco; i++) {
+            int carta = in.readUnsignedByte();
+            sb.append(' ').append(descrivi(carta)).append(" (posto ").append(in.readUnsignedByte()).append(')');
+        }
+        System.out.println(sb);
+    }
+
+    private static String descrivi(int carta) {
+        Carta c = new Carta(Seme.daIndice(carta / 10), Rank.daValore(carta % 10 + 1));
+        return c.getValore() + " di " + c.getSeme();
+    }
+}
@@ -0,0 +1,169 @@
+package controller;
+
+import model.CacheRicerca;
+import model.ContestoDecisione;
+import model.RisultatoRicerca;
+import model.StrategiaBot;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calcola in background la carta consigliata all'utente e i punti che ci si aspetta di ottenere.
+ * <p>
+ * Più thread analizzano in parallelo il contesto dell'utente con un {@link StrategiaBot} ciascuno,
+ * cioè con simulazioni su mani avversarie campionate in modo coerente con quanto visto,
+ * e sommano le statistiche nella {@link CacheRicerca} della posizione. Il primo tratto è breve,
+ * così una prima risposta arriva in poche decine di millisecondi; i successivi la raffinano
+ * e dopo ognuno la vista viene avvisata sull'EDT. Un suggerimento completo resta in cache:
+ * chiederlo di nuovo per la stessa posizione, anche dopo un annullamento, non costa nulla.
+ * <p>
+ * I metodi pubblici vanno chiamati dall'EDT.
+ */
+public class Suggerimento {
+    /**
+     * Tempo di analisi di ogni thread per un suggerimento completo.
+     */
+    private static final long DURATA_NANOS = 2_000_000_000L;
+
+    /**
+     * Durata del primo tratto di analisi, che dà la prima risposta.
+     */
+    private static final long PRIMO_TRATTO_NANOS = 30_000_000L;
+
+    /**
+     * Durata dei tratti successivi, dopo ognuno dei quali il suggerimento viene aggiornato.
+     */
+    private static final long TRATTO_NANOS = 150_000_000L;
+
+    private final CacheRicerca cache = new CacheRicerca(64);
+    private final Set<ContestoDecisione> completi = ConcurrentHashMap.newKeySet();
+    private final StrategiaBot[] analisti;
+    private final ExecutorService[] esecutori;
+    private final List<Future<?>> inCorso = new ArrayList<>();
+    private ContestoDecisione contestoInCorso;
+    private int generazione;
+
+    /**
+     * Prepara un thread di analisi per ogni processore disponibile oltre al primo, fino a quattro.
+     */
+    public Suggerimento() {
+        int numAnalisti = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        this.analisti = new StrategiaBot[numAnalisti];
+        this.esecutori = new ExecutorService[numAnalisti];
+        for (int i = 0; i < numAnalisti; i++) {
+            analisti[i] = new StrategiaBot();
+            String nome = "j3sette-suggerimento-" + i;
+            esecutori[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, nome);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Restituisce il suggerimento calcolato finora per il contesto indicato.
+     *
+     * @param contesto Il contesto dell'utente.
+     * @return Le statistiche delle carte giocabili, oppure null se non è ancora stato chiesto.
+     */
+    public RisultatoRicerca get(ContestoDecisione contesto) {
+        return cache.get(contesto);
+    }
+
+    /**
+     * @param contesto Il contesto dell'utente.
+     * @return true se il suggerimento per quel contesto ha concluso l'analisi.
+     */
+    public boolean isCompleto(ContestoDecisione contesto) {
+        // La cache può aver scartato la posizione per fare spazio
+        return completi.contains(contesto) && cache.get(contesto) != null;
+    }
+
+    /**
+     * Avvia, o riprende, l'analisi del contesto indicato. Non fa nulla se il suggerimento
+     * è già completo o è già in corso per lo stesso contesto.
+     *
+     * @param contesto         Il contesto dell'utente.
+     * @param suAggiornamento  Chiamato sull'EDT dopo ogni tratto di analisi.
+     */
+    public void avvia(ContestoDecisione contesto, Runnable suAggiornamento) {
+        if (contesto.getCarteGiocabili() == 0 || isCompleto(contesto)
+                || (contesto.equals(contestoInCorso) && !isTerminato())) {
+            return;
+        }
+        ferma();
+        contestoInCorso = contesto;
+        int richiesta = generazione;
+        RisultatoRicerca precedente = cache.get(contesto);
+        long giaAnalizzati = precedente != null ? precedente.getNanosRicerca() : 0;
+        // Un'analisi ripresa più volte può aver già esaurito il tempo: allora resta solo da dichiararla completa
+        long durataNanos = Math.max(0, DURATA_NANOS - giaAnalizzati / analisti.length);
+        AtomicInteger attivi = new AtomicInteger(analisti.length);
+        for (int i = 0; i < analisti.length; i++) {
+            StrategiaBot analista = analisti[i];
+            inCorso.add(esecutori[i].submit(() -> {
+                long fine = System.nanoTime() + durataNanos;
+                long tratto = PRIMO_TRATTO_NANOS;
+                while (System.nanoTime() < fine && !Thread.currentThread().isInterrupted()) {
+                    cache.unisci(contesto, analista.analizza(contesto, Math.min(fine, System.nanoTime() + tratto)));
+                    tratto = TRATTO_NANOS;
+                    if (System.nanoTime() < fine) {
+                        notifica(richiesta, suAggiornamento);
+                    }
+                }
+                if (!Thread.currentThread().isInterrupted() && attivi.decrementAndGet() == 0) {
+                    // L'ultimo analista a finire dichiara completo il suggerimento
+                    completi.add(contesto);
+                }
+                notifica(richiesta, suAggiornamento);
+            }));
+        }
+    }
+
+    private void notifica(int richiesta, Runnable suAggiornamento) {
+        SwingUtilities.invokeLater(() -> {
+            if (richiesta == generazione) {
+                suAggiornamento.run();
+            }
+        });
+    }
+
+    /**
+     * Ferma l'analisi in corso; quanto già calcolato resta in cache.
+     */
+    public void ferma() {
+        generazione++;
+        for (Future<?> futuro : inCorso) {
+            futuro.cancel(true);
+        }
+        inCorso.clear();
+        contestoInCorso = null;
+    }
+
+    /**
+     * Ferma l'analisi e dimentica i suggerimenti, ad esempio a fine partita.
+     */
+    public void svuota() {
+        ferma();
+        cache.svuota();
+        completi.clear();
+    }
+
+    private boolean isTerminato() {
+        for (Future<?> futuro : inCorso) {
+            if (!futuro.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
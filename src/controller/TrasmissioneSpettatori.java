@@ -0,0 +1,665 @@
+package controller;
+
+import model.EventoTavolo;
+import model.Giocatore;
+import model.Incontro;
+import model.PubblicatoreEventi;
+import model.Regole;
+import model.Tavolo;
+import util.AudioManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Trasmissione in sola lettura di un tavolo a molti spettatori collegati via socket locale.
+ * <p>
+ * Gli eventi arrivano dal {@link PubblicatoreEventi} del tavolo e sono gestiti da un solo thread
+ * con un {@link Selector}: ogni evento viene codificato una volta in un frame, e lo stesso buffer
+ * (tramite {@link ByteBuffer#duplicate()}, senza copie) viene accodato a tutte le connessioni e
+ * scritto con scritture gather. Il costo di codifica non cresce quindi con il numero di spettatori.
+ * <p>
+ * Lo stesso thread tiene una copia dello stato pubblico del tavolo aggiornata dagli eventi
+ * (carte in mano, punti, banco, carte uscite), da cui ricava la fotografia inviata a chi si collega
+ * a partita in corsa: nessuno deve rivedere la storia completa. Uno spettatore troppo lento perde
+ * la coda e riceve una fotografia nuova. Se invece si perdono eventi a monte, la copia stessa è incompleta:
+ * la trasmissione si sospende, senza inviare nulla né agli spettatori collegati né ai nuovi, fino al
+ * prossimo {@link EventoTavolo.Tipo#RESET} o {@link EventoTavolo.Tipo#PARTITA_INIZIATA}, che ricostruiscono
+ * lo stato da zero; a quel punto tutti ricevono una fotografia.
+ * Per ricostruire lo stato quando il tavolo torna a una posizione precedente, il thread conserva
+ * gli eventi della sola partita in corso e li riapplica fino a quella posizione; anche in questo
+ * caso gli spettatori ricevono una fotografia al posto dell'evento.
+ * <p>
+ * Formato dei frame: un byte di tipo ({@link #FRAME_EVENTO} o {@link #FRAME_FOTOGRAFIA}), uno short
+ * con la lunghezza del contenuto, poi il contenuto in big endian.
+ */
+public class TrasmissioneSpettatori implements Flow.Subscriber<EventoTavolo> {
+    /** Frame di un evento: sequenza (long), tipo, posto, carta (byte), punti in terzi (short). */
+    public static final byte FRAME_EVENTO = 0;
+    /** Frame della fotografia dello stato pubblico del tavolo. */
+    public static final byte FRAME_FOTOGRAFIA = 1;
+
+    private static final int MAX_FRAME_IN_CODA = 4096;
+    private static final int MAX_SCRITTURA_GATHER = 64;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<EventoTavolo> arrivati = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numSpettatori = new AtomicInteger();
+    private volatile boolean attiva = true;
+    private Flow.Subscription sottoscrizione;
+
+    // Stato pubblico del tavolo, letto e scritto solo dal thread della trasmissione
+    private final String[] nomi;
+    private final int numSquadre;
+    private final int[] carteInMano;
+    private final int[] puntiTerzi;
+    private final int[] puntiSquadraTerzi;
+    private final int[] bancoCarte = new int[4];
+    private final int[] bancoPosti = new int[4];
+    private int carteSulBanco;
+    private int carteDaPescare;
+    private long carteUscite;
+    private long ultimaSequenza;
+    private boolean allineata = true;
+    private ByteBuffer fotografia;
+    private final List<EventoTavolo> eventiPartita = new ArrayList<>();
+    private int eventiApplicati;
+
+    /**
+     * Apre la trasmissione sulla porta indicata dell'interfaccia locale e si iscrive agli eventi del tavolo.
+     *
+     * @param tavolo Il tavolo da trasmettere.
+     * @param porta  La porta TCP (0 per sceglierne una libera).
+     * @throws IOException se la porta non può essere aperta.
+     */
+    public TrasmissioneSpettatori(Tavolo tavolo, int porta) throws IOException {
+        List<Giocatore> giocatori = tavolo.getGiocatori();
+        this.nomi = new String[giocatori.size()];
+        for (int i = 0; i < nomi.length; i++) {
+            nomi[i] = giocatori.get(i).getNome();
+        }
+        this.numSquadre = tavolo.getNumSquadre();
+        this.carteInMano = new int[nomi.length];
+        this.puntiTerzi = new int[nomi.length];
+        this.puntiSquadraTerzi = new int[numSquadre];
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        // Grande buffer a monte: se si perdono eventi comunque, gli spettatori si risincronizzano
+        tavolo.getEventi().sottoscrivi(this, 8192, PubblicatoreEventi.Politica.SCARTA_VECCHI);
+
+        Thread thread = new Thread(this::ciclo, "j3sette-spettatori");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Trasmissione spettatori su " + server.getLocalAddress());
+    }
+
+    /**
+     * Apre la trasmissione se è indicata una porta con la proprietà {@code j3sette.spettatori}.
+     *
+     * @param tavolo Il tavolo da trasmettere.
+     * @return La trasmissione avviata, oppure null se non richiesta o se la porta non è disponibile.
+     */
+    public static TrasmissioneSpettatori avviaSeRichiesta(Tavolo tavolo) {
+        String porta = System.getProperty("j3sette.spettatori");
+        if (porta == null) {
+            return null;
+        }
+        try {
+            return new TrasmissioneSpettatori(tavolo, Integer.parseInt(porta));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Trasmissione spettatori non avviata: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return La porta su cui la trasmissione accetta gli spettatori.
+     */
+    public int getPorta() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return Il numero di spettatori collegati.
+     */
+    public int getNumSpettatori() {
+        return numSpettatori.get();
+    }
+
+    /**
+     * Chiude la trasmissione e tutte le connessioni.
+     */
+    public void chiudi() {
+        attiva = false;
+        if (sottoscrizione != null) {
+            sottoscrizione.cancel();
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.sottoscrizione = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(EventoTavolo evento) {
+        arrivati.add(evento);
+        selector.wakeup();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("Trasmissione spettatori interrotta: " + throwable.getMessage());
+        chiudi();
+    }
+
+    @Override
+    public void onComplete() {
+        chiudi();
+    }
+
+    /**
+     * Ciclo del thread della trasmissione: accetta spettatori, distribuisce gli eventi e scrive.
+     */
+    private void ciclo() {
+        try {
+            while (attiva) {
+                selector.select();
+                distribuisciEventi();
+                Iterator<SelectionKey> chiavi = selector.selectedKeys().iterator();
+                while (chiavi.hasNext()) {
+                    SelectionKey chiave = chiavi.next();
+                    chiavi.remove();
+                    if (!chiave.isValid()) {
+                        continue;
+                    }
+                    if (chiave.isAcceptable()) {
+                        accetta();
+                    } else {
+                        if (chiave.isReadable()) {
+                            leggi(chiave);
+                        }
+                        if (chiave.isValid() && chiave.isWritable()) {
+                            scrivi(chiave);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Errore nella trasmissione spettatori: " + e.getMessage());
+        } finally {
+            for (SelectionKey chiave : selector.keys()) {
+                chiudi(chiave);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignorata) {
+                // in chiusura
+            }
+        }
+    }
+
+    private void accetta() throws IOException {
+        SocketChannel canale;
+        while ((canale = server.accept()) != null) {
+            canale.configureBlocking(false);
+            canale.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connessione connessione = new Connessione();
+            SelectionKey chiave = canale.register(selector, SelectionKey.OP_READ, connessione);
+            if (allineata) {
+                // Altrimenti la fotografia arriva quando la copia dello stato torna affidabile
+                connessione.accoda(getFotografia());
+            }
+            numSpettatori.incrementAndGet();
+            scrivi(chiave);
+        }
+    }
+
+    /**
+     * Gli spettatori non inviano nulla: la lettura serve solo a riconoscere le disconnessioni.
+     */
+    private void leggi(SelectionKey chiave) {
+        Connessione connessione = (Connessione) chiave.attachment();
+        try {
+            connessione.scarto.clear();
+            if (((SocketChannel) chiave.channel()).read(connessione.scarto) < 0) {
+                chiudi(chiave);
+            }
+        } catch (IOException e) {
+            chiudi(chiave);
+        }
+    }
+
+    /**
+     * Applica gli eventi arrivati allo stato pubblico e li accoda, codificati una volta, a ogni spettatore;
+     * poi scrive a ciascuno tutti i frame accodati con una sola scrittura gather.
+     * Dopo una lacuna nella sequenza gli eventi non vengono applicati né inviati finché uno di essi
+     * non ricostruisce lo stato da zero.
+     */
+    private void distribuisciEventi() {
+        if (arrivati.isEmpty()) {
+            return;
+        }
+        EventoTavolo evento;
+        while ((evento = arrivati.poll()) != null) {
+            if (ultimaSequenza != 0 && evento.getSequenza() != ultimaSequenza + 1 && allineata) {
+                System.err.println("Trasmissione spettatori: eventi persi dopo il n. " + ultimaSequenza
+                        + ", in attesa della prossima partita");
+                allineata = false;
+            }
+            boolean riallineata = false;
+            if (!allineata) {
+                EventoTavolo.Tipo tipo = evento.getTipo();
+                if (tipo != EventoTavolo.Tipo.RESET && tipo != EventoTavolo.Tipo.PARTITA_INIZIATA) {
+                    ultimaSequenza = evento.getSequenza();
+                    continue;
+                }
+                allineata = true;
+                riallineata = true;
+            }
+            applica(evento);
+            ByteBuffer frame = riallineata || evento.getTipo() == EventoTavolo.Tipo.POSIZIONE_RIPRISTINATA
+                    ? getFotografia() : codifica(evento);
+            for (SelectionKey chiave : selector.keys()) {
+                if (chiave.attachment() instanceof Connessione connessione && !connessione.accoda(frame.duplicate())) {
+                    connessione.risincronizza(getFotografia());
+                }
+            }
+        }
+        for (SelectionKey chiave : selector.keys()) {
+            if (chiave.isValid() && chiave.attachment() instanceof Connessione) {
+                scrivi(chiave);
+            }
+        }
+    }
+
+    /**
+     * Scrive con una scrittura gather tutti i frame in coda per uno spettatore, finché il socket li accetta.
+     */
+    private void scrivi(SelectionKey chiave) {
+        Connessione connessione = (Connessione) chiave.attachment();
+        SocketChannel canale = (SocketChannel) chiave.channel();
+        try {
+            while (!connessione.coda.isEmpty()) {
+                int n = 0;
+                for (ByteBuffer frame : connessione.coda) {
+                    connessione.gather[n++] = frame;
+                    if (n == MAX_SCRITTURA_GATHER) {
+                        break;
+                    }
+                }
+                long scritti = canale.write(connessione.gather, 0, n);
+                while (!connessione.coda.isEmpty() && !connessione.coda.peekFirst().hasRemaining()) {
+                    connessione.coda.pollFirst();
+                }
+                if (scritti == 0) {
+                    break;
+                }
+            }
+            Arrays.fill(connessione.gather, null);
+            chiave.interestOps(connessione.coda.isEmpty()
+                    ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            chiudi(chiave);
+        }
+    }
+
+    private void chiudi(SelectionKey chiave) {
+        if (chiave.attachment() instanceof Connessione && chiave.isValid()) {
+            numSpettatori.decrementAndGet();
+        }
+        chiave.cancel();
+        try {
+            chiave.channel().close();
+        } catch (IOException ignorata) {
+            // già chiuso
+        }
+    }
+
+    /**
+     * Aggiorna lo stato pubblico del tavolo con un evento e invalida la fotografia.
+     * Gli eventi della partita in corso sono conservati per poter tornare a una posizione precedente;
+     * un evento nuovo dopo un ritorno scarta quelli successivi alla posizione ripristinata.
+     */
+    private void applica(EventoTavolo evento) {
+        ultimaSequenza = evento.getSequenza();
+        fotografia = null;
+        switch (evento.getTipo()) {
+            case RESET:
+            case PARTITA_INIZIATA:
+                eventiPartita.clear();
+                eventiApplicati = 0;
+                break;
+            case POSIZIONE_RIPRISTINATA:
+                ripristina(evento.getCarta());
+                return;
+            default:
+                break;
+        }
+        eventiPartita.subList(eventiApplicati, eventiPartita.size()).clear();
+        eventiPartita.add(evento);
+        eventiApplicati++;
+        aggiorna(evento);
+    }
+
+    /**
+     * Ricostruisce lo stato pubblico alla posizione raggiunta dopo il numero di carte indicato,
+     * riapplicando gli eventi della partita fino alla giocata successiva esclusa.
+     */
+    private void ripristina(int carteGiocate) {
+        int fine = 0;
+        int giocate = 0;
+        while (fine < eventiPartita.size()) {
+            if (eventiPartita.get(fine).getTipo() == EventoTavolo.Tipo.CARTA_GIOCATA && giocate++ == carteGiocate) {
+                break;
+            }
+            fine++;
+        }
+        for (int i = 0; i < fine; i++) {
+            aggiorna(eventiPartita.get(i));
+        }
+        eventiApplicati = fine;
+    }
+
+    private void aggiorna(EventoTavolo evento) {
+        int posto = evento.getPosto();
+        switch (evento.getTipo()) {
+            case RESET:
+                Arrays.fill(carteInMano, 0);
+                Arrays.fill(puntiTerzi, 0);
+                Arrays.fill(puntiSquadraTerzi, 0);
+                carteSulBanco = 0;
+                carteDaPescare = 0;
+                carteUscite = 0L;
+                break;
+            case PARTITA_INIZIATA:
+                Arrays.fill(carteInMano, 10);
+                Arrays.fill(puntiTerzi, 0);
+                Arrays.fill(puntiSquadraTerzi, 0);
+                carteSulBanco = 0;
+                carteDaPescare = nomi.length == 2 ? Regole.CARTE_MAZZO - 20 : 0;
+                carteUscite = 0L;
+                break;
+            case ACCUSI:
+                puntiTerzi[posto] += evento.getPuntiTerzi();
+                puntiSquadraTerzi[posto % numSquadre] += evento.getPuntiTerzi();
+                break;
+            case CARTA_GIOCATA:
+                carteInMano[posto]--;
+                if (carteSulBanco < bancoCarte.length) {
+                    bancoCarte[carteSulBanco] = evento.getCarta();
+                    bancoPosti[carteSulBanco++] = posto;
+                }
+                carteUscite |= 1L << evento.getCarta();
+                break;
+            case PRESA:
+                puntiTerzi[posto] += evento.getPuntiTerzi();
+                puntiSquadraTerzi[posto % numSquadre] += evento.getPuntiTerzi();
+                carteSulBanco = 0;
+                break;
+            case PESCATA:
+                carteInMano[posto]++;
+                carteDaPescare = Math.max(0, carteDaPescare - 1);
+                break;
+            case FINE_PARTITA:
+            case POSIZIONE_RIPRISTINATA:
+                break;
+        }
+    }
+
+    /**
+     * Codifica un evento nel suo frame.
+     *
+     * @param evento L'evento.
+     * @return Il frame pronto per la lettura.
+     */
+    public static ByteBuffer codifica(EventoTavolo evento) {
+        ByteBuffer frame = ByteBuffer.allocate(3 + 13);
+        frame.put(FRAME_EVENTO).putShort((short) 13)
+                .putLong(evento.getSequenza())
+                .put((byte) evento.getTipo().ordinal())
+                .put((byte) evento.getPosto())
+                .put((byte) evento.getCarta())
+                .putShort((short) evento.getPuntiTerzi());
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Restituisce la fotografia dello stato pubblico, codificandola solo se è cambiato qualcosa
+     * dall'ultima richiesta: gli spettatori che si collegano tra due eventi condividono gli stessi byte.
+     * Contenuto: sequenza (long), numero di giocatori e per ciascuno nome, carte in mano e punti
+     * in terzi; numero di squadre e punti di ciascuna; carte da pescare, carte uscite (long)
+     * e le carte sul banco con il posto di chi le ha giocate.
+     */
+    private ByteBuffer getFotografia() {
+        if (fotografia == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(ultimaSequenza);
+                out.writeByte(nomi.length);
+                for (int i = 0; i < nomi.length; i++) {
+                    out.writeUTF(nomi[i]);
+                    out.writeByte(carteInMano[i]);
+                    out.writeShort(puntiTerzi[i]);
+                }
+                out.writeByte(numSquadre);
+                for (int punti : puntiSquadraTerzi) {
+                    out.writeShort(punti);
+                }
+                out.writeByte(carteDaPescare);
+                out.writeLong(carteUscite);
+                out.writeByte(carteSulBanco);
+                for (int i = 0; i < carteSulBanco; i++) {
+                    out.writeByte(bancoCarte[i]);
+                    out.writeByte(bancoPosti[i]);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // non avviene scrivendo in memoria
+            }
+            byte[] contenuto = bytes.toByteArray();
+            ByteBuffer frame = ByteBuffer.allocate(3 + contenuto.length);
+            frame.put(FRAME_FOTOGRAFIA).putShort((short) contenuto.length).put(contenuto);
+            fotografia = frame.flip().asReadOnlyBuffer();
+        }
+        return fotografia.duplicate();
+    }
+
+    /**
+     * Prova di carico: collega molti spettatori a un incontro simulato a 4 giocatori e verifica che ognuno
+     * riceva gli eventi in sequenza (o una fotografia al loro posto) fino all'ultimo, e che la fotografia
+     * data a chi si collega alla fine coincida con lo stato del tavolo.
+     * <p>
+     * Uso: {@code java controller.TrasmissioneSpettatori [spettatori] [incontri]} (predefiniti: 300 e 5)
+     *
+     * @param args Argomenti opzionali: il numero di spettatori e di incontri da simulare.
+     * @throws Exception se la prova fallisce.
+     */
+    public static void main(String[] args) throws Exception {
+        int numSpettatori = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int incontri = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        AudioManager.getInstance().setAbilitato(false);
+
+        SimulatoreTorneo simulatore = new SimulatoreTorneo(4, Incontro.OBIETTIVO_PREDEFINITO, 1);
+        Tavolo tavolo = simulatore.getTavolo();
+        TrasmissioneSpettatori trasmissione = new TrasmissioneSpettatori(tavolo, 0);
+        ProvaSpettatore[] spettatori = new ProvaSpettatore[numSpettatori];
+        for (int i = 0; i < numSpettatori; i++) {
+            spettatori[i] = new ProvaSpettatore(trasmissione.getPorta());
+            Thread thread = new Thread(spettatori[i], "j3sette-prova-spettatore-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        attendi(() -> trasmissione.getNumSpettatori() == numSpettatori, "collegamento degli spettatori");
+
+        long inizio = System.nanoTime();
+        for (int i = 0; i < incontri; i++) {
+            simulatore.giocaIncontro();
+        }
+        long finale = tavolo.getEventi().getSequenza();
+        attendi(() -> {
+            for (ProvaSpettatore spettatore : spettatori) {
+                if (spettatore.ultimaSequenza != finale) {
+                    return false;
+                }
+            }
+            return true;
+        }, "consegna dell'evento " + finale);
+        double secondi = (System.nanoTime() - inizio) / 1e9;
+
+        long eventi = 0;
+        long fotografie = 0;
+        for (ProvaSpettatore spettatore : spettatori) {
+            if (spettatore.errore != null) {
+                throw new IllegalStateException("Spettatore fallito: " + spettatore.errore);
+            }
+            eventi += spettatore.eventi;
+            fotografie += spettatore.fotografie;
+        }
+
+        // Chi si collega a fine incontro deve vedere lo stato del tavolo
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), trasmissione.getPorta());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            if (in.readByte() != FRAME_FOTOGRAFIA) {
+                throw new IllegalStateException("Manca la fotografia iniziale");
+            }
+            in.readUnsignedShort();
+            if (in.readLong() != finale) {
+                throw new IllegalStateException("Fotografia non aggiornata all'evento " + finale);
+            }
+            List<Giocatore> giocatori = tavolo.getGiocatori();
+            int numGiocatori = in.readUnsignedByte();
+            for (int i = 0; i < numGiocatori; i++) {
+                in.readUTF();
+                if (in.readUnsignedByte() != giocatori.get(i).getCarte().size()) {
+                    throw new IllegalStateException("Carte in mano diverse per il posto " + i);
+                }
+                in.readShort();
+            }
+            int numSquadre = in.readUnsignedByte();
+            for (int squadra = 0; squadra < numSquadre; squadra++) {
+                if (in.readShort() != Math.round(tavolo.getPunteggioSquadra(squadra) * 3)) {
+                    throw new IllegalStateException("Punti diversi per la squadra " + squadra);
+                }
+            }
+        }
+        trasmissione.chiudi();
+        console.printf("%d spettatori, %d eventi, %d eventi e %d fotografie ricevuti in %.2f s%n",
+                numSpettatori, finale, eventi, fotografie, secondi);
+    }
+
+    private static void attendi(BooleanSupplier condizione, String cosa) throws InterruptedException {
+        long limite = System.nanoTime() + 60_000_000_000L;
+        while (!condizione.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("Tempo scaduto in attesa: " + cosa);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Spettatore della prova di carico: legge i frame e controlla che gli eventi siano consecutivi,
+     * salvo quando una fotografia li sostituisce.
+     */
+    private static final class ProvaSpettatore implements Runnable {
+        private final int porta;
+        private volatile long ultimaSequenza = -1;
+        private volatile String errore;
+        private long eventi;
+        private long fotografie;
+
+        private ProvaSpettatore(int porta) {
+            this.porta = porta;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), porta);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    byte tipo = in.readByte();
+                    int lunghezza = in.readUnsignedShort();
+                    long sequenza = in.readLong();
+                    in.skipNBytes(lunghezza - Long.BYTES);
+                    if (tipo == FRAME_FOTOGRAFIA) {
+                        fotografie++;
+                    } else if (ultimaSequenza >= 0 && sequenza != ultimaSequenza + 1) {
+                        errore = "evento " + sequenza + " dopo il " + ultimaSequenza;
+                    } else {
+                        eventi++;
+                    }
+                    ultimaSequenza = sequenza;
+                }
+            } catch (IOException e) {
+                // Trasmissione chiusa
+            }
+        }
+    }
+
+    /**
+     * Stato di una connessione: la coda dei frame condivisi ancora da scrivere.
+     */
+    private static final class Connessione {
+        private final ArrayDeque<ByteBuffer> coda = new ArrayDeque<>();
+        private final ByteBuffer[] gather = new ByteBuffer[MAX_SCRITTURA_GATHER];
+        private final ByteBuffer scarto = ByteBuffer.allocate(256);
+
+        /**
+         * @return false se la coda è piena e lo spettatore va risincronizzato.
+         */
+        private boolean accoda(ByteBuffer frame) {
+            if (coda.size() >= MAX_FRAME_IN_CODA) {
+                return false;
+            }
+            coda.addLast(frame);
+            return true;
+        }
+
+        /**
+         * Sostituisce la coda con una fotografia, conservando l'eventuale frame già scritto in parte.
+         */
+        private void risincronizza(ByteBuffer fotografia) {
+            ByteBuffer inCorso = coda.peekFirst();
+            boolean parziale = inCorso != null && inCorso.position() > 0;
+            coda.clear();
+            if (parziale) {
+                coda.addLast(inCorso);
+            }
+            coda.addLast(fotografia);
+        }
+    }
+}
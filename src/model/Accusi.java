@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * Riconoscimento degli accusi (dichiarazioni) del Tressette sulla maschera di bit di una mano.
+ * <ul>
+ *     <li><b>Napoletana</b>: Asso, Due e Tre dello stesso seme, vale 3 punti.</li>
+ *     <li><b>Buongioco</b>: tre Assi, tre Due o tre Tre, vale 3 punti; con tutte e quattro le carte 4 punti.</li>
+ * </ul>
+ * Ogni controllo è un AND con una maschera costante seguito eventualmente da un conteggio dei bit.
+ */
+public final class Accusi {
+    private static final long[] NAPOLETANA = new long[4];
+    private static final long[] BUONGIOCO = new long[3];
+
+    static {
+        for (int seme = 0; seme < 4; seme++) {
+            NAPOLETANA[seme] = 0b111L << (seme * 10);
+            for (int valore = 0; valore < 3; valore++) {
+                BUONGIOCO[valore] |= 1L << (seme * 10 + valore);
+            }
+        }
+    }
+
+    private Accusi() {}
+
+    /**
+     * Calcola i punti degli accusi presenti in una mano.
+     *
+     * @param mano La maschera delle carte in mano.
+     * @return I punti degli accusi in terzi.
+     */
+    public static int puntiTerzi(long mano) {
+        int punti = 0;
+        for (int seme = 0; seme < 4; seme++) {
+            if ((mano & NAPOLETANA[seme]) == NAPOLETANA[seme]) {
+                punti += 9;
+            }
+        }
+        for (int valore = 0; valore < 3; valore++) {
+            int uguali = Long.bitCount(mano & BUONGIOCO[valore]);
+            if (uguali == 3) {
+                punti += 9;
+            } else if (uguali == 4) {
+                punti += 12;
+            }
+        }
+        return punti;
+    }
+
+    /**
+     * Descrive gli accusi presenti in una mano, per log e messaggi.
+     *
+     * @param mano La maschera delle carte in mano.
+     * @return La descrizione degli accusi, oppure una stringa vuota se non ce ne sono.
+     */
+    public static String descrivi(long mano) {
+        String[] valori = {"Assi", "Due", "Tre"};
+        StringBuilder sb = new StringBuilder();
+        for (int seme = 0; seme < 4; seme++) {
+            if ((mano & NAPOLETANA[seme]) == NAPOLETANA[seme]) {
+                sb.append(sb.length() > 0 ? ", " : "").append("Napoletana di ").append(Seme.daIndice(seme));
+            }
+        }
+        for (int valore = 0; valore < 3; valore++) {
+            int uguali = Long.bitCount(mano & BUONGIOCO[valore]);
+            if (uguali >= 3) {
+                sb.append(sb.length() > 0 ? ", " : "").append("Buongioco di ").append(uguali).append(' ').append(valori[valore]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache condivisa dei risultati di ricerca, indicizzata per {@link ContestoDecisione}.
+ * <p>
+ * Vi scrivono i bot che ponderano posizioni future (vedi {@link StrategiaBot#pondera}) e vi leggono
+ * i bot quando la posizione viene davvero raggiunta: ogni risultato è immutabile, quindi lettori
+ * e scrittori su thread diversi non hanno bisogno di altra sincronizzazione.
+ * La cache tiene al più un numero fissato di posizioni; superato il limite viene svuotata.
+ */
+public class CacheRicerca {
+    private final ConcurrentHashMap<ContestoDecisione, RisultatoRicerca> risultati = new ConcurrentHashMap<>();
+    private final int maxPosizioni;
+    private final LongAdder trovati = new LongAdder();
+    private final LongAdder mancati = new LongAdder();
+
+    /**
+     * Costruisce una cache vuota.
+     *
+     * @param maxPosizioni Il numero massimo di posizioni conservate.
+     */
+    public CacheRicerca(int maxPosizioni) {
+        this.maxPosizioni = maxPosizioni;
+    }
+
+    /**
+     * @param contesto Il contesto di decisione.
+     * @return Il risultato registrato per quel contesto, oppure null.
+     */
+    public RisultatoRicerca get(ContestoDecisione contesto) {
+        RisultatoRicerca risultato = risultati.get(contesto);
+        (risultato != null ? trovati : mancati).increment();
+        return risultato;
+    }
+
+    /**
+     * Registra il risultato di una ricerca, sostituendo quello precedente per lo stesso contesto.
+     *
+     * @param contesto  Il contesto di decisione.
+     * @param risultato Il risultato.
+     */
+    public void put(ContestoDecisione contesto, RisultatoRicerca risultato) {
+        if (risultati.size() >= maxPosizioni && !risultati.containsKey(contesto)) {
+            risultati.clear();
+        }
+        risultati.put(contesto, risultato);
+    }
+
+    /**
+     * Somma il risultato di una ricerca a quello già registrato per lo stesso contesto, in modo atomico:
+     * più thread possono così cercare in parallelo sulla stessa posizione.
+     *
+     * @param contesto  Il contesto di decisione.
+     * @param risultato Il risultato da sommare.
+     * @return Il risultato complessivo registrato.
+     */
+    public RisultatoRicerca unisci(ContestoDecisione contesto, RisultatoRicerca risultato) {
+        if (risultati.size() >= maxPosizioni && !risultati.containsKey(contesto)) {
+            risultati.clear();
+        }
+        return risultati.merge(contesto, risultato, RisultatoRicerca::unisci);
+    }
+
+    /**
+     * Svuota la cache.
+     */
+    public void svuota() {
+        risultati.clear();
+    }
+
+    /**
+     * @return Il numero di ricerche trovate in cache.
+     */
+    public long getTrovati() {
+        return trovati.sum();
+    }
+
+    /**
+     * @return Il numero di ricerche non trovate in cache.
+     */
+    public long getMancati() {
+        return mancati.sum();
+    }
+}
@@ -0,0 +1,442 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Campionatore di determinizzazioni: distribuisce le carte ignote tra più destinatari
+ * (gli avversari ed eventualmente un "resto" di carte non in gioco) in modo uniforme
+ * tra tutte le distribuzioni compatibili con le dimensioni delle mani e con i semi
+ * di cui ciascun destinatario è noto essere privo.
+ * <p>
+ * {@link #prepara} conta, seme per seme, le distribuzioni compatibili con una programmazione
+ * dinamica sulle capacità residue dei destinatari; {@link #campiona} sceglie quindi quante carte
+ * di ogni seme assegnare a ciascuno in proporzione al numero di completamenti, senza rifiuti.
+ * Senza vincoli sui semi si riduce a un Fisher-Yates parziale.
+ * <p>
+ * Dopo la preparazione, e dopo i primi campioni che popolano le tabelle cumulative di ogni stato,
+ * il campionamento lavora solo su array primitivi e non alloca memoria. Non è thread-safe:
+ * ogni thread deve usare la propria istanza.
+ */
+public class CampionatoreMani {
+    private static final int NUM_SEMI = 4;
+    private static final int MAX_PER_SEME = 10;
+    private static final double[] FATTORIALE = new double[Regole.CARTE_MAZZO + 1];
+
+    static {
+        FATTORIALE[0] = 1.0;
+        for (int i = 1; i < FATTORIALE.length; i++) {
+            FATTORIALE[i] = FATTORIALE[i - 1] * i;
+        }
+    }
+
+    private final int maxDestinatari;
+    private final int[][] cartePerSeme = new int[NUM_SEMI][MAX_PER_SEME];
+    private final int[] numPerSeme = new int[NUM_SEMI];
+    private final int[] carteRimanentiDaSeme = new int[NUM_SEMI + 1];
+    private final int[] dimensioni;
+    private final int[] semiMancanti;
+    private final int[] base;
+    private final int[] capacita;
+    private final int[] divisione;
+    private final int[] tutteIgnote = new int[Regole.CARTE_MAZZO];
+
+    private int numDestinatari;
+    private int numIgnote;
+    private boolean vincolato;
+    private int numStati;
+    private int statoIniziale;
+    private double[][] completamenti;
+    private double[][][] cumulate;
+    private int[][][] codiciDivisione;
+
+    /**
+     * Costruisce un campionatore per al più {@code maxDestinatari} destinatari.
+     *
+     * @param maxDestinatari Il numero massimo di destinatari (avversari più l'eventuale resto).
+     */
+    public CampionatoreMani(int maxDestinatari) {
+        this.maxDestinatari = maxDestinatari;
+        this.dimensioni = new int[maxDestinatari];
+        this.semiMancanti = new int[maxDestinatari];
+        this.base = new int[maxDestinatari];
+        this.capacita = new int[maxDestinatari];
+        this.divisione = new int[maxDestinatari];
+    }
+
+    /**
+     * Prepara il campionatore per le carte ignote al giocatore di un contesto: un destinatario per ogni
+     * avversario, con tante carte quante ne ha in mano meno quelle note a tutti, e un ultimo destinatario
+     * per le carte rimanenti (il mazzo da pescare o le carte fuori gioco), se ce ne sono.
+     *
+     * @param contesto          Il contesto del giocatore.
+     * @param postoDestinatario Array di almeno {@code contesto.getNumGiocatori()} elementi in cui scrivere
+     *                          il posto di ogni destinatario, -1 per le carte rimanenti.
+     * @return Il numero di destinatari.
+     */
+    public int preparaPer(ContestoDecisione contesto, int[] postoDestinatario) {
+        int numGiocatori = contesto.getNumGiocatori();
+        int[] dimensioniPer = new int[numGiocatori];
+        int[] semiMancantiPer = new int[numGiocatori];
+        int numDestinatariPer = 0;
+        int daDistribuire = 0;
+        for (int p = 0; p < numGiocatori; p++) {
+            if (p != contesto.getPosto()) {
+                postoDestinatario[numDestinatariPer] = p;
+                // Le carte note (pescate scoperte) non vanno distribuite
+                dimensioniPer[numDestinatariPer] = contesto.getCarteInMano(p) - Long.bitCount(contesto.getCarteNote(p));
+                semiMancantiPer[numDestinatariPer] = contesto.getSemiMancanti(p);
+                daDistribuire += dimensioniPer[numDestinatariPer++];
+            }
+        }
+        long ignote = contesto.getCarteIgnote();
+        int resto = Long.bitCount(ignote) - daDistribuire;
+        if (resto > 0) {
+            postoDestinatario[numDestinatariPer] = -1;
+            dimensioniPer[numDestinatariPer] = resto;
+            semiMancantiPer[numDestinatariPer++] = 0;
+        }
+        prepara(ignote, numDestinatariPer, dimensioniPer, semiMancantiPer);
+        return numDestinatariPer;
+    }
+
+    /**
+     * Prepara il campionatore per una posizione.
+     * La somma delle dimensioni deve coincidere con il numero di carte ignote.
+     *
+     * @param ignote         La maschera delle carte da distribuire.
+     * @param numDestinatari Il numero di destinatari.
+     * @param dimensioni     Il numero di carte da assegnare a ciascun destinatario.
+     * @param semiMancanti   Per ciascun destinatario, la maschera (bit 0-3) dei semi di cui è privo.
+     * @return {@code true} se esiste almeno una distribuzione compatibile; altrimenti i vincoli
+     *         sui semi vengono ignorati e il campionamento è uniforme sulle sole dimensioni.
+     * @throws IllegalArgumentException se le dimensioni non sono coerenti con le carte ignote.
+     */
+    public boolean prepara(long ignote, int numDestinatari, int[] dimensioni, int[] semiMancanti) {
+        if (numDestinatari < 1 || numDestinatari > maxDestinatari) {
+            throw new IllegalArgumentException("Numero di destinatari non valido: " + numDestinatari);
+        }
+        int totale = 0;
+        for (int r = 0; r < numDestinatari; r++) {
+            totale += dimensioni[r];
+        }
+        if (totale != Long.bitCount(ignote)) {
+            throw new IllegalArgumentException("Le dimensioni (" + totale + ") non coincidono con le carte ignote ("
+                    + Long.bitCount(ignote) + ")");
+        }
+
+        this.numDestinatari = numDestinatari;
+        this.numIgnote = 0;
+        for (int s = 0; s < NUM_SEMI; s++) {
+            numPerSeme[s] = 0;
+        }
+        for (long m = ignote; m != 0; m &= m - 1) {
+            int carta = Long.numberOfTrailingZeros(m);
+            int seme = Regole.seme(carta);
+            cartePerSeme[seme][numPerSeme[seme]++] = carta;
+            tutteIgnote[numIgnote++] = carta;
+        }
+        carteRimanentiDaSeme[NUM_SEMI] = 0;
+        for (int s = NUM_SEMI - 1; s >= 0; s--) {
+            carteRimanentiDaSeme[s] = carteRimanentiDaSeme[s + 1] + numPerSeme[s];
+        }
+
+        vincolato = false;
+        for (int r = 0; r < numDestinatari; r++) {
+            this.dimensioni[r] = dimensioni[r];
+            this.semiMancanti[r] = semiMancanti[r] & 0xF;
+            for (int s = 0; s < NUM_SEMI; s++) {
+                if ((this.semiMancanti[r] & (1 << s)) != 0 && numPerSeme[s] > 0) {
+                    vincolato = true;
+                }
+            }
+        }
+        if (!vincolato) {
+            return true;
+        }
+
+        // Lo stato è il vettore delle capacità residue dei primi numDestinatari - 1 destinatari,
+        // codificato in base mista; la capacità dell'ultimo è implicita.
+        numStati = 1;
+        statoIniziale = 0;
+        for (int r = 0; r < numDestinatari - 1; r++) {
+            base[r] = numStati;
+            statoIniziale += dimensioni[r] * numStati;
+            numStati *= dimensioni[r] + 1;
+        }
+        completamenti = new double[NUM_SEMI + 1][numStati];
+        cumulate = new double[NUM_SEMI][numStati][];
+        codiciDivisione = new int[NUM_SEMI][numStati][];
+        completamenti[NUM_SEMI][0] = 1.0;
+        for (int s = NUM_SEMI - 1; s >= 0; s--) {
+            for (int stato = 0; stato < numStati; stato++) {
+                completamenti[s][stato] = contaDivisioni(s, stato, null, null);
+            }
+        }
+        if (completamenti[0][statoIniziale] == 0.0) {
+            vincolato = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Estrae una distribuzione uniforme tra quelle compatibili con la preparazione.
+     *
+     * @param random Il generatore casuale.
+     * @param mani   Array di almeno {@code numDestinatari} elementi in cui scrivere le maschere
+     *               delle carte assegnate a ciascun destinatario.
+     */
+    public void campiona(SplittableRandom random, long[] mani) {
+        if (!vincolato) {
+            int prossima = 0;
+            for (int r = 0; r < numDestinatari; r++) {
+                long mano = 0L;
+                for (int k = dimensioni[r]; k > 0; k--) {
+                    int j = prossima + random.nextInt(numIgnote - prossima);
+                    int carta = tutteIgnote[j];
+                    tutteIgnote[j] = tutteIgnote[prossima];
+                    tutteIgnote[prossima++] = carta;
+                    mano |= 1L << carta;
+                }
+                mani[r] = mano;
+            }
+            return;
+        }
+
+        for (int r = 0; r < numDestinatari; r++) {
+            mani[r] = 0L;
+        }
+        int stato = statoIniziale;
+        for (int s = 0; s < NUM_SEMI; s++) {
+            double[] cumulata = cumulate[s][stato];
+            if (cumulata == null) {
+                costruisciCumulata(s, stato);
+                cumulata = cumulate[s][stato];
+            }
+            int scelta = cerca(cumulata, random.nextDouble() * cumulata[cumulata.length - 1]);
+            int codice = codiciDivisione[s][stato][scelta];
+
+            // Decodifica la divisione e assegna le carte del seme dopo averle mescolate
+            int[] carte = cartePerSeme[s];
+            int n = numPerSeme[s];
+            int prossima = 0;
+            int assegnate = 0;
+            for (int r = 0; r < numDestinatari; r++) {
+                int quante = r < numDestinatari - 1 ? codice % (MAX_PER_SEME + 1) : n - assegnate;
+                codice /= MAX_PER_SEME + 1;
+                assegnate += quante;
+                if (r < numDestinatari - 1) {
+                    stato -= quante * base[r];
+                }
+                long mano = 0L;
+                for (int k = quante; k > 0; k--) {
+                    int j = prossima + random.nextInt(n - prossima);
+                    int carta = carte[j];
+                    carte[j] = carte[prossima];
+                    carte[prossima++] = carta;
+                    mano |= 1L << carta;
+                }
+                mani[r] |= mano;
+            }
+        }
+    }
+
+    /**
+     * Ricerca binaria del primo elemento della cumulata maggiore del valore estratto.
+     */
+    private static int cerca(double[] cumulata, double valore) {
+        int basso = 0;
+        int alto = cumulata.length - 1;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (cumulata[medio] > valore) {
+                alto = medio;
+            } else {
+                basso = medio + 1;
+            }
+        }
+        return basso;
+    }
+
+    /**
+     * Costruisce, alla prima visita, la distribuzione cumulata delle divisioni del seme {@code s}
+     * a partire dallo stato indicato.
+     */
+    private void costruisciCumulata(int s, int stato) {
+        int quante = (int) contaDivisioni(s, stato, null, new int[1]);
+        double[] cumulata = new double[quante];
+        int[] codici = new int[quante];
+        contaDivisioni(s, stato, cumulata, codici);
+        cumulate[s][stato] = cumulata;
+        codiciDivisione[s][stato] = codici;
+    }
+
+    /**
+     * Enumera le divisioni ammesse delle carte del seme {@code s} tra i destinatari, dato lo stato.
+     * Senza array restituisce il numero pesato di completamenti; con {@code codici} di un solo
+     * elemento restituisce il numero di divisioni con peso non nullo; con entrambi gli array
+     * li riempie con pesi cumulati e codici delle divisioni.
+     */
+    private double contaDivisioni(int s, int stato, double[] cumulata, int[] codici) {
+        int residuo = stato;
+        int sommaCapacita = 0;
+        for (int r = 0; r < numDestinatari - 1; r++) {
+            capacita[r] = residuo % (dimensioni[r] + 1);
+            residuo /= dimensioni[r] + 1;
+            sommaCapacita += capacita[r];
+        }
+        int capacitaUltimo = carteRimanentiDaSeme[s] - sommaCapacita;
+        if (capacitaUltimo < 0 || capacitaUltimo > dimensioni[numDestinatari - 1]) {
+            return 0.0;
+        }
+        capacita[numDestinatari - 1] = capacitaUltimo;
+        double[] totale = new double[1];
+        int[] conteggio = new int[1];
+        enumera(s, 0, numPerSeme[s], stato, 0, 1, cumulata, codici, totale, conteggio);
+        if (cumulata == null && codici != null) {
+            return conteggio[0];
+        }
+        return totale[0];
+    }
+
+    private void enumera(int s, int r, int rimaste, int stato, int codice, int moltiplicatore,
+                         double[] cumulata, int[] codici, double[] totale, int[] conteggio) {
+        boolean privo = (semiMancanti[r] & (1 << s)) != 0;
+        if (r == numDestinatari - 1) {
+            if (rimaste > capacita[r] || (privo && rimaste > 0)) {
+                return;
+            }
+            divisione[r] = rimaste;
+            double peso = FATTORIALE[numPerSeme[s]];
+            for (int i = 0; i <= r; i++) {
+                peso /= FATTORIALE[divisione[i]];
+            }
+            peso *= completamenti[s + 1][stato];
+            if (peso == 0.0) {
+                return;
+            }
+            totale[0] += peso;
+            if (cumulata != null) {
+                cumulata[conteggio[0]] = totale[0];
+                codici[conteggio[0]] = codice;
+            }
+            conteggio[0]++;
+            return;
+        }
+        int massimo = privo ? 0 : Math.min(rimaste, capacita[r]);
+        for (int n = 0; n <= massimo; n++) {
+            divisione[r] = n;
+            enumera(s, r + 1, rimaste - n, stato - n * base[r], codice + n * moltiplicatore,
+                    moltiplicatore * (MAX_PER_SEME + 1), cumulata, codici, totale, conteggio);
+        }
+    }
+
+    /**
+     * Verifica che il campionamento sia uniforme su una distribuzione vincolata piccola: enumera tutte
+     * le distribuzioni compatibili, ne estrae {@code campioni} con {@link #campiona} e confronta le frequenze
+     * con un test del chi quadro (soglia all'1 per mille). Misura poi il tempo di {@link #campiona} su una
+     * posizione a 4 giocatori con semi mancanti.
+     * <p>
+     * Uso: {@code java model.CampionatoreMani [campioni]}
+     *
+     * @param args Argomento opzionale: il numero di campioni per il test (predefinito 200000).
+     */
+    public static void main(String[] args) {
+        int campioni = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        SplittableRandom random = new SplittableRandom(7);
+
+        // Tre denari, tre coppe, due bastoni e una spada tra tre destinatari da tre carte:
+        // il primo è privo di denari, il secondo di bastoni (216 distribuzioni compatibili)
+        long ignote = 0b111L | 0b111L << 10 | 0b11L << 20 | 0b1L << 30;
+        int[] dimensioni = {3, 3, 3};
+        int[] semiMancanti = {0b0001, 0b0100, 0};
+        int[] carte = new int[Long.bitCount(ignote)];
+        int n = 0;
+        for (long m = ignote; m != 0; m &= m - 1) {
+            carte[n++] = Long.numberOfTrailingZeros(m);
+        }
+        Map<Integer, Integer> indici = new HashMap<>();
+        enumeraDistribuzioni(carte, 0, 0, new int[dimensioni.length], dimensioni, semiMancanti, indici);
+        int numDistribuzioni = indici.size();
+
+        CampionatoreMani campionatore = new CampionatoreMani(dimensioni.length);
+        if (!campionatore.prepara(ignote, dimensioni.length, dimensioni, semiMancanti)) {
+            throw new IllegalStateException("Distribuzione compatibile considerata impossibile");
+        }
+        long[] mani = new long[dimensioni.length];
+        long[] frequenze = new long[numDistribuzioni];
+        for (int i = 0; i < campioni; i++) {
+            campionatore.campiona(random, mani);
+            int codice = 0;
+            for (int c = 0; c < carte.length; c++) {
+                int r = 0;
+                while (r < mani.length && (mani[r] & (1L << carte[c])) == 0) {
+                    r++;
+                }
+                codice |= r << (2 * c);
+            }
+            Integer indice = indici.get(codice);
+            if (indice == null) {
+                throw new IllegalStateException("Distribuzione non compatibile: " + Long.toHexString(mani[0]) + " "
+                        + Long.toHexString(mani[1]) + " " + Long.toHexString(mani[2]));
+            }
+            frequenze[indice]++;
+        }
+        double attesa = (double) campioni / numDistribuzioni;
+        double chiQuadro = 0.0;
+        for (long frequenza : frequenze) {
+            chiQuadro += (frequenza - attesa) * (frequenza - attesa) / attesa;
+        }
+        // Quantile 0.999 del chi quadro con l'approssimazione di Wilson-Hilferty
+        int gradi = numDistribuzioni - 1;
+        double h = 2.0 / (9.0 * gradi);
+        double soglia = gradi * Math.pow(1.0 - h + 3.0902 * Math.sqrt(h), 3);
+        if (chiQuadro > soglia) {
+            throw new IllegalStateException("Campionamento non uniforme: chi quadro " + chiQuadro + " con "
+                    + gradi + " gradi di libertà (soglia " + soglia + ")");
+        }
+
+        // Tempo di campiona: 4 giocatori a metà mano, 18 carte ignote tra tre avversari con semi mancanti
+        CampionatoreMani quattro = new CampionatoreMani(3);
+        long ignoteQuattro = 0L;
+        for (int c = 0; c < 18; c++) {
+            ignoteQuattro |= 1L << (c / 5 * 10 + c % 5);
+        }
+        quattro.prepara(ignoteQuattro, 3, new int[]{6, 6, 6}, new int[]{0b0001, 0b1000, 0});
+        int ripetizioni = 1_000_000;
+        for (int i = 0; i < ripetizioni / 10; i++) {
+            quattro.campiona(random, mani);
+        }
+        long inizio = System.nanoTime();
+        for (int i = 0; i < ripetizioni; i++) {
+            quattro.campiona(random, mani);
+        }
+        double nanosACampione = (double) (System.nanoTime() - inizio) / ripetizioni;
+
+        System.out.printf("CampionatoreMani verificato: %d distribuzioni, chi quadro %.1f con %d gradi di libertà"
+                + " (soglia %.1f); campiona in %.0f ns con semi mancanti a 4 giocatori%n",
+                numDistribuzioni, chiQuadro, gradi, soglia, nanosACampione);
+    }
+
+    /**
+     * Enumera le distribuzioni delle carte indicate compatibili con dimensioni e semi mancanti,
+     * codificando con due bit per carta il destinatario che la riceve.
+     */
+    private static void enumeraDistribuzioni(int[] carte, int c, int codice, int[] assegnate, int[] dimensioni,
+                                             int[] semiMancanti, Map<Integer, Integer> indici) {
+        if (c == carte.length) {
+            indici.put(codice, indici.size());
+            return;
+        }
+        int seme = Regole.seme(carte[c]);
+        for (int r = 0; r < dimensioni.length; r++) {
+            if (assegnate[r] < dimensioni[r] && (semiMancanti[r] & (1 << seme)) == 0) {
+                assegnate[r]++;
+                enumeraDistribuzioni(carte, c + 1, codice | r << (2 * c), assegnate, dimensioni, semiMancanti, indici);
+                assegnate[r]--;
+            }
+        }
+    }
+}
@@ -3,29 +3,27 @@ package model;
 /**
  * Rappresenta una carta da gioco con valore, seme, forza e immagine associata.
  * Include metodi per ottenere i punti secondo la variante Tressette.
+ * Seme e valore sono enum ({@link Seme} e {@link Rank}) i cui ordinali indicizzano
+ * le tabelle di forza, punti e immagini: nessuna proprietà della carta passa per stringhe.
  */
 public class Carta {
-    private int valore;
-    private String seme;
-    private int forza;
-    private String immagine;
+    private static final String[] IMMAGINI = new String[Regole.CARTE_MAZZO];
+
+    private final Seme seme;
+    private final Rank rank;
+    private final int indice;
 
     /**
-     * Costruisce una carta con i parametri specificati.
-     * L'immagine viene impostata automaticamente in base al valore e al seme.
+     * Costruisce una carta dato il seme e il valore.
+     * Forza, punti e immagine si ricavano dalle tabelle precalcolate.
      *
-     * @param valore  Il valore numerico della carta (es. 1, 2, ..., 10).
-     * @param seme    Il seme della carta (es. "denari", "coppe", "spade", "bastoni").
-     * @param forza   La forza della carta usata per confronti di presa.
-     * @param immagine (Non usato direttamente, l'immagine viene costruita internamente).
+     * @param seme Il seme della carta.
+     * @param rank Il valore della carta.
      */
-    public Carta(int valore, String seme, int forza, String immagine) {
-        this.valore = valore;
+    public Carta(Seme seme, Rank rank) {
         this.seme = seme;
-        this.forza = forza;
-        // Path originale dell'immagine costruito con valore e seme (prima lettera maiuscola)
-        char semeChar = Character.toUpperCase(seme.charAt(0));
-        this.immagine = "/assets/carte/" + valore + semeChar + ".jpeg";
+        this.rank = rank;
+        this.indice = seme.ordinal() * 10 + rank.ordinal();
     }
 
     /**
@@ -34,7 +32,16 @@ public class Carta {
      * @return Il valore della carta.
      */
     public int getValore() {
-        return valore;
+        return rank.getValore();
+    }
+
+    /**
+     * Restituisce il valore della carta come enum.
+     *
+     * @return Il valore della carta.
+     */
+    public Rank getRank() {
+        return rank;
     }
 
     /**
@@ -42,7 +49,7 @@ public class Carta {
      *
      * @return Il seme della carta.
      */
-    public String getSeme() {
+    public Seme getSeme() {
         return seme;
     }
 
@@ -52,7 +59,17 @@ public class Carta {
      * @return La forza della carta.
      */
     public int getForza() {
-        return forza;
+        return rank.getForza();
+    }
+
+    /**
+     * Restituisce l'indice compatto della carta (0-39), pari a {@code seme * 10 + valore - 1}.
+     * Usato per rappresentare insiemi di carte come maschere di bit.
+     *
+     * @return L'indice della carta.
+     */
+    public int getIndice() {
+        return indice;
     }
 
     /**
@@ -61,6 +78,13 @@ public class Carta {
      * @return Il path dell'immagine della carta.
      */
     public String getImmagine() {
+        // Path originale dell'immagine costruito con valore e iniziale del seme, calcolato alla prima richiesta:
+        // le partite senza interfaccia non lo chiedono mai
+        String immagine = IMMAGINI[indice];
+        if (immagine == null) {
+            immagine = "/assets/carte/" + rank.getValore() + seme.getIniziale() + ".jpeg";
+            IMMAGINI[indice] = immagine;
+        }
         return immagine;
     }
 
@@ -71,17 +95,7 @@ public class Carta {
      * @return I punti della carta nel gioco Tressette.
      */
     public double getPuntiTressette() {
-        switch (valore) {
-            case 1:
-            case 3:
-                return 1.0;
-            case 8:
-            case 9:
-            case 10:
-                return 1.0 / 3.0;
-            default:
-                return 0.0;
-        }
+        return rank.getPuntiTerzi() / 3.0;
     }
 
     /**
@@ -96,20 +110,16 @@ public class Carta {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Carta altra = (Carta) obj;
-        return valore == altra.valore && seme.equals(altra.seme);
+        return indice == altra.indice;
     }
 
     /**
-     * Calcola l'hash code della carta basato su valore e seme.
+     * Calcola l'hash code della carta: l'indice, unico per valore e seme.
      *
      * @return L'hash code della carta.
      */
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + valore;
-        result = prime * result + ((seme == null) ? 0 : seme.hashCode());
-        return result;
+        return indice;
     }
 }
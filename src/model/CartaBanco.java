@@ -1,24 +1,34 @@
 package model;
 
 /**
- * Estende la classe {@link Carta} aggiungendo l'informazione del nome del giocatore che ha giocato la carta.
- * Rappresenta una carta sul banco di gioco con il riferimento al tiratore.
+ * Estende la classe {@link Carta} aggiungendo l'informazione del giocatore che ha giocato la carta.
+ * Rappresenta una carta sul banco di gioco con il riferimento al tiratore: il nome, per la vista,
+ * e il posto al tavolo, che identifica il giocatore anche se più giocatori hanno lo stesso nome.
  */
 public class CartaBanco extends Carta {
     private String NomeTiratore;
+    private final int posto;
 
     /**
      * Costruisce una carta sul banco specificando il nome del tiratore e le caratteristiche della carta.
      *
      * @param NomeTiratore Il nome del giocatore che ha giocato la carta.
-     * @param valore       Il valore numerico della carta.
-     * @param seme         Il seme della carta.
-     * @param forza        La forza della carta, usata per determinare la presa.
-     * @param immagine     Il percorso dell'immagine associata alla carta (non usato direttamente).
+     * @param posto        Il posto al tavolo del giocatore che ha giocato la carta.
+     * @param carta        La carta giocata.
      */
-    public CartaBanco(String NomeTiratore, int valore, String seme, int forza, String immagine) {
-        super(valore, seme, forza, immagine);
+    public CartaBanco(String NomeTiratore, int posto, Carta carta) {
+        super(carta.getSeme(), carta.getRank());
         this.NomeTiratore = NomeTiratore;
+        this.posto = posto;
+    }
+
+    /**
+     * Restituisce il posto al tavolo del giocatore che ha giocato questa carta.
+     *
+     * @return L'indice del tiratore nella lista dei giocatori.
+     */
+    public int getPosto() {
+        return posto;
     }
 
     /**
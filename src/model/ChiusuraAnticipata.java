@@ -0,0 +1,101 @@
+package model;
+
+/**
+ * Quando smettere di giocare una mano il cui esito è ormai deciso.
+ * <p>
+ * Le carte hanno in tutto {@link Regole#PUNTI_TOTALI_TERZI} terzi di punto e non ci sono punti per l'ultima
+ * presa: basta conoscere i punti ancora in gioco per sapere se le prese rimanenti possono cambiare qualcosa.
+ * Chi simula o gioca in serie sceglie quanto dell'esito deve restare esatto.
+ */
+public enum ChiusuraAnticipata {
+    /** Gioca sempre tutte le prese. */
+    MAI,
+
+    /** Si ferma quando non restano punti in gioco: punteggio e vincitore sono quelli della mano completa. */
+    PUNTI,
+
+    /**
+     * Si ferma quando nessuna sequenza delle prese rimanenti può cambiare il vincitore:
+     * resta esatto il vincitore, non il punteggio.
+     */
+    VINCITORE;
+
+    /**
+     * Indica se il vincitore della mano è deciso: una squadra ha più punti di ogni altra anche se
+     * questa facesse tutti i punti rimasti. Con {@link #PUNTI} è deciso solo quando non restano punti.
+     *
+     * @param puntiTerzi     I punti in terzi di ogni squadra.
+     * @param numSquadre     Il numero di squadre.
+     * @param rimanentiTerzi I punti in terzi ancora in gioco.
+     * @return true se la mano si può chiudere.
+     */
+    public boolean isDecisa(int[] puntiTerzi, int numSquadre, int rimanentiTerzi) {
+        if (this == MAI) {
+            return false;
+        }
+        if (rimanentiTerzi == 0) {
+            return true;
+        }
+        if (this == PUNTI) {
+            return false;
+        }
+        int prima = 0;
+        for (int s = 1; s < numSquadre; s++) {
+            if (puntiTerzi[s] > puntiTerzi[prima]) {
+                prima = s;
+            }
+        }
+        for (int s = 0; s < numSquadre; s++) {
+            if (s != prima && puntiTerzi[s] + rimanentiTerzi >= puntiTerzi[prima]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica se l'esito della mano per una squadra è deciso: vince comunque, oppure un'altra squadra
+     * la supera anche se lei facesse tutti i punti rimasti. Con {@link #PUNTI} è deciso solo quando
+     * non restano punti.
+     *
+     * @param puntiTerzi     I punti in terzi di ogni squadra.
+     * @param numSquadre     Il numero di squadre.
+     * @param squadra        La squadra di cui valutare l'esito.
+     * @param rimanentiTerzi I punti in terzi ancora in gioco.
+     * @return true se per quella squadra la mano si può chiudere.
+     */
+    public boolean isDecisaPer(int[] puntiTerzi, int numSquadre, int squadra, int rimanentiTerzi) {
+        if (this != VINCITORE) {
+            return this == PUNTI && rimanentiTerzi == 0;
+        }
+        boolean vinta = true;
+        for (int s = 0; s < numSquadre; s++) {
+            if (s == squadra) {
+                continue;
+            }
+            if (puntiTerzi[s] > puntiTerzi[squadra] + rimanentiTerzi) {
+                return true;
+            }
+            if (puntiTerzi[s] + rimanentiTerzi >= puntiTerzi[squadra]) {
+                vinta = false;
+            }
+        }
+        return vinta;
+    }
+
+    /**
+     * Restituisce la modalità indicata per nome, come da riga di comando.
+     *
+     * @param nome Il nome: "mai", "punti" o "vincitore".
+     * @return La modalità.
+     * @throws IllegalArgumentException se il nome non è noto.
+     */
+    public static ChiusuraAnticipata daNome(String nome) {
+        for (ChiusuraAnticipata chiusura : values()) {
+            if (chiusura.name().equalsIgnoreCase(nome)) {
+                return chiusura;
+            }
+        }
+        throw new IllegalArgumentException("Chiusura anticipata sconosciuta: " + nome);
+    }
+}
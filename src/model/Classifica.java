@@ -0,0 +1,281 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifica di forza dei concorrenti (strategie con le loro impostazioni), con punteggio Elo
+ * e Glicko.
+ * <p>
+ * Ogni risultato aggiorna subito l'Elo ({@link #K_ELO} punti per partita), che dipende quindi dall'ordine
+ * delle partite; il Glicko si aggiorna invece a fine periodo ({@link #chiudiPeriodo()}) con tutti i risultati
+ * del periodo insieme, e accompagna il punteggio con una deviazione (RD) che misura quanto è affidabile:
+ * scende con le partite giocate e risale nei periodi in cui il concorrente non gioca.
+ * <p>
+ * La classifica si salva in una fotografia binaria (vedi {@link #salva} e {@link #carica}),
+ * così i punteggi proseguono da un'esecuzione all'altra. Non è thread-safe.
+ */
+public class Classifica {
+    public static final String PERCORSO_PREDEFINITO = "tressette-classifica.bin";
+
+    /** Punteggio e deviazione di un concorrente nuovo. */
+    public static final double PUNTEGGIO_INIZIALE = 1500;
+    public static final double RD_INIZIALE = 350;
+
+    /** Punti Elo in palio in ogni partita. */
+    public static final double K_ELO = 16;
+
+    /** Crescita della deviazione Glicko a ogni periodo: torna a quella iniziale in circa cento periodi senza partite. */
+    private static final double C_GLICKO = 34.6;
+    private static final double Q = Math.log(10) / 400;
+
+    private static final int MAGIC = 0x4A33474C; // "J3GL"
+    private static final int VERSIONE = 1;
+
+    /**
+     * Punteggi di un concorrente.
+     */
+    public static final class Valutazione {
+        private final String nome;
+        private double elo = PUNTEGGIO_INIZIALE;
+        private double glicko = PUNTEGGIO_INIZIALE;
+        private double rd = RD_INIZIALE;
+        private int partite;
+        private double punti;
+
+        // Somme del periodo corrente per l'aggiornamento Glicko
+        private double sommaVarianza;
+        private double sommaScarti;
+
+        private Valutazione(String nome) {
+            this.nome = nome;
+        }
+
+        /**
+         * @return Il nome del concorrente.
+         */
+        public String getNome() {
+            return nome;
+        }
+
+        /**
+         * @return Il punteggio Elo.
+         */
+        public double getElo() {
+            return elo;
+        }
+
+        /**
+         * @return Il punteggio Glicko.
+         */
+        public double getGlicko() {
+            return glicko;
+        }
+
+        /**
+         * @return La deviazione del punteggio Glicko: il punteggio vero è entro due deviazioni con il 95% di probabilità.
+         */
+        public double getRd() {
+            return rd;
+        }
+
+        /**
+         * @return Il numero di partite giocate.
+         */
+        public int getPartite() {
+            return partite;
+        }
+
+        /**
+         * @return La frazione di punti ottenuti (1 a vittoria, mezzo a pareggio) sulle partite giocate.
+         */
+        public double getPercentuale() {
+            return partite == 0 ? 0 : punti / partite;
+        }
+    }
+
+    private final Map<String, Valutazione> valutazioni = new LinkedHashMap<>();
+    private int periodi;
+
+    /**
+     * Restituisce la valutazione di un concorrente, creandola se non c'è.
+     *
+     * @param nome Il nome del concorrente.
+     * @return La sua valutazione.
+     */
+    public Valutazione get(String nome) {
+        return valutazioni.computeIfAbsent(nome, Valutazione::new);
+    }
+
+    /**
+     * @return Le valutazioni in ordine di punteggio Glicko decrescente.
+     */
+    public List<Valutazione> getOrdinate() {
+        List<Valutazione> ordinate = new ArrayList<>(valutazioni.values());
+        ordinate.sort(Comparator.comparingDouble(Valutazione::getGlicko).reversed());
+        return ordinate;
+    }
+
+    /**
+     * @return Il numero di periodi chiusi.
+     */
+    public int getPeriodi() {
+        return periodi;
+    }
+
+    /**
+     * Registra il risultato di una partita: aggiorna subito l'Elo e accumula il risultato
+     * per l'aggiornamento Glicko di fine periodo.
+     *
+     * @param nomeA     Il primo concorrente.
+     * @param nomeB     Il secondo concorrente.
+     * @param risultatoA Il risultato del primo: 1 vittoria, 0.5 pareggio, 0 sconfitta.
+     */
+    public void registra(String nomeA, String nomeB, double risultatoA) {
+        Valutazione a = get(nomeA);
+        Valutazione b = get(nomeB);
+
+        double attesoA = 1 / (1 + Math.pow(10, (b.elo - a.elo) / 400));
+        a.elo += K_ELO * (risultatoA - attesoA);
+        b.elo -= K_ELO * (risultatoA - attesoA);
+        a.partite++;
+        b.partite++;
+        a.punti += risultatoA;
+        b.punti += 1 - risultatoA;
+
+        // Il Glicko usa i punteggi di inizio periodo, fermi fino a chiudiPeriodo
+        accumula(a, b, risultatoA);
+        accumula(b, a, 1 - risultatoA);
+    }
+
+    private static void accumula(Valutazione io, Valutazione avversario, double risultato) {
+        double g = g(avversario.rd);
+        double atteso = 1 / (1 + Math.pow(10, -g * (io.glicko - avversario.glicko) / 400));
+        io.sommaVarianza += g * g * atteso * (1 - atteso);
+        io.sommaScarti += g * (risultato - atteso);
+    }
+
+    private static double g(double rd) {
+        return 1 / Math.sqrt(1 + 3 * Q * Q * rd * rd / (Math.PI * Math.PI));
+    }
+
+    /**
+     * Chiude il periodo: aggiorna il Glicko di tutti i concorrenti con i risultati accumulati.
+     * Chi non ha giocato vede solo crescere la deviazione.
+     */
+    public void chiudiPeriodo() {
+        for (Valutazione v : valutazioni.values()) {
+            double rd = Math.min(Math.sqrt(v.rd * v.rd + C_GLICKO * C_GLICKO), RD_INIZIALE);
+            if (v.sommaVarianza > 0) {
+                double inversoD2 = Q * Q * v.sommaVarianza;
+                double denominatore = 1 / (rd * rd) + inversoD2;
+                v.glicko += Q / denominatore * v.sommaScarti;
+                rd = Math.sqrt(1 / denominatore);
+            }
+            v.rd = rd;
+            v.sommaVarianza = 0;
+            v.sommaScarti = 0;
+        }
+        periodi++;
+    }
+
+    /**
+     * Codifica la classifica: intestazione, numero di periodi e di concorrenti, poi per ciascuno
+     * nome, Elo, Glicko, deviazione, partite e punti. I risultati del periodo aperto non vengono salvati.
+     *
+     * @return I byte della fotografia.
+     */
+    public byte[] codifica() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * valutazioni.size() + 16);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSIONE);
+            out.writeInt(periodi);
+            out.writeShort(valutazioni.size());
+            for (Valutazione v : valutazioni.values()) {
+                out.writeUTF(v.nome);
+                out.writeDouble(v.elo);
+                out.writeDouble(v.glicko);
+                out.writeDouble(v.rd);
+                out.writeInt(v.partite);
+                out.writeDouble(v.punti);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // non avviene scrivendo in memoria
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Ricostruisce una classifica dalla sua fotografia binaria.
+     *
+     * @param in Il flusso da cui leggere la fotografia.
+     * @return La classifica letta.
+     * @throws IOException se la fotografia non è valida.
+     */
+    public static Classifica decodifica(InputStream in) throws IOException {
+        DataInputStream dati = new DataInputStream(in);
+        if (dati.readInt() != MAGIC || dati.readUnsignedByte() != VERSIONE) {
+            throw new IOException("Fotografia della classifica non valida");
+        }
+        Classifica classifica = new Classifica();
+        classifica.periodi = dati.readInt();
+        int numConcorrenti = dati.readUnsignedShort();
+        for (int i = 0; i < numConcorrenti; i++) {
+            Valutazione v = classifica.get(dati.readUTF());
+            v.elo = dati.readDouble();
+            v.glicko = dati.readDouble();
+            v.rd = dati.readDouble();
+            v.partite = dati.readInt();
+            v.punti = dati.readDouble();
+        }
+        return classifica;
+    }
+
+    /**
+     * Salva la fotografia della classifica, scrivendola prima accanto al file finale.
+     *
+     * @param file Il file di destinazione.
+     * @throws IOException se la scrittura non riesce.
+     */
+    public void salva(Path file) throws IOException {
+        Path temporaneo = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporaneo, codifica());
+        Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carica una classifica salvata con {@link #salva}.
+     *
+     * @param file Il file della fotografia.
+     * @return La classifica salvata.
+     * @throws IOException se il file non esiste, non è leggibile o non è una fotografia valida.
+     */
+    public static Classifica carica(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return decodifica(in);
+        }
+    }
+
+    /**
+     * Restituisce il percorso della classifica: {@value #PERCORSO_PREDEFINITO} nella cartella corrente,
+     * salvo diversa indicazione con la proprietà di sistema {@code j3sette.classifica}.
+     *
+     * @return Il percorso del file.
+     */
+    public static Path percorsoPredefinito() {
+        return Paths.get(System.getProperty("j3sette.classifica", PERCORSO_PREDEFINITO));
+    }
+}
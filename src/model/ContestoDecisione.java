@@ -0,0 +1,212 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Fotografia immutabile di ciò che un giocatore conosce nel momento in cui deve scegliere la carta.
+ * Le carte sono rappresentate con il loro indice (vedi {@link Carta#getIndice()})
+ * e gli insiemi di carte con maschere di bit (vedi {@link Regole}).
+ * Essendo slegata dal {@link Tavolo}, può essere passata a una {@link Strategia} senza rischi
+ * di modifiche concorrenti. Due contesti uguali descrivono la stessa decisione: il contesto
+ * fa quindi da chiave per i risultati di ricerca in {@link CacheRicerca}.
+ */
+public class ContestoDecisione {
+    private final int posto;
+    private final int numGiocatori;
+    private final long mano;
+    private final int[] banco;
+    private final long carteUscite;
+    private final int[] carteInMano;
+    private final int[] semiMancanti;
+    private final long[] carteNote;
+    private final int carteDaPescare;
+    private final boolean aSquadre;
+
+    /**
+     * Costruisce il contesto di decisione.
+     *
+     * @param posto        L'indice al tavolo del giocatore che deve giocare.
+     * @param numGiocatori Il numero di giocatori al tavolo.
+     * @param mano         La maschera delle carte in mano al giocatore.
+     * @param banco        Gli indici delle carte già sul banco, nell'ordine di gioco.
+     * @param carteUscite  La maschera delle carte già giocate nella partita, banco compreso.
+     * @param carteInMano  Il numero di carte in mano a ciascun giocatore, per posto.
+     * @param semiMancanti Per ciascun posto, la maschera (bit 0-3) dei semi di cui il giocatore
+     *                     ha mostrato di essere privo non rispondendo al seme di uscita.
+     * @param carteNote    Per ciascun posto, la maschera delle carte che tutti sanno essere
+     *                     in mano a quel giocatore (ad esempio perché pescate scoperte).
+     * @param carteDaPescare Il numero di carte ancora da pescare dal mazzo, 0 se non si pesca.
+     * @param aSquadre     true se si gioca a coppie fisse (posti 0 e 2 contro 1 e 3).
+     */
+    public ContestoDecisione(int posto, int numGiocatori, long mano, int[] banco,
+                             long carteUscite, int[] carteInMano, int[] semiMancanti,
+                             long[] carteNote, int carteDaPescare, boolean aSquadre) {
+        this.posto = posto;
+        this.numGiocatori = numGiocatori;
+        this.mano = mano;
+        this.banco = banco.clone();
+        this.carteUscite = carteUscite;
+        this.carteInMano = carteInMano.clone();
+        this.semiMancanti = semiMancanti.clone();
+        this.carteNote = carteNote.clone();
+        this.carteDaPescare = carteDaPescare;
+        this.aSquadre = aSquadre;
+    }
+
+    /**
+     * @return L'indice al tavolo del giocatore che deve giocare.
+     */
+    public int getPosto() {
+        return posto;
+    }
+
+    /**
+     * @return Il numero di giocatori al tavolo.
+     */
+    public int getNumGiocatori() {
+        return numGiocatori;
+    }
+
+    /**
+     * @return La maschera delle carte in mano al giocatore.
+     */
+    public long getMano() {
+        return mano;
+    }
+
+    /**
+     * @return true se si gioca a coppie fisse.
+     */
+    public boolean isASquadre() {
+        return aSquadre;
+    }
+
+    /**
+     * @param posto Il posto di un giocatore.
+     * @return La squadra di quel giocatore; senza coppie ogni giocatore fa squadra da sé.
+     */
+    public int getSquadra(int posto) {
+        return aSquadre ? posto % 2 : posto;
+    }
+
+    /**
+     * @return Il posto del compagno di squadra, oppure -1 se non si gioca a coppie.
+     */
+    public int getCompagno() {
+        return aSquadre ? (posto + 2) % 4 : -1;
+    }
+
+    /**
+     * @return Il numero di carte già sul banco.
+     */
+    public int getCarteSulBanco() {
+        return banco.length;
+    }
+
+    /**
+     * @param i La posizione nella presa (0 = carta di uscita).
+     * @return L'indice della carta giocata in quella posizione.
+     */
+    public int getCartaBanco(int i) {
+        return banco[i];
+    }
+
+    /**
+     * @return Il posto del giocatore che ha aperto la presa corrente.
+     */
+    public int getPrimoDiMano() {
+        return (posto - banco.length + numGiocatori) % numGiocatori;
+    }
+
+    /**
+     * @return La maschera delle carte già giocate nella partita, banco compreso.
+     */
+    public long getCarteUscite() {
+        return carteUscite;
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return Il numero di carte in mano a quel giocatore.
+     */
+    public int getCarteInMano(int posto) {
+        return carteInMano[posto];
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera (bit 0-3) dei semi di cui quel giocatore è noto essere privo.
+     */
+    public int getSemiMancanti(int posto) {
+        return semiMancanti[posto];
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera delle carte note in mano a quel giocatore.
+     */
+    public long getCarteNote(int posto) {
+        return carteNote[posto];
+    }
+
+    /**
+     * @return Il numero di carte ancora da pescare dal mazzo, 0 se non si gioca con la pesca.
+     */
+    public int getCarteDaPescare() {
+        return carteDaPescare;
+    }
+
+    /**
+     * @return La maschera delle carte di cui il giocatore non conosce la posizione:
+     *         né in mano, né già giocate, né note in mano agli avversari.
+     */
+    public long getCarteIgnote() {
+        long ignote = Regole.TUTTE_LE_CARTE & ~mano & ~carteUscite;
+        for (int p = 0; p < numGiocatori; p++) {
+            if (p != posto) {
+                ignote &= ~carteNote[p];
+            }
+        }
+        return ignote;
+    }
+
+    /**
+     * @return Il seme di uscita della presa corrente, o -1 se il giocatore è di mano.
+     */
+    public int getSemeUscita() {
+        return banco.length == 0 ? -1 : Regole.seme(banco[0]);
+    }
+
+    /**
+     * @return La maschera delle carte che il giocatore può legalmente giocare.
+     */
+    public long getCarteGiocabili() {
+        return Regole.carteGiocabili(mano, getSemeUscita());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ContestoDecisione)) {
+            return false;
+        }
+        ContestoDecisione altro = (ContestoDecisione) obj;
+        return posto == altro.posto && numGiocatori == altro.numGiocatori && mano == altro.mano
+                && carteUscite == altro.carteUscite && carteDaPescare == altro.carteDaPescare
+                && aSquadre == altro.aSquadre && Arrays.equals(banco, altro.banco)
+                && Arrays.equals(carteInMano, altro.carteInMano) && Arrays.equals(semiMancanti, altro.semiMancanti)
+                && Arrays.equals(carteNote, altro.carteNote);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Long.hashCode(mano * 31 + carteUscite);
+        hash = 31 * hash + posto;
+        hash = 31 * hash + Arrays.hashCode(banco);
+        hash = 31 * hash + Arrays.hashCode(semiMancanti);
+        hash = 31 * hash + Arrays.hashCode(carteNote);
+        return hash;
+    }
+}
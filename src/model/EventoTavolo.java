@@ -0,0 +1,100 @@
+package model;
+
+/**
+ * Evento di gioco pubblicato da un {@link Tavolo} tramite il suo {@link PubblicatoreEventi}.
+ * È immutabile e composto solo da campi primitivi, così può essere consegnato a più
+ * sottoscrittori su thread diversi e codificato in pochi byte.
+ * <p>
+ * Il significato di {@code posto}, {@code carta} e {@code puntiTerzi} dipende dal {@link Tipo};
+ * i campi non usati valgono -1 (posto e carta) o 0 (punti).
+ */
+public final class EventoTavolo {
+
+    /**
+     * I tipi di evento di gioco.
+     */
+    public enum Tipo {
+        /** Carte distribuite: {@code posto} è il primo di mano. */
+        PARTITA_INIZIATA,
+        /** Accusi dichiarati: {@code posto} è chi li dichiara, {@code puntiTerzi} il loro valore. */
+        ACCUSI,
+        /** Carta giocata sul banco da {@code posto}. */
+        CARTA_GIOCATA,
+        /** Presa vinta da {@code posto}, che incassa {@code puntiTerzi}. */
+        PRESA,
+        /** Carta pescata scoperta dal mazzo da {@code posto}. */
+        PESCATA,
+        /** Fine della partita: {@code posto} è la squadra vincente. */
+        FINE_PARTITA,
+        /** Tavolo azzerato. */
+        RESET,
+        /**
+         * Tavolo riportato a una posizione della {@link StoriaPartita}: {@code posto} è il giocatore di turno
+         * e {@code carta}, in deroga al suo significato abituale, il numero di carte giocate fino a quella posizione.
+         */
+        POSIZIONE_RIPRISTINATA
+    }
+
+    private final long sequenza;
+    private final Tipo tipo;
+    private final int posto;
+    private final int carta;
+    private final int puntiTerzi;
+
+    /**
+     * Costruisce un evento.
+     *
+     * @param sequenza   Il numero progressivo dell'evento sul tavolo, a partire da 1.
+     * @param tipo       Il tipo di evento.
+     * @param posto      Il posto (o la squadra) interessato, -1 se non applicabile.
+     * @param carta      L'indice della carta interessata, -1 se non applicabile.
+     * @param puntiTerzi I punti in terzi associati all'evento, 0 se non applicabile.
+     */
+    public EventoTavolo(long sequenza, Tipo tipo, int posto, int carta, int puntiTerzi) {
+        this.sequenza = sequenza;
+        this.tipo = tipo;
+        this.posto = posto;
+        this.carta = carta;
+        this.puntiTerzi = puntiTerzi;
+    }
+
+    /**
+     * @return Il numero progressivo dell'evento: un salto indica eventi scartati.
+     */
+    public long getSequenza() {
+        return sequenza;
+    }
+
+    /**
+     * @return Il tipo di evento.
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @return Il posto (o la squadra) interessato, -1 se non applicabile.
+     */
+    public int getPosto() {
+        return posto;
+    }
+
+    /**
+     * @return L'indice della carta interessata, -1 se non applicabile.
+     */
+    public int getCarta() {
+        return carta;
+    }
+
+    /**
+     * @return I punti in terzi associati all'evento.
+     */
+    public int getPuntiTerzi() {
+        return puntiTerzi;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequenza + " " + tipo + " posto=" + posto + " carta=" + carta + " punti=" + puntiTerzi + "/3";
+    }
+}
@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * Punto di estensione per le strategie di terze parti.
+ * <p>
+ * Un jar che fornisce strategie implementa questa interfaccia e la dichiara nel file
+ * {@code META-INF/services/model.FornitoreStrategia}; basta aggiungerlo al classpath perché
+ * {@link RegistroStrategie} la trovi con {@link java.util.ServiceLoader} e la renda
+ * sceglibile per nome a ogni posto.
+ */
+public interface FornitoreStrategia {
+    /**
+     * @return Il nome con cui scegliere la strategia, ad esempio da riga di comando.
+     */
+    String getNome();
+
+    /**
+     * Crea una nuova istanza della strategia; ogni posto al tavolo ha la propria.
+     *
+     * @param seed Il seed delle scelte casuali della strategia.
+     * @return La strategia.
+     */
+    Strategia crea(long seed);
+}
@@ -0,0 +1,169 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Generatore offline della {@link TabellaFinali}.
+ * Risolve per induzione all'indietro tutte le posizioni a 2 giocatori con k = 1..K carte per mano:
+ * il valore con k carte si ottiene dai valori già calcolati con k - 1 carte.
+ * <p>
+ * Uso: {@code java model.GeneratoreTabellaFinali [K] [file]} (predefiniti: 3 e
+ * {@value TabellaFinali#PERCORSO_PREDEFINITO}).
+ */
+public class GeneratoreTabellaFinali {
+    private final byte[][] valori;
+
+    private GeneratoreTabellaFinali(int maxCarte) {
+        this.valori = new byte[maxCarte + 1][];
+        this.valori[0] = new byte[1];
+    }
+
+    /**
+     * Punto di ingresso del generatore.
+     *
+     * @param args Argomenti opzionali: numero massimo di carte per mano e percorso del file.
+     * @throws IOException se il file non può essere scritto.
+     */
+    public static void main(String[] args) throws IOException {
+        int maxCarte = args.length > 0 ? Integer.parseInt(args[0]) : TabellaFinali.MAX_CARTE_SUPPORTATE;
+        Path file = Paths.get(args.length > 1 ? args[1] : TabellaFinali.PERCORSO_PREDEFINITO);
+        if (maxCarte < 1 || maxCarte > TabellaFinali.MAX_CARTE_SUPPORTATE) {
+            throw new IllegalArgumentException("K deve essere tra 1 e " + TabellaFinali.MAX_CARTE_SUPPORTATE + ": " + maxCarte);
+        }
+        genera(maxCarte, file);
+    }
+
+    /**
+     * Calcola tutte le sezioni e le scrive su file.
+     *
+     * @param maxCarte Il numero massimo di carte per mano.
+     * @param file     Il file di destinazione.
+     * @throws IOException se il file non può essere scritto.
+     */
+    public static void genera(int maxCarte, Path file) throws IOException {
+        GeneratoreTabellaFinali generatore = new GeneratoreTabellaFinali(maxCarte);
+        for (int k = 1; k <= maxCarte; k++) {
+            long inizio = System.nanoTime();
+            generatore.calcolaSezione(k);
+            System.out.printf("Sezione k=%d: %d posizioni in %.1f s%n",
+                    k, generatore.valori[k].length, (System.nanoTime() - inizio) / 1e9);
+        }
+
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer intestazione = ByteBuffer.allocate(TabellaFinali.DIMENSIONE_INTESTAZIONE);
+            intestazione.putInt(TabellaFinali.MAGIC).putInt(TabellaFinali.VERSIONE).putInt(maxCarte).putInt(0);
+            intestazione.flip();
+            scriviTutto(canale, intestazione);
+            for (int k = 1; k <= maxCarte; k++) {
+                scriviTutto(canale, ByteBuffer.wrap(generatore.valori[k]));
+            }
+        }
+        System.out.println("Tabella dei finali scritta in " + file);
+    }
+
+    private static void scriviTutto(FileChannel canale, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canale.write(buffer);
+        }
+    }
+
+    /**
+     * Calcola la sezione con {@code k} carte per mano. Le mani di chi esce e dell'avversario
+     * (quest'ultima nello spazio compresso delle 40 - k carte rimanenti) sono enumerate in ordine
+     * colessicografico, così la posizione nel ciclo coincide con l'indice della tabella.
+     */
+    private void calcolaSezione(int k) {
+        long[] maniPrimo = combinazioni(Regole.CARTE_MAZZO, k);
+        long[] maniSecondoCompresse = combinazioni(Regole.CARTE_MAZZO - k, k);
+        int perMano = maniSecondoCompresse.length;
+        byte[] sezione = new byte[Math.toIntExact(TabellaFinali.dimensioneSezione(k))];
+        valori[k] = sezione;
+
+        IntStream.range(0, maniPrimo.length).parallel().forEach(r -> {
+            long manoPrimo = maniPrimo[r];
+            long libere = Regole.TUTTE_LE_CARTE & ~manoPrimo;
+            int[] presa = new int[2];
+            for (int j = 0; j < perMano; j++) {
+                long manoSecondo = espandi(maniSecondoCompresse[j], libere);
+                sezione[r * perMano + j] = (byte) risolvi(manoPrimo, manoSecondo, k, presa);
+            }
+        });
+    }
+
+    /**
+     * Valore minimax per chi esce: sceglie l'uscita che massimizza i propri punti,
+     * l'avversario risponde con la carta legale che li minimizza.
+     */
+    private int risolvi(long manoPrimo, long manoSecondo, int k, int[] presa) {
+        int rimanenti = TabellaFinali.puntiTerzi(manoPrimo | manoSecondo);
+        int migliore = -1;
+        for (long u = manoPrimo; u != 0; u &= u - 1) {
+            int uscita = Long.numberOfTrailingZeros(u);
+            long restoPrimo = manoPrimo & ~(1L << uscita);
+            presa[0] = uscita;
+            int peggiore = Integer.MAX_VALUE;
+            for (long r = Regole.carteGiocabili(manoSecondo, Regole.seme(uscita)); r != 0; r &= r - 1) {
+                int risposta = Long.numberOfTrailingZeros(r);
+                long restoSecondo = manoSecondo & ~(1L << risposta);
+                presa[1] = risposta;
+                int puntiPresa = Regole.puntiTerzi(uscita) + Regole.puntiTerzi(risposta);
+                int valore;
+                if (Regole.vincitorePresa(presa, 2) == 0) {
+                    valore = puntiPresa + leggi(restoPrimo, restoSecondo, k - 1);
+                } else {
+                    valore = rimanenti - leggi(restoSecondo, restoPrimo, k - 1);
+                }
+                if (valore < peggiore) {
+                    peggiore = valore;
+                }
+            }
+            if (peggiore > migliore) {
+                migliore = peggiore;
+            }
+        }
+        return migliore;
+    }
+
+    private int leggi(long manoPrimo, long manoSecondo, int k) {
+        if (k == 0) {
+            return 0;
+        }
+        return valori[k][(int) TabellaFinali.indice(manoPrimo, manoSecondo, k)];
+    }
+
+    /**
+     * Enumera in ordine colessicografico le combinazioni di {@code k} bit su {@code n} posizioni
+     * (trucco di Gosper).
+     */
+    private static long[] combinazioni(int n, int k) {
+        long[] risultato = new long[Math.toIntExact(TabellaFinali.binomiale(n, k))];
+        long c = (1L << k) - 1;
+        for (int i = 0; i < risultato.length; i++) {
+            risultato[i] = c;
+            long basso = c & -c;
+            long alto = c + basso;
+            c = (((alto ^ c) >>> 2) / basso) | alto;
+        }
+        return risultato;
+    }
+
+    /**
+     * Deposita i bit di una maschera compressa nelle posizioni libere indicate.
+     */
+    private static long espandi(long compressa, long libere) {
+        long risultato = 0L;
+        for (long m = libere; compressa != 0; m &= m - 1, compressa >>>= 1) {
+            if ((compressa & 1L) != 0) {
+                risultato |= m & -m;
+            }
+        }
+        return risultato;
+    }
+}
@@ -18,14 +18,14 @@ public class Giocatore {
 
     /**
      * Costruisce un giocatore con ruolo, nome, punteggio iniziale, partite vinte e strategia di gioco.
-     * La strategia viene assegnata automaticamente in base al ruolo:
+     * Se la strategia è null viene assegnata automaticamente in base al ruolo:
      * "user" -> {@link StrategiaUmano}, "bot" -> {@link StrategiaBot}.
      *
      * @param ruolo          Il ruolo del giocatore ("user" o "bot").
      * @param nome           Il nome identificativo del giocatore.
      * @param punteggio      Il punteggio iniziale del giocatore.
      * @param partiteVinte   Il numero di partite vinte dal giocatore.
-     * @param strategiaGiocata La strategia di gioco (non usata direttamente, sovrascritta in base al ruolo).
+     * @param strategiaGiocata La strategia di gioco, oppure null per quella predefinita del ruolo.
      */
     public Giocatore(String ruolo, String nome, double punteggio, int partiteVinte, Strategia strategiaGiocata) {
         this.ruolo = ruolo;
@@ -34,8 +34,10 @@ public class Giocatore {
         this.partiteVinte = partiteVinte;
         this.carte = new ArrayList<>();
 
-        // Assegna la strategia in base al ruolo
-        if ("user".equals(ruolo)) {
+        // Senza una strategia esplicita la assegna in base al ruolo
+        if (strategiaGiocata != null) {
+            this.strategiaGiocata = strategiaGiocata;
+        } else if ("user".equals(ruolo)) {
             this.strategiaGiocata = new StrategiaUmano();
         } else if ("bot".equals(ruolo)) {
             this.strategiaGiocata = new StrategiaBot();
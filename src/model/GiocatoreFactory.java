@@ -41,4 +41,18 @@ public class GiocatoreFactory {
     public static Giocatore creaGiocatoreBot(String nome) {
         return new Giocatore("bot", nome, 0, 0, null);
     }
+
+    /**
+     * Crea un giocatore bot che gioca con la strategia indicata per nome, tra quelle di {@link RegistroStrategie}.
+     * Il punteggio iniziale e le partite vinte sono impostati a zero.
+     *
+     * @param nome          Il nome del giocatore bot.
+     * @param nomeStrategia Il nome della strategia, ad esempio "bot", "casuale" o quello di una strategia installata.
+     * @param seed          Il seed della strategia.
+     * @return Una nuova istanza di {@link Giocatore} con ruolo "bot".
+     * @throws IllegalArgumentException se la strategia non è registrata.
+     */
+    public static Giocatore creaGiocatoreBot(String nome, String nomeStrategia, long seed) {
+        return new Giocatore("bot", nome, 0, 0, RegistroStrategie.getInstance().crea(nomeStrategia, seed));
+    }
 }
@@ -0,0 +1,234 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Incontro ai punti: si giocano più partite (mani) di seguito finché una squadra
+ * raggiunge il punteggio obiettivo (21, 31 o 41).
+ * <p>
+ * La classifica è aggiornata in modo incrementale a ogni fine mano con i punti interi
+ * di ciascuna squadra: come da regolamento i terzi di punto avanzati si scartano.
+ * Se più squadre superano l'obiettivo nella stessa mano vince quella con più punti;
+ * in caso di parità si gioca un'altra mano.
+ * <p>
+ * Lo stato dell'incontro si salva in una fotografia binaria di pochi byte
+ * (vedi {@link #salva} e {@link #carica}), così un incontro sopravvive alla chiusura del gioco.
+ */
+public class Incontro {
+    /** I punteggi obiettivo ammessi. */
+    public static final int[] OBIETTIVI = {21, 31, 41};
+    public static final int OBIETTIVO_PREDEFINITO = 31;
+    public static final String PERCORSO_PREDEFINITO = "tressette-incontro.bin";
+
+    private static final int MAGIC = 0x4A33494E; // "J3IN"
+    private static final int VERSIONE = 1;
+
+    private final int obiettivo;
+    private final int[] punti;
+    private int maniGiocate;
+    private int vincitore = -1;
+
+    /**
+     * Costruisce un nuovo incontro con la classifica azzerata.
+     *
+     * @param obiettivo  Il punteggio da raggiungere, uno tra {@link #OBIETTIVI}.
+     * @param numSquadre Il numero di squadre (o di giocatori, se ognuno fa squadra da sé).
+     * @throws IllegalArgumentException se l'obiettivo o il numero di squadre non sono validi.
+     */
+    public Incontro(int obiettivo, int numSquadre) {
+        boolean valido = false;
+        for (int o : OBIETTIVI) {
+            valido |= o == obiettivo;
+        }
+        if (!valido) {
+            throw new IllegalArgumentException("Obiettivo non valido: " + obiettivo);
+        }
+        if (numSquadre < 2 || numSquadre > 4) {
+            throw new IllegalArgumentException("Numero di squadre non valido: " + numSquadre);
+        }
+        this.obiettivo = obiettivo;
+        this.punti = new int[numSquadre];
+    }
+
+    /**
+     * @return Il punteggio da raggiungere.
+     */
+    public int getObiettivo() {
+        return obiettivo;
+    }
+
+    /**
+     * @return Il numero di squadre in classifica.
+     */
+    public int getNumSquadre() {
+        return punti.length;
+    }
+
+    /**
+     * @param squadra L'indice della squadra.
+     * @return I punti accumulati dalla squadra nell'incontro.
+     */
+    public int getPunti(int squadra) {
+        return punti[squadra];
+    }
+
+    /**
+     * @return Il numero di mani già concluse nell'incontro.
+     */
+    public int getManiGiocate() {
+        return maniGiocate;
+    }
+
+    /**
+     * @return true se una squadra ha vinto l'incontro.
+     */
+    public boolean isConcluso() {
+        return vincitore >= 0;
+    }
+
+    /**
+     * @return La squadra che ha vinto l'incontro, oppure -1 se è ancora in corso.
+     */
+    public int getVincitore() {
+        return vincitore;
+    }
+
+    /**
+     * Aggiunge alla classifica il risultato di una mano e verifica se l'incontro è concluso.
+     *
+     * @param puntiManoTerzi I punti in terzi fatti da ciascuna squadra nella mano, accusi compresi.
+     * @return true se con questa mano l'incontro è concluso.
+     * @throws IllegalStateException se l'incontro era già concluso.
+     */
+    public boolean registraMano(int[] puntiManoTerzi) {
+        if (isConcluso()) {
+            throw new IllegalStateException("L'incontro è già concluso");
+        }
+        maniGiocate++;
+        int migliore = 0;
+        boolean parita = false;
+        for (int squadra = 0; squadra < punti.length; squadra++) {
+            punti[squadra] += puntiManoTerzi[squadra] / 3;
+            if (squadra > 0) {
+                if (punti[squadra] > punti[migliore]) {
+                    migliore = squadra;
+                    parita = false;
+                } else if (punti[squadra] == punti[migliore]) {
+                    parita = true;
+                }
+            }
+        }
+        if (punti[migliore] >= obiettivo && !parita) {
+            vincitore = migliore;
+        }
+        return isConcluso();
+    }
+
+    /**
+     * Descrive la classifica, per log e messaggi.
+     *
+     * @param nomiSquadre Il nome di ciascuna squadra.
+     * @return Ad esempio "Mario 12 - Bot 2 9 (a 31)".
+     */
+    public String descrivi(String[] nomiSquadre) {
+        StringBuilder sb = new StringBuilder();
+        for (int squadra = 0; squadra < punti.length; squadra++) {
+            sb.append(squadra > 0 ? " - " : "").append(nomiSquadre[squadra]).append(' ').append(punti[squadra]);
+        }
+        return sb.append(" (a ").append(obiettivo).append(')').toString();
+    }
+
+    /**
+     * Codifica l'incontro nella sua fotografia binaria: intestazione di 5 byte,
+     * obiettivo, numero di squadre, mani giocate, vincitore e un short di punti per squadra.
+     *
+     * @return I byte della fotografia.
+     */
+    public byte[] codifica() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSIONE);
+            out.writeByte(obiettivo);
+            out.writeByte(punti.length);
+            out.writeShort(maniGiocate);
+            out.writeByte(vincitore);
+            for (int p : punti) {
+                out.writeShort(p);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // non avviene scrivendo in memoria
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Ricostruisce un incontro dalla sua fotografia binaria.
+     *
+     * @param in Il flusso da cui leggere la fotografia.
+     * @return L'incontro letto.
+     * @throws IOException se la fotografia non è valida.
+     */
+    public static Incontro decodifica(InputStream in) throws IOException {
+        DataInputStream dati = new DataInputStream(in);
+        if (dati.readInt() != MAGIC || dati.readUnsignedByte() != VERSIONE) {
+            throw new IOException("Fotografia dell'incontro non valida");
+        }
+        int obiettivo = dati.readUnsignedByte();
+        int numSquadre = dati.readUnsignedByte();
+        Incontro incontro;
+        try {
+            incontro = new Incontro(obiettivo, numSquadre);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Fotografia dell'incontro non valida: " + e.getMessage());
+        }
+        incontro.maniGiocate = dati.readUnsignedShort();
+        incontro.vincitore = dati.readByte();
+        for (int squadra = 0; squadra < numSquadre; squadra++) {
+            incontro.punti[squadra] = dati.readShort();
+        }
+        return incontro;
+    }
+
+    /**
+     * Salva la fotografia dell'incontro. Il file viene prima scritto accanto a quello finale
+     * e poi spostato al suo posto, così un'interruzione non lascia una fotografia troncata.
+     *
+     * @param file Il file di destinazione.
+     * @throws IOException se la scrittura non riesce.
+     */
+    public void salva(Path file) throws IOException {
+        Path temporaneo = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporaneo, codifica());
+        Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carica un incontro salvato con {@link #salva}.
+     *
+     * @param file Il file della fotografia.
+     * @return L'incontro salvato.
+     * @throws IOException se il file non esiste, non è leggibile o non è una fotografia valida.
+     */
+    public static Incontro carica(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return decodifica(in);
+        }
+    }
+
+    /**
+     * @return Il file della fotografia, indicato dalla proprietà {@code j3sette.incontro}
+     *         oppure {@link #PERCORSO_PREDEFINITO}.
+     */
+    public static Path percorsoPredefinito() {
+        return Paths.get(System.getProperty("j3sette.incontro", PERCORSO_PREDEFINITO));
+    }
+}
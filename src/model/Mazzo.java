@@ -2,67 +2,85 @@ package model;
 
 import util.AudioManager;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
 /**
  * Rappresenta un mazzo di carte da gioco.
- * Il mazzo contiene una lista di {@link Carta} e fornisce metodi per
- * mescolare, distribuire carte, controllare le carte rimanenti e resettare il mazzo.
+ * Le carte sono conservate in un array e un cursore indica la prossima carta da distribuire:
+ * distribuire una carta non sposta né alloca nulla, il che permette di pescare dal mazzo
+ * dopo ogni presa senza costi aggiuntivi.
+ * Fornisce metodi per mescolare, distribuire carte, controllare le carte rimanenti e resettare il mazzo.
  */
 public class Mazzo {
-    private List<Carta> carteDelMazzo;
+    private Carta[] carteDelMazzo;
+    private final Carta[] cartePerIndice;
+    private final Random random;
+    private int cursore;
 
     /**
      * Costruisce un nuovo mazzo di carte standard italiane,
-     * inizializzando tutte le carte con valori, semi, forza e immagini associate.
+     * una carta per ogni coppia di {@link Seme} e {@link Rank} nell'ordine degli indici.
      * Il mazzo viene mescolato automaticamente alla creazione.
      */
     public Mazzo() {
-        this.carteDelMazzo = new ArrayList<>();
-
-        String[] semi = {"Denari", "Coppe", "Bastoni", "Spade"};
-        String[] valoriNomi = {"Asso", "Due", "Tre", "Quattro", "Cinque", "Sei", "Sette", "Fante", "Cavallo", "Re"};
-        int[] valoriNumerici = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
-        int[] forze = {3, 2, 1, 0, 0, 0, 0, -1, -2, -3};
-        String baseImagePath = "immagini_carte/";
-
-        for (String seme : semi) {
-            for (int i = 0; i < valoriNomi.length; i++) {
-                String nomeValore = valoriNomi[i];
-                int valoreNum = valoriNumerici[i];
-                int forzaCarta = forze[i];
+        this(new Random());
+    }
 
-                String nomeImmagine = baseImagePath + nomeValore.toLowerCase() + "_" + seme.toLowerCase() + ".png";
+    /**
+     * Costruisce un mazzo mescolato con il generatore indicato: a parità di generatore
+     * la sequenza delle distribuzioni è sempre la stessa.
+     *
+     * @param random Il generatore casuale usato per mescolare.
+     */
+    public Mazzo(Random random) {
+        this.random = random;
+        this.carteDelMazzo = new Carta[Regole.CARTE_MAZZO];
 
-                Carta carta = new Carta(valoreNum, seme, forzaCarta, nomeImmagine);
-                carteDelMazzo.add(carta);
+        int posizione = 0;
+        for (Seme seme : Seme.values()) {
+            for (Rank rank : Rank.values()) {
+                carteDelMazzo[posizione++] = new Carta(seme, rank);
             }
         }
+        this.cartePerIndice = carteDelMazzo.clone();
         mischia();
     }
 
     /**
-     * Mescola le carte del mazzo in modo casuale.
+     * Mescola in modo casuale le carte non ancora distribuite.
      * Riproduce anche un suono di distribuzione tramite {@link AudioManager}.
      */
     public void mischia() {
         AudioManager.getInstance().play("audio/distribuisci.wav");
-        Collections.shuffle(carteDelMazzo);
+        Collections.shuffle(Arrays.asList(carteDelMazzo).subList(cursore, carteDelMazzo.length), random);
         System.out.println("Mazzo mischiato con successo!");
     }
 
     /**
-     * Distribuisce (rimuove e restituisce) la prima carta dal mazzo.
+     * Rimette nel mazzo tutte le carte nell'ordine degli indici e le mescola con il seed indicato:
+     * l'ordine di distribuzione dipende solo dal seed, non dalle partite precedenti.
+     *
+     * @param seed Il seed del mescolamento.
+     */
+    public void mischia(long seed) {
+        System.arraycopy(cartePerIndice, 0, carteDelMazzo, 0, carteDelMazzo.length);
+        cursore = 0;
+        random.setSeed(seed);
+        mischia();
+    }
+
+    /**
+     * Distribuisce (rimuove e restituisce) la prima carta dal mazzo, avanzando il cursore.
      *
      * @return La carta distribuita, o {@code null} se il mazzo è vuoto.
      */
     public Carta distribuisciCarta() {
-        if (carteDelMazzo.isEmpty()) {
+        if (cursore >= carteDelMazzo.length) {
             return null;
         }
-        return carteDelMazzo.remove(0);
+        return carteDelMazzo[cursore++];
     }
 
     /**
@@ -71,33 +89,61 @@ public class Mazzo {
      * @return Il numero di carte ancora disponibili nel mazzo.
      */
     public int carteRimanenti() {
-        return carteDelMazzo.size();
+        return carteDelMazzo.length - cursore;
     }
 
     /**
-     * Resetta il mazzo svuotandolo e ricreando tutte le carte originali,
+     * Resetta il mazzo rimettendo in gioco tutte le carte originali,
      * quindi mescola nuovamente il mazzo.
      */
     public void reset() {
-        carteDelMazzo.clear();
+        cursore = 0;
+        mischia();
+    }
 
-        String[] semi = {"Denari", "Coppe", "Bastoni", "Spade"};
-        String[] valoriNomi = {"Asso", "Due", "Tre", "Quattro", "Cinque", "Sei", "Sette", "Fante", "Cavallo", "Re"};
-        int[] valoriNumerici = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
-        int[] forze = {3, 2, 1, 0, 0, 0, 0, -1, -2, -3};
-        String baseImagePath = "immagini_carte/";
+    /**
+     * Restituisce la carta del mazzo con l'indice indicato, distribuita o no.
+     *
+     * @param indice L'indice della carta (0-39).
+     * @return La carta.
+     */
+    public Carta getCarta(int indice) {
+        return cartePerIndice[indice];
+    }
 
-        for (String seme : semi) {
-            for (int i = 0; i < valoriNomi.length; i++) {
-                String nomeValore = valoriNomi[i];
-                int valoreNum = valoriNumerici[i];
-                int forzaCarta = forze[i];
-                String nomeImmagine = baseImagePath + nomeValore.toLowerCase() + "_" + seme.toLowerCase() + ".png";
+    /**
+     * Restituisce l'ordine di distribuzione corrente, comprese le carte già distribuite.
+     *
+     * @return Gli indici delle carte nell'ordine in cui sono (o saranno) distribuite.
+     */
+    public int[] getOrdine() {
+        int[] ordine = new int[carteDelMazzo.length];
+        for (int i = 0; i < ordine.length; i++) {
+            ordine[i] = carteDelMazzo[i].getIndice();
+        }
+        return ordine;
+    }
 
-                Carta carta = new Carta(valoreNum, seme, forzaCarta, nomeImmagine);
-                carteDelMazzo.add(carta);
-            }
+    /**
+     * Restituisce la posizione della prossima carta da distribuire.
+     *
+     * @return Il numero di carte già distribuite.
+     */
+    public int getCursore() {
+        return cursore;
+    }
+
+    /**
+     * Riporta il cursore a una posizione già raggiunta, senza mescolare:
+     * le carte successive saranno distribuite di nuovo nello stesso ordine.
+     *
+     * @param cursore Il numero di carte da considerare distribuite.
+     * @throws IllegalArgumentException se il cursore è fuori dal mazzo.
+     */
+    public void riposiziona(int cursore) {
+        if (cursore < 0 || cursore > carteDelMazzo.length) {
+            throw new IllegalArgumentException("Cursore fuori dal mazzo: " + cursore);
         }
-        mischia();
+        this.cursore = cursore;
     }
 }
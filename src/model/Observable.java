@@ -1,15 +1,17 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Classe astratta che rappresenta un oggetto osservabile nel pattern Observer.
  * Mantiene una lista di osservatori ({@link Observer}) e fornisce metodi per
  * aggiungere, rimuovere e notificare gli osservatori quando lo stato cambia.
+ * La lista è copy-on-write, così un osservatore può essere aggiunto o rimosso
+ * anche durante una notifica o da un altro thread.
  */
 public abstract class Observable {
-    private List<Observer> observers = new ArrayList<>();
+    private List<Observer> observers = new CopyOnWriteArrayList<>();
 
     /**
      * Aggiunge un osservatore alla lista degli osservatori se non è già presente.
@@ -0,0 +1,307 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Fotografia immutabile di una partita in un momento in cui un giocatore deve giocare.
+ * <p>
+ * {@link #gioca(int)} non modifica la posizione ma ne restituisce una nuova, che condivide con questa
+ * tutti gli array che la mossa non tocca: i punti cambiano solo quando si chiude una presa,
+ * semi mancanti e carte viste solo quando qualcuno non risponde al seme o pesca, e l'ordine del mazzo
+ * è uno solo per tutta la partita. Gli array condivisi non vengono mai modificati, così una posizione
+ * può essere tenuta in una {@link StoriaPartita}, passata ad altri thread o usata come radice
+ * di varianti senza copiarla; la storia di un'intera partita occupa pochi kilobyte.
+ * <p>
+ * La presa viene risolta nella stessa mossa che la completa: la posizione successiva ha il banco vuoto,
+ * i punti già accreditati al vincitore, le carte pescate (a 2 giocatori) e il vincitore di turno.
+ */
+public final class Posizione {
+    private static final int[] BANCO_VUOTO = new int[0];
+
+    private final long[] mani;
+    private final int[] banco;
+    private final int primo;
+    private final int[] puntiTerzi;
+    private final int[] semiMancanti;
+    private final long[] carteViste;
+    private final int[] ultimePescate;
+    private final int[] ordineMazzo;
+    private final int cursoreMazzo;
+    private final int numMosse;
+
+    private Posizione(long[] mani, int[] banco, int primo, int[] puntiTerzi, int[] semiMancanti,
+                      long[] carteViste, int[] ultimePescate, int[] ordineMazzo, int cursoreMazzo, int numMosse) {
+        this.mani = mani;
+        this.banco = banco;
+        this.primo = primo;
+        this.puntiTerzi = puntiTerzi;
+        this.semiMancanti = semiMancanti;
+        this.carteViste = carteViste;
+        this.ultimePescate = ultimePescate;
+        this.ordineMazzo = ordineMazzo;
+        this.cursoreMazzo = cursoreMazzo;
+        this.numMosse = numMosse;
+    }
+
+    /**
+     * Costruisce la posizione iniziale di una partita, a carte distribuite e accusi assegnati.
+     * Gli array vengono copiati.
+     *
+     * @param mani         La mano di ciascun giocatore, per posto.
+     * @param primo        Il giocatore di mano.
+     * @param puntiTerzi   I punti in terzi di ciascun giocatore (gli accusi).
+     * @param ordineMazzo  Gli indici delle carte del mazzo nell'ordine di distribuzione.
+     * @param cursoreMazzo La posizione in {@code ordineMazzo} della prossima carta da pescare.
+     * @return La posizione iniziale.
+     * @throws IllegalArgumentException se il numero di giocatori non è supportato.
+     */
+    public static Posizione iniziale(long[] mani, int primo, int[] puntiTerzi, int[] ordineMazzo, int cursoreMazzo) {
+        int n = mani.length;
+        if (n < 2 || n > 4 || puntiTerzi.length != n) {
+            throw new IllegalArgumentException("Numero di giocatori non supportato: " + n);
+        }
+        int[] nessunaPescata = new int[n];
+        Arrays.fill(nessunaPescata, -1);
+        return new Posizione(mani.clone(), BANCO_VUOTO, primo, puntiTerzi.clone(), new int[n],
+                new long[n], nessunaPescata, ordineMazzo.clone(), cursoreMazzo, 0);
+    }
+
+    /**
+     * @return Il numero di giocatori.
+     */
+    public int getNumGiocatori() {
+        return mani.length;
+    }
+
+    /**
+     * @return true se si gioca a coppie fisse (4 giocatori).
+     */
+    public boolean isASquadre() {
+        return mani.length == 4;
+    }
+
+    /**
+     * @param posto Il posto di un giocatore.
+     * @return La squadra di quel giocatore; senza coppie ogni giocatore fa squadra da sé.
+     */
+    public int getSquadra(int posto) {
+        return isASquadre() ? posto & 1 : posto;
+    }
+
+    /**
+     * @return Il numero di carte giocate dall'inizio della partita fino a questa posizione.
+     */
+    public int getNumMosse() {
+        return numMosse;
+    }
+
+    /**
+     * @return Il giocatore che ha aperto la presa corrente.
+     */
+    public int getPrimo() {
+        return primo;
+    }
+
+    /**
+     * @return Il giocatore che deve giocare.
+     */
+    public int getTurno() {
+        return (primo + banco.length) % mani.length;
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera della mano di quel giocatore.
+     */
+    public long getMano(int posto) {
+        return mani[posto];
+    }
+
+    /**
+     * @return Il numero di carte sul banco nella presa corrente.
+     */
+    public int getCarteSulBanco() {
+        return banco.length;
+    }
+
+    /**
+     * @param i La posizione sul banco, in ordine di gioco a partire dal primo di mano.
+     * @return L'indice della carta.
+     */
+    public int getCartaBanco(int i) {
+        return banco[i];
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return I punti in terzi del giocatore, accusi compresi.
+     */
+    public int getPuntiTerzi(int posto) {
+        return puntiTerzi[posto];
+    }
+
+    /**
+     * @param squadra L'indice della squadra.
+     * @return I punti in terzi della squadra.
+     */
+    public int getPuntiSquadraTerzi(int squadra) {
+        int punti = 0;
+        for (int posto = 0; posto < puntiTerzi.length; posto++) {
+            if (getSquadra(posto) == squadra) {
+                punti += puntiTerzi[posto];
+            }
+        }
+        return punti;
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera dei semi (bit = indice del seme) a cui il giocatore non ha risposto.
+     */
+    public int getSemiMancanti(int posto) {
+        return semiMancanti[posto];
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera delle carte pescate scoperte dal giocatore.
+     */
+    public long getCarteViste(int posto) {
+        return carteViste[posto];
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return L'indice dell'ultima carta pescata dal giocatore, -1 se non ha ancora pescato.
+     */
+    public int getUltimaPescata(int posto) {
+        return ultimePescate[posto];
+    }
+
+    /**
+     * @return La posizione nell'ordine del mazzo della prossima carta da pescare.
+     */
+    public int getCursoreMazzo() {
+        return cursoreMazzo;
+    }
+
+    /**
+     * @return Il numero di carte ancora da pescare; 0 se non si gioca con la pesca.
+     */
+    public int getCarteDaPescare() {
+        return mani.length == 2 ? ordineMazzo.length - cursoreMazzo : 0;
+    }
+
+    /**
+     * @return La maschera delle carte giocate, comprese quelle sul banco.
+     */
+    public long getCarteUscite() {
+        long inGioco = 0L;
+        for (long mano : mani) {
+            inGioco |= mano;
+        }
+        for (int i = cursoreMazzo; i < ordineMazzo.length; i++) {
+            inGioco |= 1L << ordineMazzo[i];
+        }
+        return Regole.TUTTE_LE_CARTE & ~inGioco;
+    }
+
+    /**
+     * Restituisce ciò che il giocatore indicato conosce in questa posizione: è lo stesso contesto
+     * che {@link Tavolo#getContesto(int)} darebbe al tavolo arrivato qui, e permette di preparare
+     * le decisioni di posizioni non ancora raggiunte.
+     *
+     * @param posto Il posto del giocatore.
+     * @return Il contesto di decisione del giocatore.
+     */
+    public ContestoDecisione getContesto(int posto) {
+        int n = mani.length;
+        long carteUscite = getCarteUscite();
+        int[] carteInMano = new int[n];
+        long[] carteNote = new long[n];
+        for (int p = 0; p < n; p++) {
+            carteInMano[p] = Long.bitCount(mani[p]);
+            carteNote[p] = carteViste[p] & ~carteUscite;
+        }
+        return new ContestoDecisione(posto, n, mani[posto], banco, carteUscite, carteInMano,
+                semiMancanti, carteNote, getCarteDaPescare(), isASquadre());
+    }
+
+    /**
+     * @return La maschera delle carte che il giocatore di turno può giocare.
+     */
+    public long getCarteGiocabili() {
+        return Regole.carteGiocabili(mani[getTurno()], banco.length == 0 ? -1 : Regole.seme(banco[0]));
+    }
+
+    /**
+     * @return true se la partita è finita: nessuna carta in mano e banco vuoto.
+     */
+    public boolean isFinita() {
+        return banco.length == 0 && mani[primo] == 0;
+    }
+
+    /**
+     * Gioca una carta del giocatore di turno e restituisce la posizione risultante.
+     * Se la carta completa la presa, la presa viene risolta e, a 2 giocatori, si pesca dal mazzo.
+     *
+     * @param carta L'indice della carta da giocare.
+     * @return La nuova posizione; questa resta invariata.
+     * @throws IllegalArgumentException se la carta non è tra quelle giocabili dal giocatore di turno.
+     */
+    public Posizione gioca(int carta) {
+        long bit = 1L << carta;
+        if ((getCarteGiocabili() & bit) == 0) {
+            throw new IllegalArgumentException("Carta " + carta + " non giocabile dal posto " + getTurno());
+        }
+        int n = mani.length;
+        int turno = getTurno();
+
+        long[] nuoveMani = mani.clone();
+        nuoveMani[turno] &= ~bit;
+
+        int[] nuoviSemiMancanti = semiMancanti;
+        if (banco.length > 0 && Regole.seme(carta) != Regole.seme(banco[0])) {
+            int semeUscita = Regole.seme(banco[0]);
+            if ((semiMancanti[turno] & (1 << semeUscita)) == 0) {
+                nuoviSemiMancanti = semiMancanti.clone();
+                nuoviSemiMancanti[turno] |= 1 << semeUscita;
+            }
+        }
+
+        int[] nuovoBanco = Arrays.copyOf(banco, banco.length + 1);
+        nuovoBanco[banco.length] = carta;
+        if (nuovoBanco.length < n) {
+            return new Posizione(nuoveMani, nuovoBanco, primo, puntiTerzi, nuoviSemiMancanti,
+                    carteViste, ultimePescate, ordineMazzo, cursoreMazzo, numMosse + 1);
+        }
+
+        // Presa completa: punti al vincitore, che pesca per primo e va di mano
+        int vincitore = (primo + Regole.vincitorePresa(nuovoBanco, n)) % n;
+        int punti = 0;
+        for (int c : nuovoBanco) {
+            punti += Regole.puntiTerzi(c);
+        }
+        int[] nuoviPunti = puntiTerzi;
+        if (punti > 0) {
+            nuoviPunti = puntiTerzi.clone();
+            nuoviPunti[vincitore] += punti;
+        }
+        long[] nuoveViste = carteViste;
+        int[] nuovePescate = ultimePescate;
+        int cursore = cursoreMazzo;
+        if (n == 2 && cursore < ordineMazzo.length) {
+            nuoveViste = carteViste.clone();
+            nuovePescate = ultimePescate.clone();
+            for (int k = 0; k < n && cursore < ordineMazzo.length; k++) {
+                int posto = (vincitore + k) % n;
+                int pescata = ordineMazzo[cursore++];
+                nuoveMani[posto] |= 1L << pescata;
+                nuoveViste[posto] |= 1L << pescata;
+                nuovePescate[posto] = pescata;
+            }
+        }
+        return new Posizione(nuoveMani, BANCO_VUOTO, vincitore, nuoviPunti, nuoviSemiMancanti,
+                nuoveViste, nuovePescate, ordineMazzo, cursore, numMosse + 1);
+    }
+}
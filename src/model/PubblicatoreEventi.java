@@ -0,0 +1,323 @@
+package model;
+
+import util.GameMetrics;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pubblica gli eventi di un tavolo come {@link Flow.Publisher}.
+ * <p>
+ * Ogni sottoscrittore ha un buffer limitato e riceve gli eventi su un {@link Executor},
+ * solo nella quantità richiesta con {@link Flow.Subscription#request(long)}.
+ * {@link #pubblica} non si blocca mai: se il buffer di un sottoscrittore lento è pieno,
+ * si applica la sua {@link Politica}, e il gioco prosegue senza aspettarlo.
+ * Gli eventi scartati sono contati in {@link GameMetrics}; il sottoscrittore li riconosce
+ * dai salti nella {@link EventoTavolo#getSequenza() sequenza}.
+ */
+public class PubblicatoreEventi implements Flow.Publisher<EventoTavolo> {
+    /** Capacità del buffer usata da {@link #subscribe(Flow.Subscriber)}. */
+    public static final int CAPACITA_PREDEFINITA = 256;
+
+    /**
+     * Cosa fare di un nuovo evento quando il buffer di un sottoscrittore è pieno.
+     */
+    public enum Politica {
+        /** Scarta l'evento nuovo: il sottoscrittore vede la storia fino al momento in cui è rimasto indietro. */
+        SCARTA_NUOVI,
+        /** Scarta l'evento più vecchio nel buffer: il sottoscrittore vede sempre gli ultimi eventi. */
+        SCARTA_VECCHI,
+        /**
+         * Fonde il buffer nell'evento nuovo, che resta l'unico in attesa: adatto a chi ridisegna
+         * lo stato leggendolo dal tavolo (o da una fotografia) e usa l'evento solo come segnale.
+         */
+        COALESCI
+    }
+
+    /**
+     * Executor condiviso per la consegna: un pool di thread daemon che cresce al bisogno,
+     * così un sottoscrittore che si blocca non sottrae il thread agli altri.
+     * Sta in una classe a parte per crearlo alla prima consegna: i tavoli senza sottoscrittori non lo avviano.
+     */
+    private static final class Consegna {
+        static final Executor EXECUTOR = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "j3sette-eventi");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** L'executor di consegna, null per quello condiviso. */
+    private final Executor executor;
+    private final List<Sottoscrizione> sottoscrizioni = new CopyOnWriteArrayList<>();
+    private long sequenza;
+    private boolean chiuso;
+
+    /**
+     * Costruisce un pubblicatore che consegna gli eventi sui thread daemon condivisi.
+     */
+    public PubblicatoreEventi() {
+        this.executor = null;
+    }
+
+    /**
+     * Costruisce un pubblicatore che consegna gli eventi sull'executor indicato.
+     *
+     * @param executor L'executor su cui chiamare i sottoscrittori.
+     */
+    public PubblicatoreEventi(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sottoscrive con buffer di {@link #CAPACITA_PREDEFINITA} eventi e politica {@link Politica#SCARTA_VECCHI}.
+     *
+     * @param subscriber Il sottoscrittore.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super EventoTavolo> subscriber) {
+        sottoscrivi(subscriber, CAPACITA_PREDEFINITA, Politica.SCARTA_VECCHI);
+    }
+
+    /**
+     * Sottoscrive con capacità del buffer e politica per i ritardatari a scelta.
+     *
+     * @param subscriber Il sottoscrittore.
+     * @param capacita   Il numero massimo di eventi in attesa di consegna.
+     * @param politica   Cosa fare quando il buffer è pieno.
+     * @return La sottoscrizione, che espone anche il numero di eventi scartati.
+     * @throws IllegalArgumentException se la capacità non è positiva.
+     */
+    public Sottoscrizione sottoscrivi(Flow.Subscriber<? super EventoTavolo> subscriber, int capacita, Politica politica) {
+        if (capacita <= 0) {
+            throw new IllegalArgumentException("Capacità non valida: " + capacita);
+        }
+        Sottoscrizione sottoscrizione = new Sottoscrizione(subscriber, capacita, politica);
+        boolean giaChiuso;
+        synchronized (this) {
+            giaChiuso = chiuso;
+            if (!giaChiuso) {
+                sottoscrizioni.add(sottoscrizione);
+            }
+        }
+        if (giaChiuso) {
+            sottoscrizione.completa();
+        }
+        sottoscrizione.programma();
+        return sottoscrizione;
+    }
+
+    /**
+     * Pubblica un evento a tutti i sottoscrittori senza mai bloccarsi.
+     *
+     * @param tipo       Il tipo di evento.
+     * @param posto      Il posto (o la squadra) interessato, -1 se non applicabile.
+     * @param carta      L'indice della carta interessata, -1 se non applicabile.
+     * @param puntiTerzi I punti in terzi associati all'evento.
+     * @return L'evento pubblicato.
+     */
+    public synchronized EventoTavolo pubblica(EventoTavolo.Tipo tipo, int posto, int carta, int puntiTerzi) {
+        EventoTavolo evento = new EventoTavolo(++sequenza, tipo, posto, carta, puntiTerzi);
+        if (!chiuso) {
+            for (Sottoscrizione sottoscrizione : sottoscrizioni) {
+                sottoscrizione.offri(evento);
+            }
+        }
+        return evento;
+    }
+
+    /**
+     * @return La sequenza dell'ultimo evento pubblicato, 0 se non ne è stato pubblicato nessuno.
+     */
+    public synchronized long getSequenza() {
+        return sequenza;
+    }
+
+    /**
+     * @return Il numero di sottoscrittori attivi.
+     */
+    public int getNumSottoscrittori() {
+        return sottoscrizioni.size();
+    }
+
+    /**
+     * Chiude il pubblicatore: i sottoscrittori ricevono gli eventi rimasti nel buffer
+     * e poi {@code onComplete}.
+     */
+    public void chiudi() {
+        synchronized (this) {
+            if (chiuso) {
+                return;
+            }
+            chiuso = true;
+        }
+        for (Sottoscrizione sottoscrizione : sottoscrizioni) {
+            sottoscrizione.completa();
+            sottoscrizione.programma();
+        }
+        sottoscrizioni.clear();
+    }
+
+    /**
+     * Sottoscrizione di un singolo sottoscrittore, con il suo buffer limitato.
+     * I segnali al sottoscrittore sono serializzati: un solo task alla volta li consegna,
+     * in un ciclo che si riprogramma finché ci sono eventi richiesti e disponibili.
+     */
+    public final class Sottoscrizione implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super EventoTavolo> subscriber;
+        private final int capacita;
+        private final Politica politica;
+        private final ArrayDeque<EventoTavolo> buffer;
+        private final AtomicInteger lavoro = new AtomicInteger();
+        private long richiesti;
+        private long scartati;
+        private boolean avviata;
+        private boolean completata;
+        private boolean terminata;
+        private Throwable errore;
+        private volatile boolean annullata;
+
+        private Sottoscrizione(Flow.Subscriber<? super EventoTavolo> subscriber, int capacita, Politica politica) {
+            this.subscriber = subscriber;
+            this.capacita = capacita;
+            this.politica = politica;
+            this.buffer = new ArrayDeque<>(Math.min(capacita, CAPACITA_PREDEFINITA));
+        }
+
+        /**
+         * @return Il numero di eventi scartati per questo sottoscrittore.
+         */
+        public synchronized long getScartati() {
+            return scartati;
+        }
+
+        /**
+         * @return Il numero di eventi in attesa di consegna.
+         */
+        public synchronized int getInAttesa() {
+            return buffer.size();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    errore = new IllegalArgumentException("Richiesta non positiva: " + n);
+                } else {
+                    richiesti = richiesti + n < 0 ? Long.MAX_VALUE : richiesti + n;
+                }
+            }
+            programma();
+        }
+
+        @Override
+        public void cancel() {
+            annullata = true;
+            sottoscrizioni.remove(this);
+        }
+
+        private void offri(EventoTavolo evento) {
+            int persi = 0;
+            synchronized (this) {
+                if (buffer.size() < capacita) {
+                    buffer.addLast(evento);
+                } else {
+                    switch (politica) {
+                        case SCARTA_NUOVI:
+                            persi = 1;
+                            break;
+                        case SCARTA_VECCHI:
+                            buffer.pollFirst();
+                            buffer.addLast(evento);
+                            persi = 1;
+                            break;
+                        case COALESCI:
+                            persi = buffer.size();
+                            buffer.clear();
+                            buffer.addLast(evento);
+                            break;
+                    }
+                    scartati += persi;
+                }
+            }
+            if (persi > 0) {
+                GameMetrics.getInstance().eventiScartati(persi);
+            }
+            programma();
+        }
+
+        private synchronized void completa() {
+            completata = true;
+        }
+
+        private void programma() {
+            if (lavoro.getAndIncrement() == 0) {
+                (executor != null ? executor : Consegna.EXECUTOR).execute(this);
+            }
+        }
+
+        /**
+         * Consegna i segnali in attesa; eseguito da un solo thread alla volta.
+         */
+        @Override
+        public void run() {
+            int mancanti = 1;
+            do {
+                consegna();
+                mancanti = lavoro.addAndGet(-mancanti);
+            } while (mancanti != 0);
+        }
+
+        private void consegna() {
+            if (terminata) {
+                return;
+            }
+            if (!avviata) {
+                avviata = true;
+                subscriber.onSubscribe(this);
+            }
+            while (!annullata) {
+                EventoTavolo evento;
+                Throwable erroreRichiesta;
+                synchronized (this) {
+                    erroreRichiesta = errore;
+                    evento = erroreRichiesta == null && richiesti > 0 ? buffer.pollFirst() : null;
+                    if (evento == null) {
+                        if (erroreRichiesta == null && !(completata && buffer.isEmpty())) {
+                            return;
+                        }
+                    } else if (richiesti != Long.MAX_VALUE) {
+                        richiesti--;
+                    }
+                }
+                if (erroreRichiesta != null) {
+                    termina();
+                    subscriber.onError(erroreRichiesta);
+                    return;
+                }
+                if (evento == null) {
+                    termina();
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(evento);
+                } catch (Throwable t) {
+                    termina();
+                    subscriber.onError(t);
+                    return;
+                }
+            }
+        }
+
+        private void termina() {
+            terminata = true;
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package model;
+
+/**
+ * I dieci valori delle carte napoletane, dall'Asso al Re.
+ * L'ordinale è {@code valore - 1} e indicizza le tabelle precalcolate di forza e punti,
+ * così confronti e conteggi non passano mai per stringhe.
+ */
+public enum Rank {
+    ASSO("Asso"),
+    DUE("Due"),
+    TRE("Tre"),
+    QUATTRO("Quattro"),
+    CINQUE("Cinque"),
+    SEI("Sei"),
+    SETTE("Sette"),
+    FANTE("Fante"),
+    CAVALLO("Cavallo"),
+    RE("Re");
+
+    private static final Rank[] VALORI = values();
+    private static final int[] FORZA = {3, 2, 1, 0, 0, 0, 0, -1, -2, -3};
+    private static final int[] PUNTI_TERZI = {3, 0, 3, 0, 0, 0, 0, 1, 1, 1};
+
+    private final String nome;
+
+    Rank(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * @return Il nome del valore, ad esempio "Cavallo".
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return Il valore numerico della carta (1-10).
+     */
+    public int getValore() {
+        return ordinal() + 1;
+    }
+
+    /**
+     * @return La forza di presa della carta.
+     */
+    public int getForza() {
+        return FORZA[ordinal()];
+    }
+
+    /**
+     * @return I punti della carta in terzi.
+     */
+    public int getPuntiTerzi() {
+        return PUNTI_TERZI[ordinal()];
+    }
+
+    /**
+     * Restituisce il valore corrispondente al numero della carta.
+     *
+     * @param valore Il valore numerico (1-10).
+     * @return Il valore corrispondente.
+     */
+    public static Rank daValore(int valore) {
+        return VALORI[valore - 1];
+    }
+}
@@ -0,0 +1,111 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.LongFunction;
+
+/**
+ * Registro delle strategie sceglibili per nome.
+ * <p>
+ * Contiene le strategie incluse ({@code bot}, {@code casuale}, {@code prima}) e quelle dei
+ * {@link FornitoreStrategia} trovati sul classpath con {@link ServiceLoader}. Le strategie di terze parti
+ * vengono avvolte in una {@link StrategiaConLimite}: una strategia lenta o difettosa non può bloccare
+ * il tavolo. Un fornitore che non si carica o che riusa un nome già registrato viene scartato
+ * con un messaggio, senza impedire l'avvio.
+ * <p>
+ * Le strategie incluse si creano senza consultare il {@link ServiceLoader}: la scansione del classpath,
+ * che all'avvio costa decine di millisecondi, avviene solo alla prima richiesta di un nome non incluso
+ * o dell'elenco dei nomi. Dopo la scansione il registro è in sola lettura: si può usare da più thread.
+ */
+public class RegistroStrategie {
+    private static final List<String> INCLUSE = List.of("bot", "casuale", "prima");
+
+    private static RegistroStrategie instance;
+
+    private final Map<String, LongFunction<Strategia>> fornite = new LinkedHashMap<>();
+    private volatile boolean fornitoriCaricati;
+
+    /**
+     * Restituisce l'istanza singleton del registro.
+     *
+     * @return L'istanza unica di {@link RegistroStrategie}.
+     */
+    public static synchronized RegistroStrategie getInstance() {
+        if (instance == null) instance = new RegistroStrategie();
+        return instance;
+    }
+
+    private RegistroStrategie() {
+    }
+
+    private synchronized void caricaFornitori() {
+        if (fornitoriCaricati) {
+            return;
+        }
+        Iterator<FornitoreStrategia> fornitori = ServiceLoader.load(FornitoreStrategia.class).iterator();
+        while (true) {
+            FornitoreStrategia fornitore;
+            try {
+                if (!fornitori.hasNext()) {
+                    break;
+                }
+                fornitore = fornitori.next();
+            } catch (ServiceConfigurationError e) {
+                System.err.println("ERRORE nel caricamento di una strategia: " + e.getMessage());
+                continue;
+            }
+            String nome = fornitore.getNome();
+            if (nome == null || nome.isBlank() || nome.contains(",") || nome.contains(":")
+                    || INCLUSE.contains(nome) || fornite.containsKey(nome)) {
+                System.err.println("Strategia " + fornitore.getClass().getName() + " scartata: nome non valido o già usato ("
+                        + nome + ")");
+                continue;
+            }
+            fornite.put(nome, seed -> new StrategiaConLimite(nome, fornitore.crea(seed)));
+            System.err.println("Strategia caricata: " + nome + " (" + fornitore.getClass().getName() + ")");
+        }
+        fornitoriCaricati = true;
+    }
+
+    /**
+     * Crea la strategia indicata per nome.
+     *
+     * @param nome Il nome della strategia.
+     * @param seed Il seed della strategia.
+     * @return La strategia.
+     * @throws IllegalArgumentException se il nome non è registrato.
+     */
+    public Strategia crea(String nome, long seed) {
+        switch (nome) {
+            case "bot":
+                return new StrategiaBot(seed);
+            case "casuale":
+                return new StrategiaCasuale(seed);
+            case "prima":
+                return new StrategiaUmano();
+            default:
+                break;
+        }
+        caricaFornitori();
+        LongFunction<Strategia> fabbrica = fornite.get(nome);
+        if (fabbrica == null) {
+            throw new IllegalArgumentException("Strategia sconosciuta: " + nome + " (disponibili: " + getNomi() + ")");
+        }
+        return fabbrica.apply(seed);
+    }
+
+    /**
+     * @return I nomi delle strategie registrate, prima le incluse e poi quelle trovate sul classpath.
+     */
+    public List<String> getNomi() {
+        caricaFornitori();
+        List<String> nomi = new ArrayList<>(INCLUSE);
+        nomi.addAll(fornite.keySet());
+        return nomi;
+    }
+}
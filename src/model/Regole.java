@@ -0,0 +1,145 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Regole del Tressette su carte rappresentate dal loro indice (vedi {@link Carta#getIndice()}).
+ * Un insieme di carte è una maschera {@code long} con il bit {@code indice} acceso per ogni carta.
+ * Forza e punti sono precalcolati in tabelle indicizzate per carta a partire da {@link Rank},
+ * quindi coerenti con {@link Carta#getForza()} e {@link Carta#getPuntiTressette()}; i punti sono espressi in terzi.
+ */
+public final class Regole {
+    /**
+     * Numero di carte del mazzo.
+     */
+    public static final int CARTE_MAZZO = 40;
+
+    /**
+     * Maschera con tutte le carte del mazzo.
+     */
+    public static final long TUTTE_LE_CARTE = (1L << CARTE_MAZZO) - 1;
+
+    /**
+     * Punti totali del mazzo, in terzi.
+     */
+    public static final int PUNTI_TOTALI_TERZI = 36;
+
+    private static final int[] FORZA = new int[CARTE_MAZZO];
+    private static final int[] PUNTI_TERZI = new int[CARTE_MAZZO];
+    private static final long[] MASCHERA_SEME = new long[4];
+    private static final long MASCHERA_UN_TERZO;
+    private static final long MASCHERA_TRE_TERZI;
+
+    static {
+        for (int i = 0; i < CARTE_MAZZO; i++) {
+            FORZA[i] = Rank.daValore(i % 10 + 1).getForza();
+            PUNTI_TERZI[i] = Rank.daValore(i % 10 + 1).getPuntiTerzi();
+            MASCHERA_SEME[i / 10] |= 1L << i;
+        }
+        long unTerzo = 0L;
+        long treTerzi = 0L;
+        for (int i = 0; i < CARTE_MAZZO; i++) {
+            if (PUNTI_TERZI[i] == 1) {
+                unTerzo |= 1L << i;
+            } else if (PUNTI_TERZI[i] == 3) {
+                treTerzi |= 1L << i;
+            } else if (PUNTI_TERZI[i] != 0) {
+                throw new IllegalStateException("Punti non previsti per la carta " + i);
+            }
+        }
+        MASCHERA_UN_TERZO = unTerzo;
+        MASCHERA_TRE_TERZI = treTerzi;
+    }
+
+    private Regole() {}
+
+    /**
+     * @param carta L'indice della carta.
+     * @return La forza di presa della carta.
+     */
+    public static int forza(int carta) {
+        return FORZA[carta];
+    }
+
+    /**
+     * @param carta L'indice della carta.
+     * @return I punti della carta in terzi.
+     */
+    public static int puntiTerzi(int carta) {
+        return PUNTI_TERZI[carta];
+    }
+
+    /**
+     * @param carte La maschera di un insieme di carte.
+     * @return La somma dei punti delle carte in terzi, con due conteggi di bit.
+     */
+    public static int puntiTerzi(long carte) {
+        return Long.bitCount(carte & MASCHERA_UN_TERZO) + 3 * Long.bitCount(carte & MASCHERA_TRE_TERZI);
+    }
+
+    /**
+     * @param carta L'indice della carta.
+     * @return L'indice del seme della carta.
+     */
+    public static int seme(int carta) {
+        return carta / 10;
+    }
+
+    /**
+     * @param seme L'indice del seme.
+     * @return La maschera di tutte le carte del seme.
+     */
+    public static long mascheraSeme(int seme) {
+        return MASCHERA_SEME[seme];
+    }
+
+    /**
+     * Costruisce la maschera di bit di una lista di carte.
+     *
+     * @param carte Le carte.
+     * @return La maschera corrispondente.
+     */
+    public static long maschera(List<? extends Carta> carte) {
+        long maschera = 0L;
+        for (int i = 0; i < carte.size(); i++) {
+            maschera |= 1L << carte.get(i).getIndice();
+        }
+        return maschera;
+    }
+
+    /**
+     * Calcola le carte giocabili: chi risponde deve seguire il seme di uscita se può,
+     * altrimenti può giocare qualsiasi carta.
+     *
+     * @param mano        La maschera della mano del giocatore.
+     * @param semeUscita  Il seme della prima carta della presa, o -1 se il giocatore è di mano.
+     * @return La maschera delle carte giocabili.
+     */
+    public static long carteGiocabili(long mano, int semeUscita) {
+        if (semeUscita < 0) {
+            return mano;
+        }
+        long stessoSeme = mano & MASCHERA_SEME[semeUscita];
+        return stessoSeme != 0 ? stessoSeme : mano;
+    }
+
+    /**
+     * Determina la posizione nella presa della carta vincente: la più forte del seme
+     * della prima carta, a parità di forza vince quella giocata prima.
+     *
+     * @param presa Gli indici delle carte nell'ordine in cui sono state giocate.
+     * @param n     Il numero di carte nella presa.
+     * @return La posizione (0-based) della carta vincente nella presa.
+     */
+    public static int vincitorePresa(int[] presa, int n) {
+        int semeUscita = presa[0] / 10;
+        int migliore = 0;
+        for (int i = 1; i < n; i++) {
+            int carta = presa[i];
+            if (carta / 10 == semeUscita && FORZA[carta] > FORZA[presa[migliore]]) {
+                migliore = i;
+            }
+        }
+        return migliore;
+    }
+}
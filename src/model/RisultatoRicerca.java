@@ -0,0 +1,122 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Statistiche immutabili di una ricerca Monte Carlo su un {@link ContestoDecisione}:
+ * per ogni carta candidata, la somma dei punti in terzi ottenuti e il numero di simulazioni.
+ * Una ricerca successiva sullo stesso contesto può ripartire da queste statistiche e approfondirle,
+ * e i risultati di ricerche indipendenti sullo stesso contesto si possono sommare con {@link #unisci}.
+ */
+public final class RisultatoRicerca {
+    private final int[] candidati;
+    private final long[] sommaPunti;
+    private final int[] simulazioni;
+    private final long nanosRicerca;
+
+    /**
+     * Costruisce il risultato; gli array non vengono copiati e non devono più essere modificati.
+     *
+     * @param candidati    Gli indici delle carte candidate, in ordine crescente.
+     * @param sommaPunti   Per ogni candidata, la somma dei punti in terzi delle simulazioni.
+     * @param simulazioni  Per ogni candidata, il numero di simulazioni.
+     * @param nanosRicerca Il tempo complessivo speso nella ricerca, in nanosecondi.
+     */
+    RisultatoRicerca(int[] candidati, long[] sommaPunti, int[] simulazioni, long nanosRicerca) {
+        this.candidati = candidati;
+        this.sommaPunti = sommaPunti;
+        this.simulazioni = simulazioni;
+        this.nanosRicerca = nanosRicerca;
+    }
+
+    /**
+     * @return Il numero di carte candidate.
+     */
+    public int getNumCandidati() {
+        return candidati.length;
+    }
+
+    /**
+     * @param i L'indice della candidata, da 0.
+     * @return L'indice della carta.
+     */
+    public int getCandidato(int i) {
+        return candidati[i];
+    }
+
+    /**
+     * @param i L'indice della candidata, da 0.
+     * @return La somma dei punti in terzi ottenuti con quella carta.
+     */
+    long getSommaPunti(int i) {
+        return sommaPunti[i];
+    }
+
+    /**
+     * @param i L'indice della candidata, da 0.
+     * @return Il numero di simulazioni svolte con quella carta.
+     */
+    public int getSimulazioni(int i) {
+        return simulazioni[i];
+    }
+
+    /**
+     * @param i L'indice della candidata, da 0.
+     * @return I punti medi attesi giocando quella carta, in punti interi; 0 senza simulazioni.
+     */
+    public double getPuntiMedi(int i) {
+        return simulazioni[i] == 0 ? 0 : sommaPunti[i] / 3.0 / simulazioni[i];
+    }
+
+    /**
+     * @return Il numero minimo di simulazioni tra le candidate.
+     */
+    public int getMinSimulazioni() {
+        int min = Integer.MAX_VALUE;
+        for (int n : simulazioni) {
+            min = Math.min(min, n);
+        }
+        return min;
+    }
+
+    /**
+     * @return Il tempo complessivo speso nella ricerca, in nanosecondi.
+     */
+    public long getNanosRicerca() {
+        return nanosRicerca;
+    }
+
+    /**
+     * Somma a questo il risultato di un'altra ricerca sullo stesso contesto.
+     *
+     * @param altro Il risultato da sommare, con le stesse carte candidate.
+     * @return Un nuovo risultato con simulazioni, punti e tempi sommati.
+     * @throws IllegalArgumentException se le candidate non coincidono.
+     */
+    public RisultatoRicerca unisci(RisultatoRicerca altro) {
+        if (!Arrays.equals(candidati, altro.candidati)) {
+            throw new IllegalArgumentException("Ricerche su contesti diversi");
+        }
+        long[] somma = sommaPunti.clone();
+        int[] numero = simulazioni.clone();
+        for (int i = 0; i < candidati.length; i++) {
+            somma[i] += altro.sommaPunti[i];
+            numero[i] += altro.simulazioni[i];
+        }
+        return new RisultatoRicerca(candidati, somma, numero, nanosRicerca + altro.nanosRicerca);
+    }
+
+    /**
+     * @return L'indice, tra le candidate, di quella con la media più alta; a parità vince la prima.
+     */
+    public int getMigliore() {
+        int migliore = 0;
+        for (int i = 1; i < candidati.length; i++) {
+            // confronto delle medie senza divisioni: a/na > b/nb  <=>  a*nb > b*na
+            if (sommaPunti[i] * simulazioni[migliore] > sommaPunti[migliore] * simulazioni[i]) {
+                migliore = i;
+            }
+        }
+        return migliore;
+    }
+}
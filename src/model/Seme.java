@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * I quattro semi delle carte napoletane, nell'ordine del mazzo.
+ * L'ordinale coincide con l'indice del seme usato da {@link Regole} e da {@link Carta#getIndice()}.
+ */
+public enum Seme {
+    DENARI("Denari"),
+    COPPE("Coppe"),
+    BASTONI("Bastoni"),
+    SPADE("Spade");
+
+    private static final Seme[] VALORI = values();
+
+    private final String nome;
+
+    Seme(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * @return Il nome del seme, ad esempio "Denari".
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return L'iniziale maiuscola del seme, usata nei nomi delle immagini.
+     */
+    public char getIniziale() {
+        return nome.charAt(0);
+    }
+
+    /**
+     * Restituisce il seme con l'indice indicato, senza copiare l'array di {@link #values()}.
+     *
+     * @param indice L'indice del seme (0-3).
+     * @return Il seme corrispondente.
+     */
+    public static Seme daIndice(int indice) {
+        return VALORI[indice];
+    }
+
+    @Override
+    public String toString() {
+        return nome;
+    }
+}
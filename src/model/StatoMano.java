@@ -1,6 +1,7 @@
 package model;
 
 import util.AudioManager;
+import util.GameMetrics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,13 +13,19 @@ import java.util.List;
  * e controllare quale giocatore ha vinto la presa.
  */
 public class StatoMano {
+    private static final int MAX_CARTE_PRESA = 4;
+
     private List<CartaBanco> carteSulBanco;
+    private final int[] indiciBanco = new int[MAX_CARTE_PRESA];
+    private final int[] postiBanco = new int[MAX_CARTE_PRESA];
+    private int numCarte;
+    private CartaBanco ultimaCartaVincente;
 
     /**
      * Costruisce un nuovo stato mano vuoto.
      */
     public StatoMano() {
-        carteSulBanco = new ArrayList<>();
+        carteSulBanco = new ArrayList<>(MAX_CARTE_PRESA);
     }
 
     /**
@@ -34,13 +41,34 @@ public class StatoMano {
      * Aggiunge una carta sul banco di gioco.
      * Riproduci il suono
      * Se la carta è null, non viene aggiunta.
+     * Indice della carta e posto del tiratore vengono copiati anche in array primitivi
+     * su cui lavora {@link #ControllaPresa}.
      *
      * @param carta La carta da aggiungere sul banco.
      */
     public void aggiungiCartaSulBanco(CartaBanco carta) {
         if (carta != null) {
+            if (numCarte == MAX_CARTE_PRESA) {
+                throw new IllegalStateException("Il banco ha già " + MAX_CARTE_PRESA + " carte");
+            }
             AudioManager.getInstance().play("audio/scarta.wav");
             carteSulBanco.add(carta);
+            indiciBanco[numCarte] = carta.getIndice();
+            postiBanco[numCarte++] = carta.getPosto();
+        }
+    }
+
+    /**
+     * Sostituisce le carte sul banco, senza effetti sonori: usato per tornare a una posizione precedente.
+     *
+     * @param carte Le carte da mettere sul banco, in ordine di gioco.
+     */
+    void ripristina(List<CartaBanco> carte) {
+        reset();
+        for (CartaBanco carta : carte) {
+            carteSulBanco.add(carta);
+            indiciBanco[numCarte] = carta.getIndice();
+            postiBanco[numCarte++] = carta.getPosto();
         }
     }
 
@@ -49,19 +77,44 @@ public class StatoMano {
      */
     public void reset() {
         carteSulBanco.clear();
+        numCarte = 0;
+    }
+
+    /**
+     * Calcola i punti delle carte sul banco.
+     *
+     * @return La somma dei punti delle carte sul banco, in terzi.
+     */
+    public int getPuntiPresaTerzi() {
+        int punti = 0;
+        for (int i = 0; i < numCarte; i++) {
+            punti += Regole.puntiTerzi(indiciBanco[i]);
+        }
+        return punti;
+    }
+
+    /**
+     * @return La carta che ha vinto l'ultima presa controllata, null se non ne è stata controllata nessuna.
+     */
+    public CartaBanco getUltimaCartaVincente() {
+        return ultimaCartaVincente;
     }
 
     /**
      * Controlla quale giocatore ha vinto la presa corrente.
-     * La presa viene determinata dalla carta più forte dello stesso seme della prima carta giocata.
-     * Assegna i punti della presa al giocatore vincitore.
+     * La presa viene determinata dalla carta più forte dello stesso seme della prima carta giocata,
+     * confrontando le forze precalcolate di {@link Regole}; il vincitore è il posto di chi l'ha giocata,
+     * senza confronti tra nomi.
+     * Assegna i punti della presa al giocatore vincitore. Non alloca nulla: log, suoni ed eventi JFR
+     * sono compito di chi chiama, che trova la carta vincente in {@link #getUltimaCartaVincente()}.
      *
      * @param giocatori La lista dei giocatori partecipanti alla mano.
      * @return L'indice del giocatore vincitore nella lista {@code giocatori}.
      *         Se ci sono errori, ritorna 0 come fallback.
      */
     public int ControllaPresa(List<Giocatore> giocatori) {
-        if (carteSulBanco.isEmpty()) {
+        long inizio = System.nanoTime();
+        if (numCarte == 0) {
             System.out.println("ERRORE: Nessuna carta sul banco!");
             return 0;
         }
@@ -71,85 +124,33 @@ public class StatoMano {
             return 0;
         }
 
-        System.out.println("=== CONTROLLO PRESA ===");
-        System.out.println("Carte sul banco: " + carteSulBanco.size());
-
-        // Debug: stampa tutte le carte
-        for (int i = 0; i < carteSulBanco.size(); i++) {
-            CartaBanco carta = carteSulBanco.get(i);
-            System.out.println("Carta " + i + ": " + carta.getNomeTiratore() + " - " +
-                    carta.getValore() + " di " + carta.getSeme() + " (forza: " + carta.getForza() + ")");
-        }
-
-        // Prima carta determina il seme dominante
-        CartaBanco primaCarta = carteSulBanco.get(0);
-        String semeDominante = primaCarta.getSeme();
-        System.out.println("Seme dominante: " + semeDominante);
-
-        // Trova la carta vincente (più forte dello stesso seme dominante)
-        CartaBanco cartaVincente = primaCarta;
-        for (CartaBanco carta : carteSulBanco) {
-            if (carta.getSeme().equals(semeDominante) && carta.getForza() > cartaVincente.getForza()) {
-                cartaVincente = carta;
+        // Un solo passaggio: carta vincente e punti della presa in terzi
+        int semeUscita = Regole.seme(indiciBanco[0]);
+        int migliore = 0;
+        int puntiTerzi = Regole.puntiTerzi(indiciBanco[0]);
+        for (int i = 1; i < numCarte; i++) {
+            int carta = indiciBanco[i];
+            puntiTerzi += Regole.puntiTerzi(carta);
+            if (Regole.seme(carta) == semeUscita && Regole.forza(carta) > Regole.forza(indiciBanco[migliore])) {
+                migliore = i;
             }
         }
+        int indiceVincitore = postiBanco[migliore];
+        ultimaCartaVincente = carteSulBanco.get(migliore);
 
-        System.out.println("Carta vincente: " + cartaVincente.getNomeTiratore() + " - " +
-                cartaVincente.getValore() + " di " + cartaVincente.getSeme());
-
-        // Calcola i punti totali della presa secondo Tressette
-        double puntiPresa = carteSulBanco.stream()
-                .mapToDouble(Carta::getPuntiTressette)
-                .sum();
-
-        System.out.println("Punti della presa: " + puntiPresa);
-
-        // Trova l'indice del giocatore vincitore
-        // Gestisci Vittoria/Sconfitta sulla presa della mano
-        String nomeVincitore = cartaVincente.getNomeTiratore();
-        int indiceVincitore = -1;
-
-        for (int i = 0; i < giocatori.size(); i++) {
-            if (giocatori.get(i).getNome().equals(nomeVincitore)) {
-                indiceVincitore = i;
-                if (puntiPresa > 0){
-                    if (giocatori.get(i).getRuolo().equals("user") ){
-                        AudioManager.getInstance().play("audio/winHand.wav");
-                    }
-                    else{
-                        AudioManager.getInstance().play("audio/lostHand.wav");
-                    }
-                }
-                break;
-            }
-        }
-
-        if (indiceVincitore == -1) {
-            System.out.println("ERRORE CRITICO: Giocatore vincitore non trovato! Nome: " + nomeVincitore);
-            System.out.println("Giocatori disponibili:");
-            for (int i = 0; i < giocatori.size(); i++) {
-                System.out.println("  " + i + ": " + giocatori.get(i).getNome());
-            }
+        if (indiceVincitore < 0 || indiceVincitore >= giocatori.size()) {
+            System.out.println("ERRORE CRITICO: Posto del vincitore non valido: " + indiceVincitore);
             // Fallback: restituisce il primo giocatore
             indiceVincitore = 0;
         } else {
-            // Assegna i punti al vincitore
-            try {
-                giocatori.get(indiceVincitore).addPunti(puntiPresa);
-                System.out.println("Giocatore " + nomeVincitore + " ha vinto la presa con " +
-                        String.format("%.2f", puntiPresa) + " punti");
-                System.out.println("Punteggio totale di " + nomeVincitore + ": " +
-                        String.format("%.2f", giocatori.get(indiceVincitore).getPunteggio()));
-            } catch (Exception e) {
-                System.out.println("ERRORE nell'assegnazione punti: " + e.getMessage());
-                e.printStackTrace();
-            }
+            giocatori.get(indiceVincitore).addPunti(puntiTerzi / 3.0);
         }
 
         // Reset dello stato mano dopo aver processato la presa
         reset();
 
-        System.out.println("=== FINE CONTROLLO PRESA ===");
+        GameMetrics.getInstance().presaGiocata();
+        GameMetrics.getInstance().getControllaPresa().registraDa(inizio);
         return indiceVincitore;
     }
 }
@@ -0,0 +1,428 @@
+package model;
+
+import util.AudioManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stato di gioco compatto e mutabile per la ricerca: mani come maschere di bit, presa corrente,
+ * turno, punti per squadra e punti ancora in gioco, tutto in campi e array primitivi.
+ * <p>
+ * {@link #doMove(int)} gioca una carta e {@link #undoMove()} la ritira, ripristinando mani, presa,
+ * turno e punti da una pila di annullamento di {@code long}: ogni mossa ne occupa uno, che codifica
+ * la carta, il turno precedente e, se la mossa ha chiuso una presa, le altre carte della presa,
+ * il primo di mano precedente e i punti assegnati. Anche le pescate dal mazzo ({@link #pesca})
+ * sono mosse annullabili. Dopo la costruzione nessuna operazione alloca memoria.
+ * <p>
+ * Le regole sono quelle di {@link Regole}; {@link #main} verifica su partite casuali che i risultati
+ * coincidano con la risoluzione di riferimento di {@link StatoMano} e che ogni mossa si annulli
+ * esattamente. Non è thread-safe: ogni thread deve usare la propria istanza.
+ */
+public class StatoRicerca {
+    private static final int MAX_MOSSE = Regole.CARTE_MAZZO * 2;
+
+    // Disposizione dei bit di una voce della pila di annullamento
+    private static final int BIT_CARTA = 0;          // 6 bit: carta giocata o pescata
+    private static final int BIT_TURNO = 6;          // 2 bit: turno (o posto che pesca) prima della mossa
+    private static final int BIT_PESCA = 8;          // 1 bit: la mossa è una pescata
+    private static final int BIT_PRESA = 9;          // 1 bit: la mossa ha chiuso una presa
+    private static final int BIT_PRIMO = 10;         // 2 bit: primo di mano della presa chiusa
+    private static final int BIT_PUNTI = 12;         // 6 bit: punti in terzi della presa chiusa
+    private static final int BIT_ALTRE_CARTE = 18;   // 3 x 6 bit: le altre carte della presa chiusa
+
+    private final int numGiocatori;
+    private final boolean aSquadre;
+    private final long[] mani;
+    private final int[] presa = new int[4];
+    private final int[] puntiSquadraTerzi;
+    private final long[] annullamento = new long[MAX_MOSSE];
+    private int carteInPresa;
+    private int puntiRimanenti;
+    private int primo;
+    private int turno;
+    private long mazzo;
+    private int numMosse;
+
+    /**
+     * Costruisce uno stato vuoto per il numero di giocatori indicato.
+     *
+     * @param numGiocatori Il numero di giocatori (da 2 a 4).
+     * @param aSquadre     true se si gioca a coppie fisse (posti 0 e 2 contro 1 e 3).
+     */
+    public StatoRicerca(int numGiocatori, boolean aSquadre) {
+        if (numGiocatori < 2 || numGiocatori > 4) {
+            throw new IllegalArgumentException("Numero di giocatori non supportato: " + numGiocatori);
+        }
+        this.numGiocatori = numGiocatori;
+        this.aSquadre = aSquadre;
+        this.mani = new long[numGiocatori];
+        this.puntiSquadraTerzi = new int[aSquadre ? 2 : numGiocatori];
+    }
+
+    /**
+     * Imposta lo stato da un contesto di decisione e da una distribuzione delle mani.
+     * La presa in corso è quella sul banco del contesto, di turno è il giocatore del contesto
+     * e i punti ripartono da zero. La pila di annullamento viene svuotata.
+     *
+     * @param contesto Il contesto di decisione.
+     * @param mani     La mano di ciascun giocatore, per posto.
+     * @param mazzo    Le carte ancora da pescare, 0 se non si pesca.
+     */
+    public void carica(ContestoDecisione contesto, long[] mani, long mazzo) {
+        System.arraycopy(mani, 0, this.mani, 0, numGiocatori);
+        carteInPresa = contesto.getCarteSulBanco();
+        for (int i = 0; i < carteInPresa; i++) {
+            presa[i] = contesto.getCartaBanco(i);
+        }
+        primo = contesto.getPrimoDiMano();
+        turno = contesto.getPosto();
+        this.mazzo = mazzo;
+        for (int s = 0; s < puntiSquadraTerzi.length; s++) {
+            puntiSquadraTerzi[s] = 0;
+        }
+        numMosse = 0;
+        contaPuntiRimanenti();
+    }
+
+    /**
+     * Imposta lo stato all'inizio di una presa, con punti azzerati e pila di annullamento vuota.
+     *
+     * @param mani  La mano di ciascun giocatore, per posto.
+     * @param primo Il giocatore di mano.
+     * @param mazzo Le carte ancora da pescare, 0 se non si pesca.
+     */
+    public void carica(long[] mani, int primo, long mazzo) {
+        System.arraycopy(mani, 0, this.mani, 0, numGiocatori);
+        carteInPresa = 0;
+        this.primo = primo;
+        this.turno = primo;
+        this.mazzo = mazzo;
+        for (int s = 0; s < puntiSquadraTerzi.length; s++) {
+            puntiSquadraTerzi[s] = 0;
+        }
+        numMosse = 0;
+        contaPuntiRimanenti();
+    }
+
+    /**
+     * Imposta lo stato a presa iniziata, con punti azzerati e pila di annullamento vuota:
+     * le carte sul banco, già uscite dalle mani, contano tra i punti ancora in gioco.
+     *
+     * @param mani          La mano di ciascun giocatore, per posto, senza le carte sul banco.
+     * @param primo         Il giocatore che ha aperto la presa.
+     * @param mazzo         Le carte ancora da pescare, 0 se non si pesca.
+     * @param banco         Le carte sul banco nell'ordine in cui sono state giocate.
+     * @param carteSulBanco Il numero di carte sul banco, minore del numero di giocatori.
+     */
+    public void carica(long[] mani, int primo, long mazzo, int[] banco, int carteSulBanco) {
+        System.arraycopy(banco, 0, presa, 0, carteSulBanco);
+        carteInPresa = carteSulBanco;
+        System.arraycopy(mani, 0, this.mani, 0, numGiocatori);
+        this.primo = primo;
+        this.turno = (primo + carteSulBanco) % numGiocatori;
+        this.mazzo = mazzo;
+        for (int s = 0; s < puntiSquadraTerzi.length; s++) {
+            puntiSquadraTerzi[s] = 0;
+        }
+        numMosse = 0;
+        contaPuntiRimanenti();
+    }
+
+    private void contaPuntiRimanenti() {
+        long carte = mazzo;
+        for (int posto = 0; posto < numGiocatori; posto++) {
+            carte |= mani[posto];
+        }
+        for (int i = 0; i < carteInPresa; i++) {
+            carte |= 1L << presa[i];
+        }
+        puntiRimanenti = Regole.puntiTerzi(carte);
+    }
+
+    /**
+     * @return Il numero di giocatori.
+     */
+    public int getNumGiocatori() {
+        return numGiocatori;
+    }
+
+    /**
+     * @param posto Il posto di un giocatore.
+     * @return La squadra di quel giocatore; senza coppie ogni giocatore fa squadra da sé.
+     */
+    public int getSquadra(int posto) {
+        return aSquadre ? posto & 1 : posto;
+    }
+
+    /**
+     * @return Il giocatore che deve giocare.
+     */
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * @return Il giocatore che ha aperto la presa corrente.
+     */
+    public int getPrimo() {
+        return primo;
+    }
+
+    /**
+     * @return Il numero di carte nella presa corrente.
+     */
+    public int getCarteInPresa() {
+        return carteInPresa;
+    }
+
+    /**
+     * @param posto Il posto del giocatore.
+     * @return La maschera della mano di quel giocatore.
+     */
+    public long getMano(int posto) {
+        return mani[posto];
+    }
+
+    /**
+     * @return La maschera delle carte ancora da pescare.
+     */
+    public long getMazzo() {
+        return mazzo;
+    }
+
+    /**
+     * @param squadra L'indice della squadra.
+     * @return I punti in terzi fatti dalla squadra dal caricamento dello stato.
+     */
+    public int getPunti(int squadra) {
+        return puntiSquadraTerzi[squadra];
+    }
+
+    /**
+     * @return I punti in terzi ancora da assegnare: carte in mano, sul banco e da pescare.
+     */
+    public int getPuntiRimanenti() {
+        return puntiRimanenti;
+    }
+
+    /**
+     * @return Il numero di mosse sulla pila di annullamento.
+     */
+    public int getNumMosse() {
+        return numMosse;
+    }
+
+    /**
+     * @return true se la mossa appena giocata ha chiuso una presa.
+     */
+    public boolean isPresaAppenaChiusa() {
+        return numMosse > 0 && (annullamento[numMosse - 1] & (1L << BIT_PRESA)) != 0;
+    }
+
+    /**
+     * @return true se la partita è finita: presa vuota e nessuna carta in mano al giocatore di turno.
+     */
+    public boolean isFinita() {
+        return carteInPresa == 0 && mani[turno] == 0;
+    }
+
+    /**
+     * @return La maschera delle carte che il giocatore di turno può giocare.
+     */
+    public long getCarteGiocabili() {
+        return Regole.carteGiocabili(mani[turno], carteInPresa == 0 ? -1 : Regole.seme(presa[0]));
+    }
+
+    /**
+     * Gioca una carta del giocatore di turno. Se la carta chiude la presa, la presa viene risolta:
+     * i punti vanno alla squadra del vincitore, che diventa di mano.
+     * La legalità della carta non viene controllata.
+     *
+     * @param carta L'indice della carta da giocare.
+     */
+    public void doMove(int carta) {
+        long voce = (long) carta << BIT_CARTA | (long) turno << BIT_TURNO;
+        mani[turno] &= ~(1L << carta);
+        presa[carteInPresa++] = carta;
+        if (carteInPresa < numGiocatori) {
+            turno = turno + 1 == numGiocatori ? 0 : turno + 1;
+        } else {
+            int punti = 0;
+            for (int i = 0; i < numGiocatori; i++) {
+                punti += Regole.puntiTerzi(presa[i]);
+            }
+            for (int i = 0; i < numGiocatori - 1; i++) {
+                voce |= (long) presa[i] << (BIT_ALTRE_CARTE + 6 * i);
+            }
+            voce |= 1L << BIT_PRESA | (long) primo << BIT_PRIMO | (long) punti << BIT_PUNTI;
+            int vincitore = primo + Regole.vincitorePresa(presa, numGiocatori);
+            if (vincitore >= numGiocatori) {
+                vincitore -= numGiocatori;
+            }
+            puntiSquadraTerzi[getSquadra(vincitore)] += punti;
+            puntiRimanenti -= punti;
+            primo = vincitore;
+            turno = vincitore;
+            carteInPresa = 0;
+        }
+        annullamento[numMosse++] = voce;
+    }
+
+    /**
+     * Fa pescare al giocatore indicato una carta del mazzo.
+     *
+     * @param posto Il giocatore che pesca.
+     * @param carta L'indice della carta pescata, che deve essere nel mazzo.
+     */
+    public void pesca(int posto, int carta) {
+        mazzo &= ~(1L << carta);
+        mani[posto] |= 1L << carta;
+        annullamento[numMosse++] = (long) carta << BIT_CARTA | (long) posto << BIT_TURNO | 1L << BIT_PESCA;
+    }
+
+    /**
+     * Ritira l'ultima mossa (giocata o pescata), ripristinando esattamente lo stato precedente.
+     *
+     * @throws IllegalStateException se non ci sono mosse da annullare.
+     */
+    public void undoMove() {
+        if (numMosse == 0) {
+            throw new IllegalStateException("Nessuna mossa da annullare");
+        }
+        long voce = annullamento[--numMosse];
+        int carta = (int) (voce >>> BIT_CARTA) & 0x3F;
+        int posto = (int) (voce >>> BIT_TURNO) & 0x3;
+        if ((voce & (1L << BIT_PESCA)) != 0) {
+            mani[posto] &= ~(1L << carta);
+            mazzo |= 1L << carta;
+            return;
+        }
+        if ((voce & (1L << BIT_PRESA)) != 0) {
+            int punti = (int) (voce >>> BIT_PUNTI) & 0x3F;
+            puntiSquadraTerzi[getSquadra(primo)] -= punti;
+            puntiRimanenti += punti;
+            primo = (int) (voce >>> BIT_PRIMO) & 0x3;
+            for (int i = 0; i < numGiocatori - 1; i++) {
+                presa[i] = (int) (voce >>> (BIT_ALTRE_CARTE + 6 * i)) & 0x3F;
+            }
+            carteInPresa = numGiocatori - 1;
+        } else {
+            carteInPresa--;
+        }
+        mani[posto] |= 1L << carta;
+        turno = posto;
+    }
+
+    /**
+     * Verifica su partite casuali che {@link StatoRicerca} rispetti le regole di riferimento:
+     * vincitori e punti di ogni presa coincidono con {@link StatoMano#ControllaPresa}, i punti rimanenti
+     * con quelli non ancora assegnati, e annullando
+     * tutte le mosse si torna esattamente allo stato iniziale.
+     * <p>
+     * Uso: {@code java model.StatoRicerca [partite]}
+     *
+     * @param args Argomento opzionale: il numero di partite per ogni numero di giocatori.
+     */
+    public static void main(String[] args) {
+        int partite = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        AudioManager.getInstance().setAbilitato(false);
+        SplittableRandom random = new SplittableRandom(7);
+        long prese = 0;
+        for (int numGiocatori = 2; numGiocatori <= 4; numGiocatori++) {
+            boolean aSquadre = numGiocatori == 4;
+            StatoRicerca stato = new StatoRicerca(numGiocatori, aSquadre);
+            List<Giocatore> giocatori = new ArrayList<>();
+            for (int p = 0; p < numGiocatori; p++) {
+                giocatori.add(GiocatoreFactory.creaGiocatoreBot("G"));  // nomi uguali di proposito
+            }
+            StatoMano riferimento = new StatoMano();
+            for (int partita = 0; partita < partite; partita++) {
+                // Distribuzione casuale: a 2 giocatori 10 carte a testa e 20 nel mazzo
+                int[] carte = new int[Regole.CARTE_MAZZO];
+                for (int i = 0; i < carte.length; i++) {
+                    int j = random.nextInt(i + 1);
+                    carte[i] = carte[j];
+                    carte[j] = i;
+                }
+                long[] mani = new long[numGiocatori];
+                for (int i = 0; i < 10 * numGiocatori; i++) {
+                    mani[i % numGiocatori] |= 1L << carte[i];
+                }
+                long mazzo = 0L;
+                if (numGiocatori == 2) {
+                    for (int i = 20; i < Regole.CARTE_MAZZO; i++) {
+                        mazzo |= 1L << carte[i];
+                    }
+                }
+                int primo = random.nextInt(numGiocatori);
+                stato.carica(mani, primo, mazzo);
+                int puntiIniziali = stato.getPuntiRimanenti();
+                int[] puntiAttesi = new int[stato.puntiSquadraTerzi.length];
+
+                while (!stato.isFinita()) {
+                    long giocabili = stato.getCarteGiocabili();
+                    for (int salta = random.nextInt(Long.bitCount(giocabili)); salta > 0; salta--) {
+                        giocabili &= giocabili - 1;
+                    }
+                    int carta = Long.numberOfTrailingZeros(giocabili);
+                    int posto = stato.getTurno();
+                    riferimento.aggiungiCartaSulBanco(new CartaBanco("G", posto,
+                            new Carta(Seme.daIndice(carta / 10), Rank.daValore(carta % 10 + 1))));
+                    int puntiPresa = riferimento.getPuntiPresaTerzi();
+                    stato.doMove(carta);
+                    if (stato.isPresaAppenaChiusa()) {
+                        prese++;
+                        int vincitore = riferimento.ControllaPresa(giocatori);
+                        puntiAttesi[stato.getSquadra(vincitore)] += puntiPresa;
+                        if (vincitore != stato.getTurno()) {
+                            throw new IllegalStateException("Vincitore diverso: " + vincitore + " contro " + stato.getTurno());
+                        }
+                        int puntiFatti = 0;
+                        for (int s = 0; s < puntiAttesi.length; s++) {
+                            if (puntiAttesi[s] != stato.getPunti(s)) {
+                                throw new IllegalStateException("Punti diversi per la squadra " + s);
+                            }
+                            puntiFatti += puntiAttesi[s];
+                        }
+                        if (stato.getPuntiRimanenti() != puntiIniziali - puntiFatti) {
+                            throw new IllegalStateException("Punti rimanenti errati: " + stato.getPuntiRimanenti());
+                        }
+                        // Pescate dal mazzo a partire dal vincitore
+                        for (int k = 0; k < numGiocatori && stato.getMazzo() != 0; k++) {
+                            long m = stato.getMazzo();
+                            for (int salta = random.nextInt(Long.bitCount(m)); salta > 0; salta--) {
+                                m &= m - 1;
+                            }
+                            stato.pesca((vincitore + k) % numGiocatori, Long.numberOfTrailingZeros(m));
+                        }
+                    }
+                }
+
+                while (stato.getNumMosse() > 0) {
+                    stato.undoMove();
+                }
+                for (int p = 0; p < numGiocatori; p++) {
+                    if (stato.getMano(p) != mani[p]) {
+                        throw new IllegalStateException("Mano non ripristinata per il posto " + p);
+                    }
+                }
+                for (int s = 0; s < puntiAttesi.length; s++) {
+                    if (stato.getPunti(s) != 0) {
+                        throw new IllegalStateException("Punti non ripristinati per la squadra " + s);
+                    }
+                }
+                if (stato.getMazzo() != mazzo || stato.getTurno() != primo || stato.getPrimo() != primo
+                        || stato.getCarteInPresa() != 0 || stato.getPuntiRimanenti() != puntiIniziali) {
+                    throw new IllegalStateException("Stato non ripristinato");
+                }
+            }
+        }
+        console.println("StatoRicerca verificato: " + prese + " prese coincidono con StatoMano, annullamento esatto");
+    }
+}
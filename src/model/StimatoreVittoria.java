@@ -0,0 +1,199 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Stima con simulazioni casuali la probabilità che la squadra di un giocatore vinca la mano in corso,
+ * cioè la chiuda con più punti di ogni altra squadra; un pareggio al primo posto vale mezza vittoria.
+ * <p>
+ * Ogni simulazione parte da una determinizzazione, una distribuzione delle carte ignote al giocatore
+ * campionata con {@link CampionatoreMani} in modo coerente con quanto ha visto, e gioca il resto
+ * della mano con mosse casuali legali su {@link StatoRicerca}. Le determinizzazioni sono array di
+ * {@code long} (la mano di ogni posto e, in fondo, le carte rimanenti) mai modificati dopo la creazione:
+ * si possono condividere tra thread e, con {@link #aggiorna}, riusare dopo le prese successive
+ * finché restano coerenti con le carte giocate.
+ * <p>
+ * Non è thread-safe: ogni thread deve usare la propria istanza.
+ */
+public class StimatoreVittoria {
+    private final CampionatoreMani campionatore = new CampionatoreMani(4);
+    private final SplittableRandom random;
+    private final int[] postoDestinatario = new int[4];
+    private final long[] distribuzione = new long[4];
+    private final int[] totali = new int[4];
+    private final int[] banco = new int[4];
+    private ChiusuraAnticipata chiusura = ChiusuraAnticipata.VINCITORE;
+    private StatoRicerca stato;
+    private Posizione posizione;
+    private ContestoDecisione contesto;
+    private int squadra;
+    private int numDestinatari;
+
+    /**
+     * Costruisce uno stimatore con il seed indicato.
+     *
+     * @param seed Il seed delle simulazioni.
+     */
+    public StimatoreVittoria(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Sceglie quando chiudere in anticipo le simulazioni. Con {@link ChiusuraAnticipata#VINCITORE}, il default,
+     * una simulazione si ferma appena la squadra del giocatore ha comunque vinto o perso: l'esito è lo stesso
+     * che giocandola fino in fondo.
+     *
+     * @param chiusura La modalità di chiusura anticipata.
+     */
+    public void setChiusuraAnticipata(ChiusuraAnticipata chiusura) {
+        this.chiusura = chiusura;
+    }
+
+    /**
+     * Prepara lo stimatore per una posizione, dal punto di vista del giocatore indicato.
+     *
+     * @param posizione La posizione da cui simulare.
+     * @param posto     Il posto del giocatore di cui stimare la vittoria.
+     */
+    public void prepara(Posizione posizione, int posto) {
+        this.posizione = posizione;
+        this.contesto = posizione.getContesto(posto);
+        this.squadra = posizione.getSquadra(posto);
+        if (stato == null || stato.getNumGiocatori() != posizione.getNumGiocatori()) {
+            stato = new StatoRicerca(posizione.getNumGiocatori(), posizione.isASquadre());
+        }
+        numDestinatari = campionatore.preparaPer(contesto, postoDestinatario);
+        for (int i = 0; i < posizione.getCarteSulBanco(); i++) {
+            banco[i] = posizione.getCartaBanco(i);
+        }
+    }
+
+    /**
+     * Campiona una nuova determinizzazione della posizione preparata.
+     *
+     * @return La mano di ogni posto e, nell'ultimo elemento, le carte rimanenti.
+     */
+    public long[] campiona() {
+        int n = posizione.getNumGiocatori();
+        long[] determinizzazione = new long[n + 1];
+        campionatore.campiona(random, distribuzione);
+        for (int p = 0; p < n; p++) {
+            determinizzazione[p] = contesto.getCarteNote(p);
+        }
+        determinizzazione[contesto.getPosto()] = contesto.getMano();
+        for (int d = 0; d < numDestinatari; d++) {
+            determinizzazione[postoDestinatario[d] >= 0 ? postoDestinatario[d] : n] |= distribuzione[d];
+        }
+        return determinizzazione;
+    }
+
+    /**
+     * Gioca la mano con mosse casuali legali a partire dalla posizione preparata, fino in fondo
+     * o finché l'esito non è deciso (vedi {@link #setChiusuraAnticipata}).
+     *
+     * @param determinizzazione Le mani di tutti i posti e le carte rimanenti.
+     * @return 2 se la squadra del giocatore vince, 1 se pareggia al primo posto, 0 se perde.
+     */
+    public int simula(long[] determinizzazione) {
+        int n = posizione.getNumGiocatori();
+        stato.carica(determinizzazione, posizione.getPrimo(),
+                posizione.getCarteDaPescare() > 0 ? determinizzazione[n] : 0L, banco, posizione.getCarteSulBanco());
+        int numSquadre = posizione.isASquadre() ? 2 : n;
+        while (true) {
+            if (stato.isPresaAppenaChiusa()) {
+                if (stato.getPuntiRimanenti() == 0 && chiusura != ChiusuraAnticipata.MAI) {
+                    break;
+                }
+                if (chiusura == ChiusuraAnticipata.VINCITORE) {
+                    for (int s = 0; s < numSquadre; s++) {
+                        totali[s] = posizione.getPuntiSquadraTerzi(s) + stato.getPunti(s);
+                    }
+                    if (chiusura.isDecisaPer(totali, numSquadre, squadra, stato.getPuntiRimanenti())) {
+                        break;
+                    }
+                }
+                int vincitore = stato.getTurno();
+                for (int k = 0; k < n && stato.getMazzo() != 0; k++) {
+                    long pescabili = stato.getMazzo();
+                    for (int salta = random.nextInt(Long.bitCount(pescabili)); salta > 0; salta--) {
+                        pescabili &= pescabili - 1;
+                    }
+                    stato.pesca((vincitore + k) % n, Long.numberOfTrailingZeros(pescabili));
+                }
+            }
+            long giocabili = stato.getCarteGiocabili();
+            if (stato.isFinita() || giocabili == 0) {
+                break;
+            }
+            for (int salta = random.nextInt(Long.bitCount(giocabili)); salta > 0; salta--) {
+                giocabili &= giocabili - 1;
+            }
+            stato.doMove(Long.numberOfTrailingZeros(giocabili));
+        }
+
+        int nostri = posizione.getPuntiSquadraTerzi(squadra) + stato.getPunti(squadra);
+        int esito = 2;
+        for (int s = 0; s < numSquadre; s++) {
+            if (s != squadra) {
+                int altri = posizione.getPuntiSquadraTerzi(s) + stato.getPunti(s);
+                if (altri > nostri) {
+                    return 0;
+                }
+                if (altri == nostri) {
+                    esito = 1;
+                }
+            }
+        }
+        return esito;
+    }
+
+    /**
+     * Adatta a una posizione successiva della stessa mano una determinizzazione campionata in precedenza.
+     * Resta valida se ogni avversario aveva davvero le carte che ha giocato, non ha in mano carte dei semi
+     * che ha mostrato di non avere e ne ha il numero giusto, e se le carte rimanenti non sono uscite.
+     *
+     * @param determinizzazione La determinizzazione della posizione precedente.
+     * @param posizione         La posizione corrente.
+     * @param posto             Il posto del giocatore dal cui punto di vista si stima.
+     * @param giocate           Per ogni posto, le carte giocate dalla posizione precedente a quella corrente.
+     * @return La determinizzazione adattata, oppure null se non è più coerente con la partita.
+     */
+    public static long[] aggiorna(long[] determinizzazione, Posizione posizione, int posto, long[] giocate) {
+        int n = posizione.getNumGiocatori();
+        long uscite = posizione.getCarteUscite();
+        long[] aggiornata = new long[n + 1];
+        for (int p = 0; p < n; p++) {
+            if (p == posto) {
+                aggiornata[p] = posizione.getMano(p);
+                continue;
+            }
+            if ((giocate[p] & ~determinizzazione[p]) != 0) {
+                return null;
+            }
+            long mano = determinizzazione[p] & ~uscite;
+            long semiMancanti = 0L;
+            for (int seme = 0; seme < 4; seme++) {
+                if ((posizione.getSemiMancanti(p) & (1 << seme)) != 0) {
+                    semiMancanti |= Regole.mascheraSeme(seme);
+                }
+            }
+            long note = posizione.getCarteViste(p) & ~uscite;
+            if ((mano & semiMancanti) != 0 || (note & ~mano) != 0
+                    || Long.bitCount(mano) != Long.bitCount(posizione.getMano(p))) {
+                return null;
+            }
+            aggiornata[p] = mano;
+        }
+        long rimanenti = determinizzazione[n];
+        int numRimanenti = Regole.CARTE_MAZZO - Long.bitCount(uscite);
+        for (int p = 0; p < n; p++) {
+            numRimanenti -= Long.bitCount(posizione.getMano(p));
+        }
+        // Le carte pescate nel frattempo sono uscite dalle rimanenti: il conteggio non torna più
+        if ((rimanenti & (uscite | posizione.getMano(posto))) != 0 || Long.bitCount(rimanenti) != numRimanenti) {
+            return null;
+        }
+        aggiornata[n] = rimanenti;
+        return aggiornata;
+    }
+}
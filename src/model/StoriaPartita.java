@@ -0,0 +1,182 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storia delle posizioni di una partita, con annullamento e ripristino delle mosse.
+ * <p>
+ * La storia è una lista di {@link Posizione} immutabili e un cursore sulla posizione corrente:
+ * annullare o ripristinare sposta solo il cursore, in tempo costante qualunque sia la profondità.
+ * Giocare una carta dopo un annullamento scarta le posizioni successive al cursore.
+ * {@link #dirama(int)} apre una variante da una posizione qualsiasi senza toccare questa storia:
+ * le posizioni in comune sono condivise, non copiate.
+ * <p>
+ * Non è thread-safe; le posizioni, essendo immutabili, possono invece essere passate ad altri thread.
+ */
+public class StoriaPartita {
+    private final List<Posizione> posizioni;
+    private int corrente;
+    private long seed;
+
+    /**
+     * Costruisce una storia vuota.
+     */
+    public StoriaPartita() {
+        this.posizioni = new ArrayList<>(Regole.CARTE_MAZZO + 1);
+        this.corrente = -1;
+    }
+
+    /**
+     * Svuota la storia e la fa partire dalla posizione indicata.
+     *
+     * @param iniziale La posizione iniziale della partita.
+     * @param seed     Il seed della partita, registrato con la storia per poterla rigiocare.
+     */
+    public void inizia(Posizione iniziale, long seed) {
+        this.seed = seed;
+        posizioni.clear();
+        posizioni.add(iniziale);
+        corrente = 0;
+    }
+
+    /**
+     * Svuota la storia: fino al prossimo {@link #inizia} non registra mosse.
+     */
+    public void svuota() {
+        posizioni.clear();
+        corrente = -1;
+    }
+
+    /**
+     * @return Il seed della partita registrata (vedi {@link Tavolo#getSeedPartita()}).
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return true se la storia contiene almeno la posizione iniziale.
+     */
+    public boolean isIniziata() {
+        return corrente >= 0;
+    }
+
+    /**
+     * @return La posizione corrente.
+     * @throws IllegalStateException se la storia non è iniziata.
+     */
+    public Posizione getCorrente() {
+        if (corrente < 0) {
+            throw new IllegalStateException("Storia non iniziata");
+        }
+        return posizioni.get(corrente);
+    }
+
+    /**
+     * @return L'indice della posizione corrente, pari al numero di carte giocate.
+     */
+    public int getIndiceCorrente() {
+        return corrente;
+    }
+
+    /**
+     * @return Il numero di posizioni nella storia, comprese quelle annullate ma ancora ripristinabili.
+     */
+    public int getNumPosizioni() {
+        return posizioni.size();
+    }
+
+    /**
+     * @param indice L'indice della posizione, da 0 (posizione iniziale).
+     * @return La posizione.
+     */
+    public Posizione getPosizione(int indice) {
+        return posizioni.get(indice);
+    }
+
+    /**
+     * Gioca una carta dalla posizione corrente e ne fa la nuova posizione corrente.
+     * Le posizioni annullate e non ripristinate vengono scartate.
+     *
+     * @param carta L'indice della carta giocata dal giocatore di turno.
+     * @return La nuova posizione corrente.
+     * @throws IllegalArgumentException se la carta non è giocabile.
+     */
+    public Posizione gioca(int carta) {
+        Posizione successiva = getCorrente().gioca(carta);
+        posizioni.subList(corrente + 1, posizioni.size()).clear();
+        posizioni.add(successiva);
+        corrente++;
+        return successiva;
+    }
+
+    /**
+     * @return true se c'è una posizione precedente a cui tornare.
+     */
+    public boolean puoAnnullare() {
+        return corrente > 0;
+    }
+
+    /**
+     * @return true se ci sono posizioni annullate da ripristinare.
+     */
+    public boolean puoRipristinare() {
+        return corrente >= 0 && corrente < posizioni.size() - 1;
+    }
+
+    /**
+     * Torna alla posizione precedente.
+     *
+     * @return La nuova posizione corrente.
+     * @throws IllegalStateException se si è già alla posizione iniziale.
+     */
+    public Posizione annulla() {
+        if (!puoAnnullare()) {
+            throw new IllegalStateException("Nessuna mossa da annullare");
+        }
+        return posizioni.get(--corrente);
+    }
+
+    /**
+     * Ripristina la posizione successiva, annullata in precedenza.
+     *
+     * @return La nuova posizione corrente.
+     * @throws IllegalStateException se non ci sono mosse annullate.
+     */
+    public Posizione ripristina() {
+        if (!puoRipristinare()) {
+            throw new IllegalStateException("Nessuna mossa da ripristinare");
+        }
+        return posizioni.get(++corrente);
+    }
+
+    /**
+     * Sposta il cursore su una posizione qualsiasi della storia, senza scartarne nessuna.
+     *
+     * @param indice L'indice della posizione.
+     * @return La nuova posizione corrente.
+     * @throws IndexOutOfBoundsException se l'indice non è nella storia.
+     */
+    public Posizione vaiA(int indice) {
+        Posizione posizione = posizioni.get(indice);
+        corrente = indice;
+        return posizione;
+    }
+
+    /**
+     * Apre una variante: una nuova storia che condivide le posizioni fino a quella indicata,
+     * che diventa la sua posizione corrente. Questa storia non cambia.
+     *
+     * @param indice L'indice della posizione da cui diramare.
+     * @return La nuova storia.
+     * @throws IndexOutOfBoundsException se l'indice non è nella storia.
+     */
+    public StoriaPartita dirama(int indice) {
+        StoriaPartita variante = new StoriaPartita();
+        variante.seed = seed;
+        variante.posizioni.addAll(posizioni.subList(0, indice + 1));
+        variante.corrente = indice;
+        return variante;
+    }
+}
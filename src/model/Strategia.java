@@ -13,4 +13,27 @@ public interface Strategia {
      * @param carta         La carta da considerare per la scartata (es. carta giocata sul banco).
      */
     void scarta(List<Carta> manoGiocatore, CartaBanco carta);
+
+    /**
+     * Sceglie la carta da giocare entro una scadenza.
+     * Le implementazioni che cercano la mossa migliore devono restituire la migliore trovata
+     * fino a quel momento quando la scadenza è raggiunta, e rispondere subito se c'è
+     * una sola carta giocabile. L'implementazione predefinita gioca la prima carta giocabile.
+     *
+     * @param contesto      Ciò che il giocatore conosce della partita.
+     * @param scadenzaNanos L'istante, secondo {@link System#nanoTime()}, entro cui rispondere.
+     * @return L'indice della carta scelta (vedi {@link Carta#getIndice()}).
+     */
+    default int scegliCarta(ContestoDecisione contesto, long scadenzaNanos) {
+        return Long.numberOfTrailingZeros(contesto.getCarteGiocabili());
+    }
+
+    /**
+     * Chiamato all'inizio di ogni partita con il seed che la strategia deve usare per le sue scelte casuali,
+     * così che a parità di seed la partita si ripeta identica. L'implementazione predefinita lo ignora.
+     *
+     * @param seed Il seed della strategia per questa partita.
+     */
+    default void nuovaPartita(long seed) {
+    }
 }
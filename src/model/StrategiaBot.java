@@ -1,22 +1,291 @@
 package model;
 
 import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Implementazione della strategia di gioco per un giocatore bot.
- * La strategia semplice consiste nel rimuovere la prima carta disponibile dalla mano.
+ * La carta viene scelta con simulazioni Monte Carlo "anytime": finché non scade il tempo
+ * concesso, per ogni carta giocabile si distribuiscono a caso le carte ignote agli avversari
+ * con un {@link CampionatoreMani}, rispettando i semi di cui sono noti essere privi, e si gioca
+ * il resto della partita con mosse casuali legali, accumulando i punti ottenuti dalla squadra
+ * del bot (a 4 giocatori il bot gioca quindi per sé e per il compagno).
+ * Allo scadere viene giocata la carta con la media di punti più alta.
+ * <p>
+ * Nella partita a 2 giocatori, se è disponibile la {@link TabellaFinali}, le simulazioni
+ * che arrivano a un finale coperto dalla tabella vengono chiuse con il valore esatto.
+ * <p>
+ * Mentre gioca l'avversario un secondo bot può ponderare le posizioni possibili ({@link #pondera})
+ * in una {@link CacheRicerca} condivisa, che il bot di turno consulta prima di cercare.
  */
 public class StrategiaBot implements Strategia {
+    private SplittableRandom random;
+    private int maxSimulazioni;
+    private final TabellaFinali tabellaFinali = TabellaFinali.predefinita();
+    private final CampionatoreMani campionatore = new CampionatoreMani(4);
+    private StatoRicerca statoRicerca;
+    private CacheRicerca cache;
+    private ChiusuraAnticipata chiusura = ChiusuraAnticipata.PUNTI;
+
+    /**
+     * Durata di ogni tratto di ponderazione, al termine del quale le statistiche vengono pubblicate.
+     */
+    private static final long TRATTO_PONDERAZIONE_NANOS = 50_000_000L;
+
+    /**
+     * Costruisce un bot con simulazioni inizializzate a caso.
+     */
+    public StrategiaBot() {
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * Costruisce un bot le cui simulazioni partono dal seed indicato.
+     *
+     * @param seed Il seed dei generatori casuali del bot.
+     */
+    public StrategiaBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Riparte dal seed della partita.
+     *
+     * @param seed Il seed delle simulazioni per questa partita.
+     */
+    @Override
+    public void nuovaPartita(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
     /**
-     * Scarta la prima carta disponibile nella mano del bot.
+     * Limita il numero di simulazioni per carta candidata. Con un limite, e una scadenza che non
+     * lo interrompe prima, la scelta dipende solo dal seed e non dalla velocità della macchina:
+     * è il modo di rigiocare una partita identica.
+     *
+     * @param maxSimulazioni Le simulazioni per carta candidata, 0 per simulare fino alla scadenza.
+     */
+    public void setMaxSimulazioni(int maxSimulazioni) {
+        this.maxSimulazioni = maxSimulazioni;
+    }
+
+    /**
+     * Sceglie quando chiudere in anticipo le simulazioni. Il bot valuta le carte con i punti attesi,
+     * quindi si ferma solo quando non restano punti in gioco ({@link ChiusuraAnticipata#VINCITORE} vale
+     * come {@link ChiusuraAnticipata#PUNTI}): ogni simulazione dà gli stessi punti che giocandola fino in fondo.
+     * Cambia però la sequenza casuale delle simulazioni successive, quindi le partite con
+     * {@link ChiusuraAnticipata#MAI} non si ripetono identiche con le altre modalità.
+     *
+     * @param chiusura La modalità di chiusura anticipata, {@link ChiusuraAnticipata#PUNTI} per default.
+     */
+    public void setChiusuraAnticipata(ChiusuraAnticipata chiusura) {
+        this.chiusura = chiusura;
+    }
+
+    /**
+     * Scarta dalla mano del bot la carta giocata, scelta in precedenza con {@link #scegliCarta}.
      *
      * @param manoGiocatore La lista delle carte del bot.
-     * @param carta         La carta da considerare (non usata in questa strategia).
+     * @param carta         La carta giocata sul banco.
      */
     @Override
     public void scarta(List<Carta> manoGiocatore, CartaBanco carta) {
-        if (!manoGiocatore.isEmpty()) {
-            manoGiocatore.remove(0);
+        for (int i = 0; i < manoGiocatore.size(); i++) {
+            if (manoGiocatore.get(i).getIndice() == carta.getIndice()) {
+                manoGiocatore.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sceglie la carta con più punti attesi secondo le simulazioni svolte entro la scadenza
+     * (o fino al limite di {@link #setMaxSimulazioni}); a parità di media vince la carta con indice minore.
+     * Se c'è una sola carta giocabile o il tempo è già scaduto risponde immediatamente;
+     * se il thread viene interrotto smette di simulare al giro successivo.
+     * <p>
+     * Con una {@link CacheRicerca} la ricerca riparte dalle statistiche ponderate in precedenza
+     * per lo stesso contesto; se la ponderazione è già durata più del tempo concesso ora,
+     * il bot risponde subito con quella.
+     *
+     * @param contesto      Ciò che il bot conosce della partita.
+     * @param scadenzaNanos L'istante, secondo {@link System#nanoTime()}, entro cui rispondere.
+     * @return L'indice della carta scelta.
+     */
+    @Override
+    public int scegliCarta(ContestoDecisione contesto, long scadenzaNanos) {
+        long giocabili = contesto.getCarteGiocabili();
+        if (Long.bitCount(giocabili) <= 1 || System.nanoTime() >= scadenzaNanos) {
+            return Long.numberOfTrailingZeros(giocabili);
+        }
+        RisultatoRicerca precedente = cache != null ? cache.get(contesto) : null;
+        if (precedente != null && precedente.getNanosRicerca() >= scadenzaNanos - System.nanoTime()) {
+            return precedente.getCandidato(precedente.getMigliore());
+        }
+        RisultatoRicerca risultato = cerca(contesto, scadenzaNanos, precedente);
+        return risultato.getCandidato(risultato.getMigliore());
+    }
+
+    /**
+     * Imposta la cache condivisa in cui cercare le posizioni ponderate; null per non usarla.
+     * Senza cache, il default, le scelte dipendono solo dal seed e dalle simulazioni svolte.
+     *
+     * @param cache La cache dei risultati di ricerca.
+     */
+    public void setCache(CacheRicerca cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Pondera una posizione non ancora raggiunta: simula fino alla scadenza o a un'interruzione
+     * e pubblica man mano le statistiche nella cache, da cui il bot che raggiungerà davvero
+     * quella posizione potrà ripartire. Senza cache non fa nulla.
+     *
+     * @param contesto      Il contesto previsto del bot che dovrà decidere.
+     * @param scadenzaNanos L'istante, secondo {@link System#nanoTime()}, in cui smettere.
+     */
+    public void pondera(ContestoDecisione contesto, long scadenzaNanos) {
+        if (cache == null || Long.bitCount(contesto.getCarteGiocabili()) <= 1) {
+            return;
+        }
+        RisultatoRicerca risultato = cache.get(contesto);
+        while (System.nanoTime() < scadenzaNanos && !Thread.currentThread().isInterrupted()) {
+            long fineTratto = Math.min(scadenzaNanos, System.nanoTime() + TRATTO_PONDERAZIONE_NANOS);
+            risultato = cerca(contesto, fineTratto, risultato);
+            cache.put(contesto, risultato);
+        }
+    }
+
+    /**
+     * Analizza un contesto senza sceglierne la carta: simula fino alla scadenza o a un'interruzione
+     * e restituisce le statistiche di ogni carta giocabile, senza passare dalla cache.
+     * Più bot possono analizzare lo stesso contesto in parallelo e sommarne i risultati
+     * con {@link RisultatoRicerca#unisci}.
+     *
+     * @param contesto      Il contesto da analizzare.
+     * @param scadenzaNanos L'istante, secondo {@link System#nanoTime()}, in cui smettere.
+     * @return Le statistiche delle simulazioni svolte.
+     */
+    public RisultatoRicerca analizza(ContestoDecisione contesto, long scadenzaNanos) {
+        return cerca(contesto, scadenzaNanos, null);
+    }
+
+    /**
+     * Simula ogni carta giocabile a giri fino alla scadenza, all'interruzione del thread o al limite
+     * di simulazioni, partendo dalle statistiche di una ricerca precedente sullo stesso contesto.
+     *
+     * @param precedente Il risultato da cui ripartire, oppure null.
+     * @return Le statistiche accumulate.
+     */
+    private RisultatoRicerca cerca(ContestoDecisione contesto, long scadenzaNanos, RisultatoRicerca precedente) {
+        long inizio = System.nanoTime();
+        long giocabili = contesto.getCarteGiocabili();
+        int numCandidati = Long.bitCount(giocabili);
+        int[] candidati = new int[numCandidati];
+        for (int i = 0; i < numCandidati; i++) {
+            candidati[i] = Long.numberOfTrailingZeros(giocabili);
+            giocabili &= giocabili - 1;
+        }
+        long[] sommaPunti = new long[numCandidati];
+        int[] simulazioni = new int[numCandidati];
+        long nanosPrecedenti = 0;
+        if (precedente != null) {
+            for (int i = 0; i < numCandidati; i++) {
+                sommaPunti[i] = precedente.getSommaPunti(i);
+                simulazioni[i] = precedente.getSimulazioni(i);
+            }
+            nanosPrecedenti = precedente.getNanosRicerca();
+        }
+
+        int numGiocatori = contesto.getNumGiocatori();
+        int posto = contesto.getPosto();
+        int[] postoDestinatario = new int[numGiocatori];
+        int numDestinatari = campionatore.preparaPer(contesto, postoDestinatario);
+        int indiceResto = postoDestinatario[numDestinatari - 1] < 0 ? numDestinatari - 1 : -1;
+        boolean conPesca = contesto.getCarteDaPescare() > 0;
+
+        long[] distribuzione = new long[numDestinatari];
+        long[] mani = new long[numGiocatori];
+        if (statoRicerca == null || statoRicerca.getNumGiocatori() != numGiocatori) {
+            statoRicerca = new StatoRicerca(numGiocatori, contesto.isASquadre());
+        }
+
+        for (int giro = 0; maxSimulazioni == 0 || giro < maxSimulazioni; giro++) {
+            // Un thread interrotto (decisione annullata) risponde subito con quanto ha simulato
+            if (System.nanoTime() >= scadenzaNanos || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            for (int i = 0; i < numCandidati; i++) {
+                campionatore.campiona(random, distribuzione);
+                for (int d = 0; d < numDestinatari; d++) {
+                    if (postoDestinatario[d] >= 0) {
+                        mani[postoDestinatario[d]] = distribuzione[d] | contesto.getCarteNote(postoDestinatario[d]);
+                    }
+                }
+                mani[posto] = contesto.getMano();
+                long mazzo = conPesca && indiceResto >= 0 ? distribuzione[indiceResto] : 0L;
+                sommaPunti[i] += simula(contesto, candidati[i], mani, mazzo);
+                simulazioni[i]++;
+            }
+        }
+        return new RisultatoRicerca(candidati, sommaPunti, simulazioni, nanosPrecedenti + System.nanoTime() - inizio);
+    }
+
+    /**
+     * Esegue una simulazione a partire da una distribuzione delle mani già campionata:
+     * gioca la carta candidata e completa la partita con mosse casuali legali su {@link StatoRicerca},
+     * o finché non restano punti in gioco (vedi {@link #setChiusuraAnticipata}).
+     * Se il mazzo non è vuoto, dopo ogni presa ciascun giocatore pesca una carta a caso,
+     * a partire dal vincitore.
+     *
+     * @return I punti in terzi ottenuti dalla squadra del bot dal momento della decisione a fine partita.
+     */
+    private int simula(ContestoDecisione contesto, int candidata, long[] mani, long mazzo) {
+        int numGiocatori = contesto.getNumGiocatori();
+        int squadra = contesto.getSquadra(contesto.getPosto());
+        StatoRicerca stato = statoRicerca;
+        stato.carica(contesto, mani, mazzo);
+        stato.doMove(candidata);
+        int puntiFinale = 0;
+
+        while (true) {
+            if (stato.getCarteInPresa() == 0) {
+                // Le prese rimanenti non possono più cambiare i punti: la simulazione è già finita
+                if (chiusura != ChiusuraAnticipata.MAI && stato.getPuntiRimanenti() == 0) {
+                    break;
+                }
+                int vincitore = stato.getTurno();
+                for (int k = 0; k < numGiocatori && stato.getMazzo() != 0; k++) {
+                    long pescabili = stato.getMazzo();
+                    for (int salta = random.nextInt(Long.bitCount(pescabili)); salta > 0; salta--) {
+                        pescabili &= pescabili - 1;
+                    }
+                    stato.pesca((vincitore + k) % numGiocatori, Long.numberOfTrailingZeros(pescabili));
+                }
+                if (stato.isFinita()) {
+                    break;
+                }
+                if (numGiocatori == 2 && stato.getMazzo() == 0 && tabellaFinali != null
+                        && Long.bitCount(stato.getMano(vincitore)) <= tabellaFinali.getMaxCarte()) {
+                    long manoPrimo = stato.getMano(vincitore);
+                    long manoAltro = stato.getMano(1 - vincitore);
+                    int valore = tabellaFinali.valore(manoPrimo, manoAltro);
+                    if (valore >= 0) {
+                        int rimanenti = TabellaFinali.puntiTerzi(manoPrimo | manoAltro);
+                        puntiFinale = contesto.getSquadra(vincitore) == squadra ? valore : rimanenti - valore;
+                        break;
+                    }
+                }
+            }
+            long giocabili = stato.getCarteGiocabili();
+            if (giocabili == 0) {
+                break;
+            }
+            for (int salta = random.nextInt(Long.bitCount(giocabili)); salta > 0; salta--) {
+                giocabili &= giocabili - 1;
+            }
+            stato.doMove(Long.numberOfTrailingZeros(giocabili));
         }
+        return stato.getPunti(squadra) + puntiFinale;
     }
 }
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Strategia che gioca una carta a caso tra quelle giocabili.
+ * Serve come avversario di riferimento nelle simulazioni e per misurare il motore di gioco
+ * senza il costo delle decisioni dei bot.
+ */
+public class StrategiaCasuale implements Strategia {
+    private SplittableRandom random;
+
+    /**
+     * Costruisce la strategia con il seed indicato, così le scelte sono riproducibili.
+     *
+     * @param seed Il seed del generatore casuale.
+     */
+    public StrategiaCasuale(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Riparte dal seed della partita.
+     *
+     * @param seed Il seed della strategia per questa partita.
+     */
+    @Override
+    public void nuovaPartita(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Scarta dalla mano la carta giocata.
+     *
+     * @param manoGiocatore La lista delle carte del giocatore.
+     * @param carta         La carta giocata sul banco.
+     */
+    @Override
+    public void scarta(List<Carta> manoGiocatore, CartaBanco carta) {
+        for (int i = 0; i < manoGiocatore.size(); i++) {
+            if (manoGiocatore.get(i).getIndice() == carta.getIndice()) {
+                manoGiocatore.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sceglie in modo uniforme una delle carte giocabili, senza usare il tempo concesso.
+     *
+     * @param contesto      Ciò che il giocatore conosce della partita.
+     * @param scadenzaNanos Ignorata.
+     * @return L'indice della carta scelta.
+     */
+    @Override
+    public int scegliCarta(ContestoDecisione contesto, long scadenzaNanos) {
+        long giocabili = contesto.getCarteGiocabili();
+        for (int salta = random.nextInt(Long.bitCount(giocabili)); salta > 0; salta--) {
+            giocabili &= giocabili - 1;
+        }
+        return Long.numberOfTrailingZeros(giocabili);
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Avvolge una strategia di cui non ci si fida, tipicamente di terze parti, perché non possa bloccare il tavolo.
+ * <p>
+ * Ogni scelta viene calcolata su un thread dedicato e attesa fino alla scadenza della mossa più una
+ * {@link #TOLLERANZA_NANOS tolleranza}. Se la strategia sfora, lancia un'eccezione o restituisce una carta
+ * non giocabile, si gioca la carta giocabile di indice minore e la strategia viene interrotta.
+ * Finché un calcolo sforato non termina, le mosse successive usano direttamente la carta di riserva:
+ * la strategia, non thread-safe, non viene mai chiamata da due thread insieme.
+ * La carta giocata viene tolta dalla mano da questa classe: {@link Strategia#scarta} della strategia avvolta
+ * non viene mai chiamato, così una strategia difettosa non può alterare la mano.
+ */
+public class StrategiaConLimite implements Strategia {
+    /**
+     * Ritardo concesso oltre la scadenza prima di giocare la carta di riserva.
+     */
+    public static final long TOLLERANZA_NANOS = 100_000_000L;
+
+    private final String nome;
+    private final Strategia strategia;
+    private final ExecutorService esecutore;
+    private Future<Integer> inCorso;
+    private volatile boolean occupata;
+    private int sforamenti;
+    private int errori;
+
+    /**
+     * Avvolge la strategia indicata.
+     *
+     * @param nome      Il nome della strategia, per i messaggi e il nome del thread.
+     * @param strategia La strategia da limitare.
+     */
+    public StrategiaConLimite(String nome, Strategia strategia) {
+        this.nome = nome;
+        this.strategia = strategia;
+        this.esecutore = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "j3sette-strategia-" + nome);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Toglie dalla mano la carta giocata, senza coinvolgere la strategia avvolta.
+     *
+     * @param manoGiocatore La lista delle carte del giocatore.
+     * @param carta         La carta giocata sul banco.
+     */
+    @Override
+    public void scarta(List<Carta> manoGiocatore, CartaBanco carta) {
+        for (int i = 0; i < manoGiocatore.size(); i++) {
+            if (manoGiocatore.get(i).getIndice() == carta.getIndice()) {
+                manoGiocatore.remove(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int scegliCarta(ContestoDecisione contesto, long scadenzaNanos) {
+        long giocabili = contesto.getCarteGiocabili();
+        int riserva = Long.numberOfTrailingZeros(giocabili);
+        // Un calcolo annullato risulta concluso anche se la strategia ignora l'interruzione e prosegue
+        if (occupata || (inCorso != null && !inCorso.isDone())) {
+            System.err.println("Strategia " + nome + " ancora occupata: gioca la carta di riserva");
+            return riserva;
+        }
+        inCorso = esecutore.submit(() -> {
+            occupata = true;
+            try {
+                return strategia.scegliCarta(contesto, scadenzaNanos);
+            } finally {
+                occupata = false;
+            }
+        });
+        try {
+            long attesa = scadenzaNanos + TOLLERANZA_NANOS - System.nanoTime();
+            int indice = inCorso.get(Math.max(0, attesa), TimeUnit.NANOSECONDS);
+            if (indice < 0 || indice >= 64 || (giocabili & (1L << indice)) == 0) {
+                errori++;
+                System.err.println("Strategia " + nome + ": carta " + indice + " non giocabile, gioca la carta di riserva");
+                return riserva;
+            }
+            return indice;
+        } catch (TimeoutException e) {
+            sforamenti++;
+            inCorso.cancel(true);
+            System.err.println("Strategia " + nome + " fuori tempo: gioca la carta di riserva");
+            return riserva;
+        } catch (ExecutionException e) {
+            errori++;
+            System.err.println("ERRORE nella strategia " + nome + ": " + e.getCause());
+            return riserva;
+        } catch (InterruptedException e) {
+            inCorso.cancel(true);
+            Thread.currentThread().interrupt();
+            return riserva;
+        }
+    }
+
+    @Override
+    public void nuovaPartita(long seed) {
+        // In coda sullo stesso thread: arriva prima della prossima scelta e mai durante un calcolo sforato
+        esecutore.execute(() -> strategia.nuovaPartita(seed));
+    }
+
+    /**
+     * @return Le mosse in cui la strategia ha sforato il tempo.
+     */
+    public int getSforamenti() {
+        return sforamenti;
+    }
+
+    /**
+     * @return Le mosse in cui la strategia ha fallito o scelto una carta non giocabile.
+     */
+    public int getErrori() {
+        return errori;
+    }
+
+    /**
+     * @return La strategia avvolta.
+     */
+    public Strategia getStrategia() {
+        return strategia;
+    }
+}
@@ -16,9 +16,6 @@ public class StrategiaUmano implements Strategia {
      */
     @Override
     public void scarta(List<Carta> manoGiocatore, CartaBanco carta) {
-        manoGiocatore.removeIf(c ->
-                c.getValore() == carta.getValore() &&
-                        c.getSeme().equals(carta.getSeme())
-        );
+        manoGiocatore.removeIf(c -> c.getIndice() == carta.getIndice());
     }
 }
@@ -0,0 +1,349 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Tabella dei finali a informazione completa per la partita a 2 giocatori.
+ * Per ogni coppia di mani disgiunte con al più {@code K} carte ciascuna, all'inizio di una presa,
+ * contiene i punti (in terzi) che il giocatore di mano ottiene da lì a fine partita
+ * giocando entrambi in modo ottimo.
+ * <p>
+ * La tabella viene prodotta offline da {@link GeneratoreTabellaFinali} e letta tramite un
+ * {@link MappedByteBuffer}: l'apertura è immediata e i dati non vengono copiati nello heap.
+ * <p>
+ * Formato del file: intestazione di {@value #DIMENSIONE_INTESTAZIONE} byte
+ * (magic, versione, K), poi per k = 1..K una sezione di {@code C(40,k) * C(40-k,k)} byte
+ * indicizzata con {@link #indice(long, long, int)}.
+ */
+public class TabellaFinali {
+    /**
+     * Numero magico all'inizio del file ("J3TF").
+     */
+    static final int MAGIC = 0x4A335446;
+
+    /**
+     * Versione del formato del file.
+     */
+    static final int VERSIONE = 1;
+
+    /**
+     * Dimensione in byte dell'intestazione.
+     */
+    static final int DIMENSIONE_INTESTAZIONE = 16;
+
+    /**
+     * Massimo numero di carte per mano supportato: con 3 carte il file occupa circa 77 MB,
+     * con 4 supererebbe i 6 GB.
+     */
+    public static final int MAX_CARTE_SUPPORTATE = 3;
+
+    /**
+     * Percorso predefinito del file, sovrascrivibile con la proprietà {@code j3sette.tabellaFinali}.
+     */
+    public static final String PERCORSO_PREDEFINITO = "tressette-finali.bin";
+
+    private static final long[][] BINOMIALE = new long[Regole.CARTE_MAZZO + 1][Regole.CARTE_MAZZO + 1];
+
+    static {
+        for (int n = 0; n <= Regole.CARTE_MAZZO; n++) {
+            BINOMIALE[n][0] = 1;
+            for (int r = 1; r <= n; r++) {
+                BINOMIALE[n][r] = BINOMIALE[n - 1][r - 1] + BINOMIALE[n - 1][r];
+            }
+        }
+    }
+
+    private static TabellaFinali predefinita;
+    private static boolean predefinitaCaricata;
+
+    private final MappedByteBuffer dati;
+    private final int maxCarte;
+    private final long[] inizioSezione;
+
+    private TabellaFinali(MappedByteBuffer dati, int maxCarte) {
+        this.dati = dati;
+        this.maxCarte = maxCarte;
+        this.inizioSezione = offsetSezioni(maxCarte);
+    }
+
+    /**
+     * Mappa in memoria una tabella dei finali.
+     *
+     * @param file Il file prodotto da {@link GeneratoreTabellaFinali}.
+     * @return La tabella pronta per le consultazioni.
+     * @throws IOException se il file non esiste, non è leggibile o non è una tabella valida.
+     */
+    public static TabellaFinali apri(Path file) throws IOException {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer dati = canale.map(FileChannel.MapMode.READ_ONLY, 0, canale.size());
+            dati.order(ByteOrder.BIG_ENDIAN);
+            if (canale.size() < DIMENSIONE_INTESTAZIONE || dati.getInt(0) != MAGIC || dati.getInt(4) != VERSIONE) {
+                throw new IOException("File non valido per la tabella dei finali: " + file);
+            }
+            int maxCarte = dati.getInt(8);
+            if (maxCarte < 1 || maxCarte > MAX_CARTE_SUPPORTATE) {
+                throw new IOException("Numero di carte non supportato nella tabella dei finali: " + maxCarte);
+            }
+            long atteso = offsetSezioni(maxCarte)[maxCarte + 1];
+            if (canale.size() != atteso) {
+                throw new IOException("Dimensione inattesa della tabella dei finali: " + canale.size() + " invece di " + atteso);
+            }
+            return new TabellaFinali(dati, maxCarte);
+        }
+    }
+
+    /**
+     * Restituisce la tabella predefinita, caricandola al primo utilizzo se il file esiste.
+     *
+     * @return La tabella, oppure {@code null} se non è disponibile.
+     */
+    public static synchronized TabellaFinali predefinita() {
+        if (!predefinitaCaricata) {
+            predefinitaCaricata = true;
+            Path file = Paths.get(System.getProperty("j3sette.tabellaFinali", PERCORSO_PREDEFINITO));
+            if (Files.isRegularFile(file)) {
+                try {
+                    predefinita = apri(file);
+                    System.out.println("Tabella dei finali caricata: " + file + " (K=" + predefinita.maxCarte + ")");
+                } catch (IOException e) {
+                    System.err.println("Tabella dei finali non caricata: " + e.getMessage());
+                }
+            }
+        }
+        return predefinita;
+    }
+
+    /**
+     * @return Il numero massimo di carte per giocatore coperto dalla tabella.
+     */
+    public int getMaxCarte() {
+        return maxCarte;
+    }
+
+    /**
+     * Restituisce i punti che il giocatore di mano ottiene da qui a fine partita con gioco ottimo.
+     *
+     * @param manoPrimo   La maschera della mano di chi esce.
+     * @param manoSecondo La maschera della mano dell'avversario (stesso numero di carte).
+     * @return I punti in terzi per chi esce, oppure -1 se la posizione non è coperta.
+     */
+    public int valore(long manoPrimo, long manoSecondo) {
+        int k = Long.bitCount(manoPrimo);
+        if (k == 0) {
+            return 0;
+        }
+        if (k > maxCarte || Long.bitCount(manoSecondo) != k || (manoPrimo & manoSecondo) != 0) {
+            return -1;
+        }
+        return dati.get((int) (inizioSezione[k] + indice(manoPrimo, manoSecondo, k)));
+    }
+
+    /**
+     * Calcola il valore ottimo per chi esce dopo aver giocato una carta, a presa aperta:
+     * l'avversario risponde con la carta legale che minimizza i punti di chi è uscito.
+     *
+     * @param manoPrimo   La mano di chi esce, senza la carta già giocata.
+     * @param uscita      La carta giocata in uscita.
+     * @param manoSecondo La mano dell'avversario, che deve ancora rispondere.
+     * @return I punti in terzi per chi è uscito, presa corrente compresa, oppure -1 se la posizione
+     *         non è coperta: in tal caso chi chiama deve ricorrere alla ricerca.
+     */
+    public int valoreDopoUscita(long manoPrimo, int uscita, long manoSecondo) {
+        long bitUscita = 1L << uscita;
+        if (Long.bitCount(manoPrimo) + 1 > maxCarte || Long.bitCount(manoSecondo) != Long.bitCount(manoPrimo) + 1
+                || (manoPrimo & manoSecondo) != 0 || ((manoPrimo | manoSecondo) & bitUscita) != 0) {
+            return -1;
+        }
+        int rimanenti = puntiTerzi(manoPrimo) + puntiTerzi(manoSecondo) + Regole.puntiTerzi(uscita);
+        int migliore = Integer.MAX_VALUE;
+        int[] presa = new int[2];
+        presa[0] = uscita;
+        for (long r = Regole.carteGiocabili(manoSecondo, Regole.seme(uscita)); r != 0; r &= r - 1) {
+            int risposta = Long.numberOfTrailingZeros(r);
+            presa[1] = risposta;
+            long restoSecondo = manoSecondo & ~(1L << risposta);
+            int puntiPresa = Regole.puntiTerzi(uscita) + Regole.puntiTerzi(risposta);
+            int valore;
+            if (Regole.vincitorePresa(presa, 2) == 0) {
+                int seguito = valore(manoPrimo, restoSecondo);
+                if (seguito < 0) {
+                    return -1;
+                }
+                valore = puntiPresa + seguito;
+            } else {
+                int seguito = valore(restoSecondo, manoPrimo);
+                if (seguito < 0) {
+                    return -1;
+                }
+                valore = rimanenti - seguito;
+            }
+            migliore = Math.min(migliore, valore);
+        }
+        return migliore;
+    }
+
+    /**
+     * Verifica la tabella contro un minimax esaustivo su posizioni casuali, sia all'inizio della presa
+     * ({@link #valore}) sia a presa aperta ({@link #valoreDopoUscita}).
+     * Se il file non esiste, la tabella viene prima generata in un file temporaneo.
+     * <p>
+     * Uso: {@code java model.TabellaFinali [posizioni] [file]} (predefiniti: 200000 e
+     * {@value #PERCORSO_PREDEFINITO}).
+     *
+     * @param args Argomenti opzionali: il numero di posizioni da verificare e il percorso della tabella.
+     * @throws IOException se la tabella non può essere letta o generata.
+     */
+    public static void main(String[] args) throws IOException {
+        int posizioni = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Path file = Paths.get(args.length > 1 ? args[1] : PERCORSO_PREDEFINITO);
+        if (!Files.isRegularFile(file)) {
+            file = Files.createTempFile("tressette-finali", ".bin");
+            file.toFile().deleteOnExit();
+            GeneratoreTabellaFinali.genera(MAX_CARTE_SUPPORTATE, file);
+        }
+        TabellaFinali tabella = apri(file);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] carte = new int[Regole.CARTE_MAZZO];
+        for (int i = 0; i < posizioni; i++) {
+            for (int c = 0; c < carte.length; c++) {
+                int j = random.nextInt(c + 1);
+                carte[c] = carte[j];
+                carte[j] = c;
+            }
+            int k = 1 + random.nextInt(tabella.maxCarte);
+            long manoPrimo = 0L;
+            long manoSecondo = 0L;
+            for (int c = 0; c < k; c++) {
+                manoPrimo |= 1L << carte[c];
+                manoSecondo |= 1L << carte[k + c];
+            }
+            int atteso = minimax(manoPrimo, manoSecondo);
+            if (tabella.valore(manoPrimo, manoSecondo) != atteso) {
+                throw new IllegalStateException("Valore errato per " + Long.toHexString(manoPrimo)
+                        + " contro " + Long.toHexString(manoSecondo) + ": " + tabella.valore(manoPrimo, manoSecondo)
+                        + " invece di " + atteso);
+            }
+            int uscita = carte[random.nextInt(k)];
+            long restoPrimo = manoPrimo & ~(1L << uscita);
+            atteso = minimaxDopoUscita(restoPrimo, uscita, manoSecondo);
+            if (tabella.valoreDopoUscita(restoPrimo, uscita, manoSecondo) != atteso) {
+                throw new IllegalStateException("Valore a presa aperta errato per " + Long.toHexString(restoPrimo)
+                        + " con uscita " + uscita + " contro " + Long.toHexString(manoSecondo));
+            }
+        }
+        if (tabella.valore(0b11L, 0b100L) != -1 || tabella.valoreDopoUscita(0b1L, 1, 0b100L) != -1) {
+            throw new IllegalStateException("Posizione non valida considerata coperta");
+        }
+        System.out.println("Tabella dei finali verificata su " + posizioni + " posizioni (K=" + tabella.maxCarte + ")");
+    }
+
+    /**
+     * Valore ottimo per chi esce calcolato esplorando tutte le giocate, senza la tabella.
+     */
+    private static int minimax(long manoPrimo, long manoSecondo) {
+        int migliore = 0;
+        for (long u = manoPrimo; u != 0; u &= u - 1) {
+            int uscita = Long.numberOfTrailingZeros(u);
+            migliore = Math.max(migliore, minimaxDopoUscita(manoPrimo & ~(1L << uscita), uscita, manoSecondo));
+        }
+        return migliore;
+    }
+
+    private static int minimaxDopoUscita(long manoPrimo, int uscita, long manoSecondo) {
+        int rimanenti = puntiTerzi(manoPrimo) + puntiTerzi(manoSecondo) + Regole.puntiTerzi(uscita);
+        int migliore = Integer.MAX_VALUE;
+        int[] presa = {uscita, 0};
+        for (long r = Regole.carteGiocabili(manoSecondo, Regole.seme(uscita)); r != 0; r &= r - 1) {
+            int risposta = Long.numberOfTrailingZeros(r);
+            presa[1] = risposta;
+            long restoSecondo = manoSecondo & ~(1L << risposta);
+            int valore;
+            if (Regole.vincitorePresa(presa, 2) == 0) {
+                valore = Regole.puntiTerzi(uscita) + Regole.puntiTerzi(risposta) + minimax(manoPrimo, restoSecondo);
+            } else {
+                valore = rimanenti - minimax(restoSecondo, manoPrimo);
+            }
+            migliore = Math.min(migliore, valore);
+        }
+        return migliore;
+    }
+
+    /**
+     * Calcola la somma dei punti in terzi delle carte di una maschera.
+     *
+     * @param carte La maschera delle carte.
+     * @return I punti in terzi.
+     */
+    static int puntiTerzi(long carte) {
+        int punti = 0;
+        for (long m = carte; m != 0; m &= m - 1) {
+            punti += Regole.puntiTerzi(Long.numberOfTrailingZeros(m));
+        }
+        return punti;
+    }
+
+    /**
+     * Calcola l'indice di una posizione all'interno della sezione con {@code k} carte per mano:
+     * il rango colessicografico della mano di chi esce, moltiplicato per il numero di mani
+     * possibili dell'avversario, più il rango della mano dell'avversario tra le carte rimanenti.
+     *
+     * @param manoPrimo   La mano di chi esce.
+     * @param manoSecondo La mano dell'avversario.
+     * @param k           Il numero di carte per mano.
+     * @return L'indice della posizione nella sezione.
+     */
+    static long indice(long manoPrimo, long manoSecondo, int k) {
+        long compressa = 0L;
+        for (long m = manoSecondo; m != 0; m &= m - 1) {
+            int bit = Long.numberOfTrailingZeros(m);
+            compressa |= 1L << (bit - Long.bitCount(manoPrimo & ((1L << bit) - 1)));
+        }
+        return rango(manoPrimo) * BINOMIALE[Regole.CARTE_MAZZO - k][k] + rango(compressa);
+    }
+
+    /**
+     * Calcola il rango colessicografico di una combinazione rappresentata come maschera.
+     */
+    static long rango(long maschera) {
+        long rango = 0;
+        int i = 1;
+        for (long m = maschera; m != 0; m &= m - 1) {
+            rango += BINOMIALE[Long.numberOfTrailingZeros(m)][i++];
+        }
+        return rango;
+    }
+
+    /**
+     * @return Il coefficiente binomiale C(n, r).
+     */
+    static long binomiale(int n, int r) {
+        return BINOMIALE[n][r];
+    }
+
+    /**
+     * @return Il numero di posizioni nella sezione con {@code k} carte per mano.
+     */
+    static long dimensioneSezione(int k) {
+        return BINOMIALE[Regole.CARTE_MAZZO][k] * BINOMIALE[Regole.CARTE_MAZZO - k][k];
+    }
+
+    /**
+     * Calcola l'offset di ogni sezione nel file; l'elemento {@code maxCarte + 1} è la dimensione totale.
+     */
+    static long[] offsetSezioni(int maxCarte) {
+        long[] offset = new long[maxCarte + 2];
+        offset[1] = DIMENSIONE_INTESTAZIONE;
+        for (int k = 1; k <= maxCarte; k++) {
+            offset[k + 1] = offset[k] + dimensioneSezione(k);
+        }
+        return offset;
+    }
+}
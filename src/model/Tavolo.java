@@ -1,7 +1,16 @@
 package model;
 
+import util.AudioManager;
+import util.GameMetrics;
+import util.SplitMix64;
+import util.jfr.ControllaPresaEvent;
+import util.jfr.EventiJfr;
+import util.jfr.GiocataCartaEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Rappresenta il tavolo di gioco, che gestisce lo stato della partita,
@@ -9,11 +18,25 @@ import java.util.Optional;
  * Estende {@link Observable} per notificare le modifiche agli osservatori.
  */
 public class Tavolo extends Observable {
+    private static volatile boolean cronacaAbilitata = true;
+
     private String immagine;
     private int numeroPartita;
     private List<Giocatore> giocatori;
     private Mazzo mazzo;
     private StatoMano statoMano;
+    private boolean partitaInCorso;
+    private long carteUscite;
+    private int[] semiMancanti;
+    private long[] carteViste;
+    private Carta[] ultimePescate;
+    private int[] puntiSquadraTerzi;
+    private int[] vittorieSquadra;
+    private Incontro incontro;
+    private final PubblicatoreEventi eventi = new PubblicatoreEventi();
+    private final StoriaPartita storia = new StoriaPartita();
+    private long budgetMossaMillis = 500;
+    private long seed = ThreadLocalRandom.current().nextLong();
 
     /**
      * Costruisce un tavolo di gioco con immagine, numero partita, lista giocatori e mazzo.
@@ -29,6 +52,12 @@ public class Tavolo extends Observable {
         this.giocatori = giocatori;
         this.mazzo = mazzo;
         this.statoMano = new StatoMano();
+        this.semiMancanti = new int[giocatori.size()];
+        this.carteViste = new long[giocatori.size()];
+        this.ultimePescate = new Carta[giocatori.size()];
+        this.puntiSquadraTerzi = new int[getNumSquadre()];
+        this.vittorieSquadra = new int[getNumSquadre()];
+        this.incontro = new Incontro(Incontro.OBIETTIVO_PREDEFINITO, getNumSquadre());
     }
 
     /**
@@ -49,6 +78,53 @@ public class Tavolo extends Observable {
         return giocatori;
     }
 
+    /**
+     * Restituisce il posto al tavolo di un giocatore. Il confronto è per identità,
+     * così due giocatori con lo stesso nome restano distinti.
+     *
+     * @param giocatore Il giocatore da cercare.
+     * @return L'indice del giocatore in {@link #getGiocatori()}, oppure -1 se non siede al tavolo.
+     */
+    public int getPosto(Giocatore giocatore) {
+        for (int posto = 0; posto < giocatori.size(); posto++) {
+            if (giocatori.get(posto) == giocatore) {
+                return posto;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Restituisce il flusso degli eventi di gioco del tavolo.
+     * A differenza degli {@link Observer}, chiamati in modo sincrono a ogni modifica,
+     * i sottoscrittori ricevono gli eventi su un altro thread con un buffer limitato ciascuno,
+     * così registratori, spettatori e trasmissioni in rete non rallentano la partita.
+     *
+     * @return Il pubblicatore degli eventi.
+     */
+    public PubblicatoreEventi getEventi() {
+        return eventi;
+    }
+
+    /**
+     * Restituisce la storia delle posizioni della partita in corso, aggiornata a ogni carta giocata.
+     * Per riportare il tavolo a una posizione usare {@link #vaiAPosizione(int)}.
+     *
+     * @return La storia della partita.
+     */
+    public StoriaPartita getStoria() {
+        return storia;
+    }
+
+    /**
+     * Indica se la partita è in corso: carte distribuite e fine partita non ancora registrata.
+     *
+     * @return true se la partita è in corso.
+     */
+    public boolean isPartitaInCorso() {
+        return partitaInCorso;
+    }
+
     /**
      * Restituisce lo stato corrente della mano di gioco.
      *
@@ -58,31 +134,290 @@ public class Tavolo extends Observable {
         return statoMano;
     }
 
+    /**
+     * Indica se si gioca a coppie fisse: a 4 giocatori i posti 0 e 2 sono contro i posti 1 e 3.
+     *
+     * @return true se i giocatori sono divisi in due squadre.
+     */
+    public boolean isASquadre() {
+        return giocatori.size() == 4;
+    }
+
+    /**
+     * Restituisce il numero di squadre: 2 se si gioca a coppie, altrimenti una per giocatore.
+     *
+     * @return Il numero di squadre.
+     */
+    public int getNumSquadre() {
+        return isASquadre() ? 2 : giocatori.size();
+    }
+
+    /**
+     * Restituisce la squadra del giocatore al posto indicato.
+     *
+     * @param posto L'indice del giocatore in {@link #getGiocatori()}.
+     * @return L'indice della squadra.
+     */
+    public int getSquadra(int posto) {
+        return posto % getNumSquadre();
+    }
+
+    /**
+     * Restituisce il posto del compagno di squadra.
+     *
+     * @param posto L'indice del giocatore in {@link #getGiocatori()}.
+     * @return Il posto del compagno, oppure -1 se non si gioca a coppie.
+     */
+    public int getCompagno(int posto) {
+        return isASquadre() ? (posto + 2) % 4 : -1;
+    }
+
+    /**
+     * Restituisce i punti della squadra nella partita in corso, aggiornati a ogni presa.
+     *
+     * @param squadra L'indice della squadra.
+     * @return I punti della squadra.
+     */
+    public double getPunteggioSquadra(int squadra) {
+        return puntiSquadraTerzi[squadra] / 3.0;
+    }
+
+    /**
+     * Restituisce il numero di partite vinte dalla squadra.
+     *
+     * @param squadra L'indice della squadra.
+     * @return Le partite vinte.
+     */
+    public int getVittorieSquadra(int squadra) {
+        return vittorieSquadra[squadra];
+    }
+
+    /**
+     * Restituisce il nome di una squadra: il nome del giocatore, oppure i nomi dei due compagni.
+     *
+     * @param squadra L'indice della squadra.
+     * @return Il nome della squadra.
+     */
+    public String getNomeSquadra(int squadra) {
+        String nome = giocatori.get(squadra).getNome();
+        return isASquadre() ? nome + " e " + giocatori.get(getCompagno(squadra)).getNome() : nome;
+    }
+
+    /**
+     * Restituisce l'incontro ai punti in corso, la cui classifica sopravvive a {@link #reset()}.
+     *
+     * @return L'incontro in corso.
+     */
+    public Incontro getIncontro() {
+        return incontro;
+    }
+
+    /**
+     * Sostituisce l'incontro in corso, ad esempio con uno ripristinato da disco.
+     *
+     * @param incontro Il nuovo incontro.
+     * @throws IllegalArgumentException se l'incontro ha un numero di squadre diverso dal tavolo.
+     */
+    public void setIncontro(Incontro incontro) {
+        if (incontro.getNumSquadre() != getNumSquadre()) {
+            throw new IllegalArgumentException("L'incontro ha " + incontro.getNumSquadre() +
+                    " squadre, il tavolo " + getNumSquadre());
+        }
+        this.incontro = incontro;
+        notifyObservers();
+    }
+
+    /**
+     * Inizia un nuovo incontro con lo stesso obiettivo di quello in corso.
+     */
+    public void nuovoIncontro() {
+        setIncontro(new Incontro(incontro.getObiettivo(), getNumSquadre()));
+    }
+
+    /**
+     * Restituisce il giocatore che apre la prima presa: nell'incontro il primo di mano
+     * ruota a ogni partita.
+     *
+     * @return L'indice del giocatore di mano.
+     */
+    public int getPrimoDiMano() {
+        return incontro.getManiGiocate() % giocatori.size();
+    }
+
+    /**
+     * Indica se si gioca con la pesca dal mazzo dopo ogni presa, come nel Tressette a 2 giocatori.
+     *
+     * @return true se i giocatori pescano dal mazzo dopo ogni presa.
+     */
+    public boolean isConPesca() {
+        return giocatori.size() == 2;
+    }
+
+    /**
+     * Restituisce il numero di carte ancora da pescare dal mazzo.
+     *
+     * @return Le carte nel mazzo se si gioca con la pesca, altrimenti 0.
+     */
+    public int getCarteDaPescare() {
+        return isConPesca() ? mazzo.carteRimanenti() : 0;
+    }
+
+    /**
+     * Restituisce l'ultima carta pescata, scoperta, dal giocatore al posto indicato.
+     *
+     * @param posto L'indice del giocatore in {@link #getGiocatori()}.
+     * @return L'ultima carta pescata, oppure null se il giocatore non ha ancora pescato.
+     */
+    public Carta getUltimaPescata(int posto) {
+        return ultimePescate[posto];
+    }
+
+    /**
+     * Restituisce il seed del tavolo, da cui si ricavano quelli di ogni partita.
+     *
+     * @return Il seed del tavolo.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Imposta il seed del tavolo. Ogni partita ne ricava il proprio con {@link SplitMix64#deriva}
+     * dal suo numero progressivo, e da questo il mescolamento del mazzo e i seed delle strategie
+     * di ciascun posto: a parità di seed, numero di partita e scelte dei giocatori la partita si ripete identica.
+     *
+     * @param seed Il seed del tavolo.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Restituisce il numero progressivo della partita corrente.
+     *
+     * @return Il numero della partita.
+     */
+    public int getNumeroPartita() {
+        return numeroPartita;
+    }
+
+    /**
+     * Restituisce il seed della partita corrente, ricavato dal seed del tavolo e dal numero della partita.
+     *
+     * @return Il seed della partita.
+     */
+    public long getSeedPartita() {
+        return SplitMix64.deriva(seed, numeroPartita);
+    }
+
+    /**
+     * Restituisce il tempo massimo concesso ai bot per scegliere una carta.
+     *
+     * @return Il budget per mossa in millisecondi.
+     */
+    public long getBudgetMossaMillis() {
+        return budgetMossaMillis;
+    }
+
+    /**
+     * Imposta il tempo massimo concesso ai bot per scegliere una carta.
+     * Un budget maggiore rende i bot più forti; con 0 giocano la prima carta giocabile.
+     *
+     * @param budgetMossaMillis Il budget per mossa in millisecondi.
+     */
+    public void setBudgetMossaMillis(long budgetMossaMillis) {
+        this.budgetMossaMillis = budgetMossaMillis;
+    }
+
+    /**
+     * Abilita o disabilita la cronaca della partita su {@code System.out} (partite, accusi, pescate, vincitori).
+     * Con la cronaca disabilitata i messaggi non vengono nemmeno composti: la riga di comando la spegne
+     * così la prima partita non paga l'avvio della concatenazione di stringhe.
+     *
+     * @param abilitata false per non stampare più la cronaca.
+     */
+    public static void setCronacaAbilitata(boolean abilitata) {
+        cronacaAbilitata = abilitata;
+    }
+
+    /**
+     * Costruisce la fotografia di ciò che il giocatore al posto indicato conosce della partita.
+     *
+     * @param posto L'indice del giocatore in {@link #getGiocatori()}.
+     * @return Il contesto di decisione per quel giocatore.
+     */
+    public ContestoDecisione getContesto(int posto) {
+        List<CartaBanco> carteSulBanco = statoMano.getCarteSulBanco();
+        int[] banco = new int[carteSulBanco.size()];
+        for (int i = 0; i < banco.length; i++) {
+            banco[i] = carteSulBanco.get(i).getIndice();
+        }
+        int[] carteInMano = new int[giocatori.size()];
+        for (int i = 0; i < carteInMano.length; i++) {
+            carteInMano[i] = giocatori.get(i).getCarte().size();
+        }
+        long[] carteNote = new long[giocatori.size()];
+        for (int i = 0; i < carteNote.length; i++) {
+            carteNote[i] = carteViste[i] & ~carteUscite;
+        }
+        long mano = Regole.maschera(giocatori.get(posto).getCarte());
+        return new ContestoDecisione(posto, giocatori.size(), mano, banco, carteUscite, carteInMano,
+                semiMancanti, carteNote, getCarteDaPescare(), isASquadre());
+    }
+
     /**
      * Resetta lo stato del tavolo e dei giocatori:
-     * azzera i punteggi, resetta le mani dei giocatori, resetta il mazzo e lo stato della mano,
-     * infine notifica gli osservatori.
+     * azzera i punteggi dei giocatori e delle squadre, resetta le mani dei giocatori, resetta il mazzo e lo stato della mano,
+     * infine notifica gli osservatori. La classifica dell'incontro non viene toccata.
      */
     public void reset() {
         for (Giocatore g : giocatori) {
             g.setPunteggio(0.0);
             g.resetMano();
         }
+        Arrays.fill(puntiSquadraTerzi, 0);
         mazzo.reset();
         statoMano.reset();
+        storia.svuota();
+        azzeraConoscenza();
+        chiudiPartita();
+        eventi.pubblica(EventoTavolo.Tipo.RESET, -1, -1, 0);
         notifyObservers();
     }
 
     /**
      * Inizia una nuova partita:
-     * mescola il mazzo, resetta le mani dei giocatori,
-     * distribuisce le carte in base al numero di giocatori,
-     * e notifica gli osservatori.
+     * mescola il mazzo con il seed della partita, passa a ogni strategia il seed del suo posto,
+     * resetta le mani dei giocatori,
+     * distribuisce 10 carte a ciascun giocatore (a 2 giocatori le restanti formano il mazzo da cui pescare),
+     * assegna i punti degli accusi e notifica gli osservatori.
      *
      * @throws IllegalArgumentException se il numero di giocatori non è supportato.
      */
     public void iniziaPartita() {
-        mazzo.mischia();
+        iniziaPartita(getSeedPartita());
+    }
+
+    /**
+     * Inizia una nuova partita con il seed indicato al posto di quello ricavato dal seed del tavolo
+     * (vedi {@link #iniziaPartita()}): a parità di seed ogni posto riceve le stesse carte,
+     * così la stessa smazzata si può rigiocare con strategie diverse ai posti.
+     *
+     * @param seedPartita Il seed della partita.
+     * @throws IllegalArgumentException se il numero di giocatori non è supportato.
+     */
+    public void iniziaPartita(long seedPartita) {
+        mazzo.mischia(SplitMix64.deriva(seedPartita, 0));
+        for (int posto = 0; posto < giocatori.size(); posto++) {
+            Strategia strategia = giocatori.get(posto).getStrategiaGiocata();
+            if (strategia != null) {
+                strategia.nuovaPartita(SplitMix64.deriva(seedPartita, 1 + posto));
+            }
+        }
+        if (cronacaAbilitata) {
+            System.out.println("Partita " + numeroPartita + ": seed " + seedPartita + " (tavolo " + seed + ")");
+        }
+        azzeraConoscenza();
 
         for (Giocatore g : giocatori) {
             g.resetMano();
@@ -92,7 +427,7 @@ public class Tavolo extends Observable {
         int cartePerGiocatore;
 
         if (numGiocatori == 2) {
-            cartePerGiocatore = 15; // variante per 2 giocatori, da adattare se serve
+            cartePerGiocatore = 10; // le altre 20 carte restano nel mazzo e si pescano dopo ogni presa
         } else if (numGiocatori == 3 || numGiocatori == 4) {
             cartePerGiocatore = 10;
         } else {
@@ -113,9 +448,48 @@ public class Tavolo extends Observable {
             }
         }
 
+        eventi.pubblica(EventoTavolo.Tipo.PARTITA_INIZIATA, getPrimoDiMano(), -1, 0);
+        assegnaAccusi();
+        storia.inizia(fotografaPosizione(), seedPartita);
+
+        GameMetrics.getInstance().partitaIniziata();
+        if (!partitaInCorso) {
+            partitaInCorso = true;
+            GameMetrics.getInstance().tavoloAperto();
+        }
         notifyObservers();
     }
 
+    /**
+     * Azzera ciò che è noto sulle carte della partita: carte uscite, semi mancanti e carte pescate.
+     */
+    private void azzeraConoscenza() {
+        carteUscite = 0L;
+        Arrays.fill(semiMancanti, 0);
+        Arrays.fill(carteViste, 0L);
+        Arrays.fill(ultimePescate, null);
+    }
+
+    /**
+     * Riconosce gli accusi nelle mani appena distribuite e ne assegna i punti ai giocatori.
+     */
+    private void assegnaAccusi() {
+        for (int posto = 0; posto < giocatori.size(); posto++) {
+            Giocatore g = giocatori.get(posto);
+            long mano = Regole.maschera(g.getCarte());
+            int puntiTerzi = Accusi.puntiTerzi(mano);
+            if (puntiTerzi > 0) {
+                g.addPunti(puntiTerzi / 3.0);
+                puntiSquadraTerzi[getSquadra(posto)] += puntiTerzi;
+                eventi.pubblica(EventoTavolo.Tipo.ACCUSI, posto, -1, puntiTerzi);
+                if (cronacaAbilitata) {
+                    System.out.println("Accusi di " + g.getNome() + ": " + Accusi.descrivi(mano) +
+                            " (" + puntiTerzi / 3 + " punti)");
+                }
+            }
+        }
+    }
+
     /**
      * Gestisce la giocata di una carta da parte di un giocatore.
      * Utilizza la strategia di gioco del giocatore per scartare la carta,
@@ -123,58 +497,257 @@ public class Tavolo extends Observable {
      *
      * @param giocatore Il giocatore che gioca la carta.
      * @param carta     La carta da giocare.
+     * @throws IllegalArgumentException se la carta non è in mano al giocatore o non risponde al seme di uscita
+     *                                  pur potendo; in tal caso il tavolo resta invariato.
      */
     public void giocaCarta(Giocatore giocatore, Carta carta) {
         if (giocatore.getStrategiaGiocata() != null) {
-            CartaBanco cartaDaScartare = new CartaBanco(
-                    giocatore.getNome(),
-                    carta.getValore(),
-                    carta.getSeme(),
-                    carta.getForza(),
-                    carta.getImmagine()
-            );
+            List<CartaBanco> banco = statoMano.getCarteSulBanco();
+            long giocabili = Regole.carteGiocabili(Regole.maschera(giocatore.getCarte()),
+                    banco.isEmpty() ? -1 : banco.get(0).getSeme().ordinal());
+            if ((giocabili & (1L << carta.getIndice())) == 0) {
+                throw new IllegalArgumentException("Giocata fuori regola di " + giocatore.getNome() + ": "
+                        + carta.getValore() + " di " + carta.getSeme());
+            }
+            GiocataCartaEvent evento = EventiJfr.isAbilitati() ? new GiocataCartaEvent() : null;
+            if (evento != null) {
+                evento.begin();
+            }
+            int posto = getPosto(giocatore);
+            CartaBanco cartaDaScartare = new CartaBanco(giocatore.getNome(), posto, carta);
+
+            // Chi non risponde al seme di uscita ne è privo
+            List<CartaBanco> carteSulBanco = statoMano.getCarteSulBanco();
+            if (!carteSulBanco.isEmpty()) {
+                Seme semeUscita = carteSulBanco.get(0).getSeme();
+                if (carta.getSeme() != semeUscita) {
+                    semiMancanti[posto] |= 1 << semeUscita.ordinal();
+                }
+            }
 
             // Scarta la carta usando la strategia
             giocatore.getStrategiaGiocata().scarta(giocatore.getCarte(), cartaDaScartare);
 
             // Aggiungi la carta scartata allo stato della mano
             statoMano.aggiungiCartaSulBanco(cartaDaScartare);
+            carteUscite |= 1L << carta.getIndice();
+            registraMossa(posto, carta.getIndice());
+            eventi.pubblica(EventoTavolo.Tipo.CARTA_GIOCATA, posto, carta.getIndice(), 0);
+            GameMetrics.getInstance().cartaGiocata();
+            if (evento != null && evento.shouldCommit()) {
+                evento.posto = posto;
+                evento.giocatore = giocatore.getNome();
+                evento.carta = carta.getValore() + " di " + carta.getSeme();
+                evento.carteSulBanco = statoMano.getCarteSulBanco().size();
+                evento.commit();
+            }
 
             // Notifica gli observer
             notifyObservers();
         }
     }
 
+    /**
+     * Aggiunge la carta giocata alla storia. Se la giocata non è quella attesa dalla posizione corrente
+     * (fuori turno), la storia smette di registrare fino alla prossima partita.
+     */
+    private void registraMossa(int posto, int carta) {
+        if (!storia.isIniziata()) {
+            return;
+        }
+        Posizione corrente = storia.getCorrente();
+        if (corrente.getTurno() == posto && (corrente.getCarteGiocabili() & (1L << carta)) != 0) {
+            storia.gioca(carta);
+        } else {
+            System.out.println("Giocata fuori regola: la storia della partita non viene più registrata");
+            storia.svuota();
+        }
+    }
+
+    /**
+     * Costruisce la posizione iniziale della storia dalle mani distribuite, dai punti degli accusi
+     * e dall'ordine del mazzo.
+     */
+    private Posizione fotografaPosizione() {
+        int numGiocatori = giocatori.size();
+        long[] mani = new long[numGiocatori];
+        int[] puntiTerzi = new int[numGiocatori];
+        for (int posto = 0; posto < numGiocatori; posto++) {
+            Giocatore g = giocatori.get(posto);
+            mani[posto] = Regole.maschera(g.getCarte());
+            puntiTerzi[posto] = (int) Math.round(g.getPunteggio() * 3);
+        }
+        return Posizione.iniziale(mani, getPrimoDiMano(), puntiTerzi, mazzo.getOrdine(), mazzo.getCursore());
+    }
+
+    /**
+     * Riporta il tavolo a una posizione della storia della partita in corso, indietro o avanti:
+     * mani, banco, punti, mazzo e ciò che è noto delle carte tornano come erano in quella posizione.
+     * Le carte rimaste in mano conservano il loro ordine, quelle riprese si aggiungono in fondo.
+     * Le posizioni successive restano nella storia finché non si gioca una carta diversa.
+     *
+     * @param indice L'indice della posizione, pari al numero di carte giocate.
+     * @return La posizione raggiunta; il suo {@link Posizione#getTurno() turno} indica chi deve giocare.
+     * @throws IndexOutOfBoundsException se l'indice non è nella storia.
+     */
+    public Posizione vaiAPosizione(int indice) {
+        Posizione posizione = storia.vaiA(indice);
+        int numGiocatori = giocatori.size();
+        for (int posto = 0; posto < numGiocatori; posto++) {
+            Giocatore g = giocatori.get(posto);
+            long mano = posizione.getMano(posto);
+            List<Carta> carte = g.getCarte();
+            carte.removeIf(carta -> (mano & (1L << carta.getIndice())) == 0);
+            for (long riprese = mano & ~Regole.maschera(carte); riprese != 0; riprese &= riprese - 1) {
+                g.addCarta(mazzo.getCarta(Long.numberOfTrailingZeros(riprese)));
+            }
+            g.setPunteggio(posizione.getPuntiTerzi(posto) / 3.0);
+            semiMancanti[posto] = posizione.getSemiMancanti(posto);
+            carteViste[posto] = posizione.getCarteViste(posto);
+            int pescata = posizione.getUltimaPescata(posto);
+            ultimePescate[posto] = pescata < 0 ? null : mazzo.getCarta(pescata);
+        }
+        for (int squadra = 0; squadra < puntiSquadraTerzi.length; squadra++) {
+            puntiSquadraTerzi[squadra] = posizione.getPuntiSquadraTerzi(squadra);
+        }
+        List<CartaBanco> banco = new ArrayList<>(posizione.getCarteSulBanco());
+        for (int i = 0; i < posizione.getCarteSulBanco(); i++) {
+            int posto = (posizione.getPrimo() + i) % numGiocatori;
+            banco.add(new CartaBanco(giocatori.get(posto).getNome(), posto, mazzo.getCarta(posizione.getCartaBanco(i))));
+        }
+        statoMano.ripristina(banco);
+        carteUscite = posizione.getCarteUscite();
+        mazzo.riposiziona(posizione.getCursoreMazzo());
+        eventi.pubblica(EventoTavolo.Tipo.POSIZIONE_RIPRISTINATA, posizione.getTurno(), posizione.getNumMosse(), 0);
+        notifyObservers();
+        return posizione;
+    }
+
     /**
      * Gestisce la fine della partita:
      * incrementa il numero della partita, verifica se tutte le mani sono vuote,
-     * determina il vincitore con il punteggio più alto, incrementa le sue partite vinte,
-     * stampa il vincitore e notifica gli osservatori passando il nome del vincitore.
+     * determina la squadra con il punteggio più alto (a 2 e 3 giocatori ogni giocatore fa squadra da sé),
+     * incrementa le partite vinte della squadra e dei suoi giocatori,
+     * aggiorna la classifica dell'incontro, stampa i vincitori e notifica gli osservatori passandone i nomi.
      */
     public void finePartita() {
         numeroPartita++;
 
-        boolean tutteManiVuote = giocatori.stream().allMatch(g -> g.getCarte().isEmpty());
+        boolean tutteManiVuote = true;
+        for (Giocatore g : giocatori) {
+            tutteManiVuote &= g.getCarte().isEmpty();
+        }
 
         if (tutteManiVuote) {
-            Optional<Giocatore> vincitore = giocatori.stream()
-                    .max((g1, g2) -> Double.compare(g1.getPunteggio(), g2.getPunteggio()));
+            // A parità di punti vince la squadra con l'indice più basso
+            int squadraVincente = 0;
+            for (int squadra = 1; squadra < puntiSquadraTerzi.length; squadra++) {
+                if (puntiSquadraTerzi[squadra] > puntiSquadraTerzi[squadraVincente]) {
+                    squadraVincente = squadra;
+                }
+            }
+            vittorieSquadra[squadraVincente]++;
+            if (incontro.isConcluso()) {
+                // La mano apre un nuovo incontro se il precedente non è stato sostituito
+                incontro = new Incontro(incontro.getObiettivo(), getNumSquadre());
+            }
+            incontro.registraMano(puntiSquadraTerzi);
+
+            StringBuilder nomi = new StringBuilder();
+            for (int posto = 0; posto < giocatori.size(); posto++) {
+                if (getSquadra(posto) == squadraVincente) {
+                    Giocatore v = giocatori.get(posto);
+                    v.addPartiteVinte();
+                    nomi.append(nomi.length() > 0 ? " e " : "").append(v.getNome());
+                }
+            }
+
+            chiudiPartita();
+            eventi.pubblica(EventoTavolo.Tipo.FINE_PARTITA, squadraVincente, -1, puntiSquadraTerzi[squadraVincente]);
+            if (cronacaAbilitata) {
+                System.out.println("Vincitore della partita: " + nomi);
+                String[] nomiSquadre = new String[getNumSquadre()];
+                for (int squadra = 0; squadra < nomiSquadre.length; squadra++) {
+                    nomiSquadre[squadra] = getNomeSquadra(squadra);
+                }
+                System.out.println("Incontro: " + incontro.descrivi(nomiSquadre));
+                if (incontro.isConcluso()) {
+                    System.out.println("Vincitore dell'incontro: " + nomiSquadre[incontro.getVincitore()]);
+                }
+            }
+            // Notifica la view passando il nome del vincitore
+            notifyObservers(nomi.toString());
+        }
+    }
 
-            vincitore.ifPresent(v -> {
-                v.addPartiteVinte();
-                System.out.println("Vincitore della partita: " + v.getNome());
-                // Notifica la view passando il nome del vincitore
-                notifyObservers(v.getNome());
-            });
+    /**
+     * Segna la partita corrente come conclusa aggiornando l'indicatore dei tavoli in corso.
+     */
+    private void chiudiPartita() {
+        if (partitaInCorso) {
+            partitaInCorso = false;
+            GameMetrics.getInstance().tavoloChiuso();
         }
     }
 
     /**
-     * Controlla la presa corrente tramite lo stato della mano,
-     * quindi notifica gli osservatori dell'aggiornamento.
+     * Controlla la presa corrente tramite lo stato della mano e accredita i punti della presa
+     * alla squadra del vincitore; se si gioca con la pesca,
+     * il vincitore e poi l'avversario pescano una carta scoperta dal mazzo.
+     * Infine notifica gli osservatori dell'aggiornamento.
+     *
+     * @return L'indice del giocatore che ha vinto la presa.
      */
-    public void controllaPresa() {
-        statoMano.ControllaPresa(giocatori);
+    public int controllaPresa() {
+        ControllaPresaEvent evento = EventiJfr.isAbilitati() ? new ControllaPresaEvent() : null;
+        if (evento != null) {
+            evento.begin();
+        }
+        int puntiPresaTerzi = statoMano.getPuntiPresaTerzi();
+        int carte = statoMano.getCarteSulBanco().size();
+        int vincitore = statoMano.ControllaPresa(giocatori);
+        if (puntiPresaTerzi > 0) {
+            AudioManager.getInstance().play("user".equals(giocatori.get(vincitore).getRuolo())
+                    ? "audio/winHand.wav" : "audio/lostHand.wav");
+        }
+        if (evento != null && evento.shouldCommit()) {
+            CartaBanco cartaVincente = statoMano.getUltimaCartaVincente();
+            evento.postoVincitore = vincitore;
+            evento.cartaVincente = cartaVincente.getValore() + " di " + cartaVincente.getSeme();
+            evento.puntiPresa = puntiPresaTerzi / 3.0;
+            evento.carte = carte;
+            evento.commit();
+        }
+        puntiSquadraTerzi[getSquadra(vincitore)] += puntiPresaTerzi;
+        eventi.pubblica(EventoTavolo.Tipo.PRESA, vincitore, -1, puntiPresaTerzi);
+        if (isConPesca()) {
+            pesca(vincitore);
+        }
         notifyObservers();
+        return vincitore;
+    }
+
+    /**
+     * Fa pescare una carta a ogni giocatore a partire dal vincitore della presa.
+     * Le carte pescate sono scoperte, quindi diventano note a tutti.
+     *
+     * @param vincitore L'indice del giocatore che ha vinto la presa.
+     */
+    private void pesca(int vincitore) {
+        int numGiocatori = giocatori.size();
+        for (int k = 0; k < numGiocatori; k++) {
+            int posto = (vincitore + k) % numGiocatori;
+            Carta carta = mazzo.distribuisciCarta();
+            if (carta == null) {
+                return;
+            }
+            giocatori.get(posto).addCarta(carta);
+            carteViste[posto] |= 1L << carta.getIndice();
+            ultimePescate[posto] = carta;
+            eventi.pubblica(EventoTavolo.Tipo.PESCATA, posto, carta.getIndice(), 0);
+            if (cronacaAbilitata) {
+                System.out.println(giocatori.get(posto).getNome() + " pesca " + carta.getValore() + " di " + carta.getSeme());
+            }
+        }
     }
 }
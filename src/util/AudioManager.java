@@ -8,6 +8,7 @@ import javax.sound.sampled.*;
 
 public class AudioManager {
     private static AudioManager instance;
+    private volatile boolean abilitato = !Boolean.getBoolean("j3sette.silenzioso");
 
     public static AudioManager getInstance() {
         if (instance == null) instance = new AudioManager();
@@ -16,7 +17,20 @@ public class AudioManager {
 
     private AudioManager() {}
 
+    /**
+     * Abilita o disabilita la riproduzione dei suoni, ad esempio nelle simulazioni senza interfaccia.
+     * I suoni sono disabilitati fin dall'avvio con {@code -Dj3sette.silenzioso=true}.
+     *
+     * @param abilitato false per non riprodurre più alcun suono.
+     */
+    public void setAbilitato(boolean abilitato) {
+        this.abilitato = abilitato;
+    }
+
     public void play(String filename) {
+        if (!abilitato) {
+            return;
+        }
         try (InputStream in = getClass().getClassLoader().getResourceAsStream(filename)) {
             if (in == null) {
                 System.err.println("File audio non trovato: " + filename);
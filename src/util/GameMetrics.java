@@ -0,0 +1,181 @@
+package util;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Raccolta centralizzata delle metriche del ciclo di gioco.
+ * Contiene contatori (partite, prese, carte giocate), istogrammi di latenza
+ * (decisione bot, controllo presa, aggiornamento vista) e un indicatore dei tavoli in corso.
+ * <p>
+ * Le metriche sono consultabili tramite JMX ({@link GameMetricsMBean}) o con {@link #dump()}.
+ */
+public class GameMetrics implements GameMetricsMBean {
+    // Creata subito: getInstance() è chiamato a ogni carta e presa da più tavoli e non deve sincronizzarsi
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    private final LongAdder partite = new LongAdder();
+    private final LongAdder prese = new LongAdder();
+    private final LongAdder carte = new LongAdder();
+    private final LongAdder tavoliInCorso = new LongAdder();
+    private final LongAdder eventiScartati = new LongAdder();
+    private final LogHistogram decisioneBot = new LogHistogram("decisioneBot");
+    private final LogHistogram controllaPresa = new LogHistogram("controllaPresa");
+    private final LogHistogram aggiornaVista = new LogHistogram("aggiornaVista");
+    private boolean registrato;
+
+    public static GameMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private GameMetrics() {}
+
+    /**
+     * Registra le metriche sul server MBean della piattaforma
+     * con nome {@code j3sette:type=GameMetrics}. Chiamate successive non hanno effetto.
+     */
+    public synchronized void registraJmx() {
+        if (registrato) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("j3sette:type=GameMetrics"));
+            registrato = true;
+        } catch (Exception e) {
+            System.err.println("Registrazione JMX delle metriche fallita: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Conta una nuova partita iniziata.
+     */
+    public void partitaIniziata() {
+        partite.increment();
+    }
+
+    /**
+     * Conta una presa risolta.
+     */
+    public void presaGiocata() {
+        prese.increment();
+    }
+
+    /**
+     * Conta una carta giocata.
+     */
+    public void cartaGiocata() {
+        carte.increment();
+    }
+
+    /**
+     * Incrementa l'indicatore dei tavoli con partita in corso.
+     */
+    public void tavoloAperto() {
+        tavoliInCorso.increment();
+    }
+
+    /**
+     * Decrementa l'indicatore dei tavoli con partita in corso.
+     */
+    public void tavoloChiuso() {
+        tavoliInCorso.decrement();
+    }
+
+    /**
+     * Conta gli eventi di gioco scartati per sottoscrittori troppo lenti.
+     *
+     * @param quanti Il numero di eventi scartati.
+     */
+    public void eventiScartati(int quanti) {
+        eventiScartati.add(quanti);
+    }
+
+    /**
+     * @return L'istogramma delle latenze di decisione dei bot.
+     */
+    public LogHistogram getDecisioneBot() {
+        return decisioneBot;
+    }
+
+    /**
+     * @return L'istogramma dei tempi di controllo presa.
+     */
+    public LogHistogram getControllaPresa() {
+        return controllaPresa;
+    }
+
+    /**
+     * @return L'istogramma dei tempi di aggiornamento della vista.
+     */
+    public LogHistogram getAggiornaVista() {
+        return aggiornaVista;
+    }
+
+    @Override
+    public long getPartiteGiocate() {
+        return partite.sum();
+    }
+
+    @Override
+    public long getPreseGiocate() {
+        return prese.sum();
+    }
+
+    @Override
+    public long getCarteGiocate() {
+        return carte.sum();
+    }
+
+    @Override
+    public long getTavoliInCorso() {
+        return tavoliInCorso.sum();
+    }
+
+    @Override
+    public long getEventiScartati() {
+        return eventiScartati.sum();
+    }
+
+    @Override
+    public double getDecisioneBotP50Micros() {
+        return decisioneBot.snapshot().percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getDecisioneBotP99Micros() {
+        return decisioneBot.snapshot().percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getControllaPresaP99Micros() {
+        return controllaPresa.snapshot().percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getAggiornaVistaP99Micros() {
+        return aggiornaVista.snapshot().percentile(99) / 1000.0;
+    }
+
+    /**
+     * Restituisce un dump testuale di tutti i contatori e istogrammi.
+     *
+     * @return Il testo con una metrica per riga.
+     */
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- METRICHE ---\n");
+        sb.append("partite=").append(getPartiteGiocate())
+                .append(" prese=").append(getPreseGiocate())
+                .append(" carte=").append(getCarteGiocate())
+                .append(" tavoliInCorso=").append(getTavoliInCorso())
+                .append(" eventiScartati=").append(getEventiScartati()).append('\n');
+        sb.append(decisioneBot.snapshot()).append('\n');
+        sb.append(controllaPresa.snapshot()).append('\n');
+        sb.append(aggiornaVista.snapshot()).append('\n');
+        sb.append("---------------");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package util;
+
+/**
+ * Interfaccia JMX delle metriche di gioco esposte da {@link GameMetrics}.
+ * Le latenze sono espresse in microsecondi.
+ */
+public interface GameMetricsMBean {
+    /**
+     * @return Il numero di partite iniziate.
+     */
+    long getPartiteGiocate();
+
+    /**
+     * @return Il numero di prese risolte.
+     */
+    long getPreseGiocate();
+
+    /**
+     * @return Il numero di carte giocate.
+     */
+    long getCarteGiocate();
+
+    /**
+     * @return Il numero di tavoli con una partita attualmente in corso.
+     */
+    long getTavoliInCorso();
+
+    /**
+     * @return Il numero di eventi di gioco scartati per sottoscrittori troppo lenti.
+     */
+    long getEventiScartati();
+
+    /**
+     * @return Il 50° percentile della latenza di decisione dei bot.
+     */
+    double getDecisioneBotP50Micros();
+
+    /**
+     * @return Il 99° percentile della latenza di decisione dei bot.
+     */
+    double getDecisioneBotP99Micros();
+
+    /**
+     * @return Il 99° percentile del tempo di {@code StatoMano.ControllaPresa}.
+     */
+    double getControllaPresaP99Micros();
+
+    /**
+     * @return Il 99° percentile del tempo di {@code CardTablePanel.aggiornaVista}.
+     */
+    double getAggiornaVistaP99Micros();
+
+    /**
+     * @return Il dump testuale di tutte le metriche.
+     */
+    String dump();
+}
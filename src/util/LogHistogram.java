@@ -0,0 +1,202 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Istogramma a bucket logaritmici per misurare latenze in nanosecondi.
+ * Ogni potenza di due è suddivisa in {@value #SOTTO_BUCKET} sotto-bucket lineari,
+ * così l'errore relativo resta sotto il 25% su tutto l'intervallo.
+ * <p>
+ * I contatori sono {@link LongAdder} (striped), quindi più thread possono registrare
+ * valori senza contesa; {@link #snapshot()} legge i contatori senza fermare chi scrive.
+ */
+public class LogHistogram {
+    private static final int BIT_SOTTO_BUCKET = 2;
+    private static final int SOTTO_BUCKET = 1 << BIT_SOTTO_BUCKET;
+    private static final int NUM_BUCKET = (64 - BIT_SOTTO_BUCKET) * SOTTO_BUCKET + SOTTO_BUCKET;
+
+    private final String nome;
+    private final LongAdder[] conteggi;
+    private final LongAdder somma;
+    private final AtomicLong massimo;
+
+    /**
+     * Costruisce un istogramma vuoto.
+     *
+     * @param nome Il nome dell'istogramma, usato nel dump testuale.
+     */
+    public LogHistogram(String nome) {
+        this.nome = nome;
+        this.conteggi = new LongAdder[NUM_BUCKET];
+        for (int i = 0; i < NUM_BUCKET; i++) {
+            conteggi[i] = new LongAdder();
+        }
+        this.somma = new LongAdder();
+        this.massimo = new AtomicLong();
+    }
+
+    /**
+     * Restituisce il nome dell'istogramma.
+     *
+     * @return Il nome dell'istogramma.
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * Registra un valore (tipicamente una durata in nanosecondi).
+     * I valori negativi vengono trattati come zero.
+     *
+     * @param valore Il valore da registrare.
+     */
+    public void registra(long valore) {
+        if (valore < 0) {
+            valore = 0;
+        }
+        conteggi[indiceBucket(valore)].increment();
+        somma.add(valore);
+        // Il massimo cambia di rado: si scrive solo quando cresce, senza lambda da avviare al primo istogramma
+        long corrente = massimo.get();
+        while (valore > corrente && !massimo.compareAndSet(corrente, valore)) {
+            corrente = massimo.get();
+        }
+    }
+
+    /**
+     * Registra il tempo trascorso da un istante ottenuto con {@link System#nanoTime()}.
+     *
+     * @param inizioNanos L'istante di inizio misurazione.
+     */
+    public void registraDa(long inizioNanos) {
+        registra(System.nanoTime() - inizioNanos);
+    }
+
+    /**
+     * Calcola il bucket di un valore: i valori sotto {@value #SOTTO_BUCKET} hanno un bucket
+     * ciascuno, gli altri sono indicizzati per esponente e bit successivi al più significativo.
+     */
+    private static int indiceBucket(long valore) {
+        if (valore < SOTTO_BUCKET) {
+            return (int) valore;
+        }
+        int esponente = 63 - Long.numberOfLeadingZeros(valore);
+        int sotto = (int) (valore >>> (esponente - BIT_SOTTO_BUCKET)) & (SOTTO_BUCKET - 1);
+        return (esponente - BIT_SOTTO_BUCKET + 1) * SOTTO_BUCKET + sotto;
+    }
+
+    /**
+     * Restituisce il limite superiore (escluso) dei valori che ricadono in un bucket.
+     */
+    private static long limiteSuperiore(int indice) {
+        if (indice < SOTTO_BUCKET) {
+            return indice + 1;
+        }
+        int esponente = indice / SOTTO_BUCKET + BIT_SOTTO_BUCKET - 1;
+        long sotto = indice % SOTTO_BUCKET;
+        long base = 1L << esponente;
+        long passo = base >>> BIT_SOTTO_BUCKET;
+        long limite = base + (sotto + 1) * passo;
+        return limite < 0 ? Long.MAX_VALUE : limite;
+    }
+
+    /**
+     * Legge lo stato corrente dell'istogramma senza bloccare i thread che registrano.
+     * Lo snapshot è coerente a meno delle registrazioni concorrenti alla lettura.
+     *
+     * @return Uno snapshot immutabile dei conteggi.
+     */
+    public Snapshot snapshot() {
+        long[] copia = new long[NUM_BUCKET];
+        long totale = 0;
+        for (int i = 0; i < NUM_BUCKET; i++) {
+            copia[i] = conteggi[i].sum();
+            totale += copia[i];
+        }
+        return new Snapshot(nome, copia, totale, somma.sum(), massimo.get());
+    }
+
+    /**
+     * Fotografia immutabile di un {@link LogHistogram}.
+     */
+    public static class Snapshot {
+        private final String nome;
+        private final long[] conteggi;
+        private final long totale;
+        private final long somma;
+        private final long massimo;
+
+        private Snapshot(String nome, long[] conteggi, long totale, long somma, long massimo) {
+            this.nome = nome;
+            this.conteggi = conteggi;
+            this.totale = totale;
+            this.somma = somma;
+            this.massimo = massimo;
+        }
+
+        /**
+         * Restituisce il numero di valori registrati.
+         *
+         * @return Il numero di campioni.
+         */
+        public long getConteggio() {
+            return totale;
+        }
+
+        /**
+         * Restituisce la media dei valori registrati.
+         *
+         * @return La media, oppure 0 se non ci sono campioni.
+         */
+        public double getMedia() {
+            return totale == 0 ? 0.0 : (double) somma / totale;
+        }
+
+        /**
+         * Restituisce il valore massimo registrato.
+         *
+         * @return Il massimo.
+         */
+        public long getMassimo() {
+            return massimo;
+        }
+
+        /**
+         * Stima il percentile richiesto restituendo il limite superiore del bucket che lo contiene.
+         *
+         * @param percentile Il percentile tra 0 e 100.
+         * @return Il valore stimato, oppure 0 se non ci sono campioni.
+         */
+        public long percentile(double percentile) {
+            if (totale == 0) {
+                return 0;
+            }
+            long soglia = (long) Math.ceil(totale * percentile / 100.0);
+            if (soglia < 1) {
+                soglia = 1;
+            }
+            long cumulato = 0;
+            for (int i = 0; i < conteggi.length; i++) {
+                cumulato += conteggi[i];
+                if (cumulato >= soglia) {
+                    return Math.min(limiteSuperiore(i), massimo);
+                }
+            }
+            return massimo;
+        }
+
+        /**
+         * Restituisce una riga di testo con conteggio, media e percentili in microsecondi.
+         *
+         * @return La descrizione testuale dello snapshot.
+         */
+        @Override
+        public String toString() {
+            return String.format("%-20s n=%-8d media=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                    nome, totale, getMedia() / 1000.0,
+                    percentile(50) / 1000.0, percentile(90) / 1000.0,
+                    percentile(99) / 1000.0, massimo / 1000.0);
+        }
+    }
+}
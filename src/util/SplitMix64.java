@@ -0,0 +1,39 @@
+package util;
+
+/**
+ * Derivazione dei seed con SplitMix64.
+ * <p>
+ * {@link #deriva(long, long) deriva(seed, i)} è l'i-esimo valore della sequenza SplitMix64 che parte da {@code seed}:
+ * si calcola in tempo costante, senza stato, e valori diversi di {@code i} danno seed statisticamente
+ * indipendenti. Così ogni tavolo, partita, mazzo o giocatore ricava il proprio seed da quello del livello
+ * superiore, e il risultato non dipende dall'ordine in cui i thread lo chiedono.
+ */
+public final class SplitMix64 {
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SplitMix64() {
+    }
+
+    /**
+     * Funzione di mescolamento finale di SplitMix64 (variante 13 di Stafford).
+     *
+     * @param z Il valore da mescolare.
+     * @return Il valore mescolato.
+     */
+    public static long mescola(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Ricava un seed figlio.
+     *
+     * @param seed   Il seed di partenza.
+     * @param flusso L'indice del seed figlio, ad esempio il numero della partita o il posto del giocatore.
+     * @return Il seed figlio.
+     */
+    public static long deriva(long seed, long flusso) {
+        return mescola(seed + GAMMA * (flusso + 1));
+    }
+}
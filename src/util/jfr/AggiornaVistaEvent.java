@@ -0,0 +1,24 @@
+package util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR registrato per ogni ridisegno completo in {@code CardTablePanel.aggiornaVista}.
+ * Utile per correlare i blocchi dell'interfaccia con il lavoro del modello e le pause del GC.
+ */
+@Name("j3sette.AggiornaVista")
+@Label("Aggiornamento Vista")
+@Category({"J3Sette", "Vista"})
+@Description("Ricostruzione della vista del tavolo sull'Event Dispatch Thread")
+@StackTrace(false)
+public class AggiornaVistaEvent extends jdk.jfr.Event {
+    @Label("Carte sul banco")
+    public int carteSulBanco;
+
+    @Label("Giocatori")
+    public int giocatori;
+}
@@ -0,0 +1,31 @@
+package util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR registrato per ogni risoluzione di presa in {@code Tavolo.controllaPresa}.
+ */
+@Name("j3sette.ControllaPresa")
+@Label("Controllo Presa")
+@Category({"J3Sette", "Modello"})
+@Description("Risoluzione di una presa e assegnazione dei punti")
+@StackTrace(false)
+public class ControllaPresaEvent extends jdk.jfr.Event {
+    @Label("Posto vincitore")
+    @Description("Indice del giocatore che ha vinto la presa")
+    public int postoVincitore;
+
+    @Label("Carta vincente")
+    public String cartaVincente;
+
+    @Label("Punti presa")
+    public double puntiPresa;
+
+    @Label("Carte")
+    @Description("Numero di carte che compongono la presa")
+    public int carte;
+}
@@ -0,0 +1,33 @@
+package util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR registrato per ogni scelta di carta di un bot in {@code GameController}.
+ */
+@Name("j3sette.DecisioneBot")
+@Label("Decisione Bot")
+@Category({"J3Sette", "Controller"})
+@Description("Scelta della carta da parte di un bot")
+@StackTrace(false)
+public class DecisioneBotEvent extends jdk.jfr.Event {
+    @Label("Posto")
+    @Description("Indice del bot al tavolo")
+    public int posto;
+
+    @Label("Carta scelta")
+    public String carta;
+
+    @Label("Carte in mano")
+    @Description("Numero di carte in mano al bot al momento della scelta")
+    public int carteInMano;
+
+    @Label("Tempo decisione")
+    @Timespan(Timespan.NANOSECONDS)
+    public long tempoDecisione;
+}
@@ -0,0 +1,32 @@
+package util.jfr;
+
+/**
+ * Interruttore degli eventi JFR creati dal modello.
+ * <p>
+ * Il primo evento istanziato carica e registra l'infrastruttura di Flight Recorder, che all'avvio
+ * costa alcune centinaia di millisecondi anche se nessuna registrazione è attiva. La modalità
+ * a riga di comando la evita disattivando gli eventi; si disattivano anche con {@code -Dj3sette.senzaJfr=true}.
+ * Questa classe non dipende da {@code jdk.jfr}, così consultarla non carica nulla.
+ */
+public final class EventiJfr {
+    private static volatile boolean abilitati = !Boolean.getBoolean("j3sette.senzaJfr");
+
+    private EventiJfr() {
+    }
+
+    /**
+     * @return true se il modello deve creare i suoi eventi JFR.
+     */
+    public static boolean isAbilitati() {
+        return abilitati;
+    }
+
+    /**
+     * Abilita o disabilita la creazione degli eventi JFR del modello.
+     *
+     * @param abilitati false per non creare più eventi.
+     */
+    public static void setAbilitati(boolean abilitati) {
+        EventiJfr.abilitati = abilitati;
+    }
+}
@@ -0,0 +1,31 @@
+package util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR registrato per ogni carta giocata tramite {@code Tavolo.giocaCarta}.
+ */
+@Name("j3sette.GiocataCarta")
+@Label("Giocata Carta")
+@Category({"J3Sette", "Modello"})
+@Description("Una carta giocata sul banco da un giocatore")
+@StackTrace(false)
+public class GiocataCartaEvent extends jdk.jfr.Event {
+    @Label("Posto")
+    @Description("Indice del giocatore al tavolo")
+    public int posto;
+
+    @Label("Giocatore")
+    public String giocatore;
+
+    @Label("Carta")
+    public String carta;
+
+    @Label("Carte sul banco")
+    @Description("Numero di carte sul banco dopo la giocata")
+    public int carteSulBanco;
+}
@@ -2,14 +2,19 @@ package view;
 
 import model.*;
 import controller.GameController;
+import util.GameMetrics;
+import util.jfr.AggiornaVistaEvent;
 
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,9 +28,14 @@ public class CardTablePanel extends JPanel implements Observer {
     private GameController controller;
     private JPanel campoGiocoPanel;
     private JLabel turnoLabel;
+    private JButton annullaButton;
+    private JButton ripristinaButton;
     private JPanel rightPanel;
     private DeckPanel deckPanel;
     private PlayerInfoPanel playerInfoPanel;
+    private JLabel suggerimentoLabel;
+    private final Map<Integer, JLabel> carteUtente = new HashMap<>();
+    private int cartaSuggerita = -1;
 
     /**
      * Costruisce il pannello della tavola da gioco associato al modello {@link Tavolo}.
@@ -83,6 +93,27 @@ public class CardTablePanel extends JPanel implements Observer {
         turnoLabel.setFont(new Font("Serif", Font.BOLD, 16));
         topPanel.add(turnoLabel, BorderLayout.SOUTH);
 
+        // Annulla e ripristina le giocate dell'utente ripercorrendo la storia della partita
+        JPanel storiaPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        storiaPanel.setOpaque(false);
+        annullaButton = new JButton("Annulla");
+        annullaButton.setToolTipText("Torna alla tua giocata precedente");
+        annullaButton.addActionListener(e -> {
+            if (controller != null) {
+                controller.annullaMossa();
+            }
+        });
+        ripristinaButton = new JButton("Ripeti");
+        ripristinaButton.setToolTipText("Rigioca le mosse annullate");
+        ripristinaButton.addActionListener(e -> {
+            if (controller != null) {
+                controller.ripristinaMossa();
+            }
+        });
+        storiaPanel.add(annullaButton);
+        storiaPanel.add(ripristinaButton);
+        topPanel.add(storiaPanel, BorderLayout.EAST);
+
         add(topPanel, BorderLayout.NORTH);
     }
 
@@ -172,7 +203,7 @@ public class CardTablePanel extends JPanel implements Observer {
             if (arg instanceof String nomeVincitore && nomeVincitore != null) {
                 JOptionPane.showMessageDialog(
                         this,
-                        "Partita vinta da: " + nomeVincitore,
+                        "Partita vinta da: " + nomeVincitore + "\n" + descriviIncontro(),
                         "Fine Partita",
                         JOptionPane.INFORMATION_MESSAGE
                 );
@@ -185,26 +216,39 @@ public class CardTablePanel extends JPanel implements Observer {
      * il campo da gioco e l'etichetta del turno.
      */
     public void aggiornaVista() {
+        long inizio = System.nanoTime();
+        AggiornaVistaEvent evento = new AggiornaVistaEvent();
+        evento.begin();
         System.out.println("=== AGGIORNAMENTO VISTA ===");
 
         updateTurnoLabel();
+        annullaButton.setEnabled(controller != null && controller.puoAnnullare());
+        ripristinaButton.setEnabled(controller != null && controller.puoRipristinare());
         recreateLayout();
         aggiornaCampoDaGioco();
+        deckPanel.aggiornaPesca(tavolo);
 
         revalidate();
         repaint();
 
         System.out.println("=== FINE AGGIORNAMENTO VISTA ===");
+        GameMetrics.getInstance().getAggiornaVista().registraDa(inizio);
+        if (evento.shouldCommit()) {
+            evento.carteSulBanco = tavolo.getStatoMano().getCarteSulBanco().size();
+            evento.giocatori = tavolo.getGiocatori().size();
+            evento.commit();
+        }
     }
 
     /**
-     * Aggiorna l'etichetta che mostra il nome del giocatore di turno.
+     * Aggiorna l'etichetta che mostra il nome del giocatore di turno
+     * e, a 4 giocatori, i punteggi delle due coppie.
      */
     private void updateTurnoLabel() {
         if (controller != null) {
             Giocatore giocatoreAttuale = controller.getGiocatoreAttuale();
             if (giocatoreAttuale != null) {
-                turnoLabel.setText("Turno di: " + giocatoreAttuale.getNome());
+                turnoLabel.setText("Turno di: " + giocatoreAttuale.getNome() + descriviSquadre());
                 System.out.println("Turno aggiornato: " + giocatoreAttuale.getNome());
             } else {
                 turnoLabel.setText("Turno: -");
@@ -213,6 +257,45 @@ public class CardTablePanel extends JPanel implements Observer {
         }
     }
 
+    /**
+     * Descrive la classifica dell'incontro ai punti e, se concluso, chi lo ha vinto.
+     *
+     * @return Il testo da mostrare nel messaggio di fine partita.
+     */
+    private String descriviIncontro() {
+        Incontro incontro = tavolo.getIncontro();
+        String[] nomiSquadre = new String[incontro.getNumSquadre()];
+        for (int squadra = 0; squadra < nomiSquadre.length; squadra++) {
+            nomiSquadre[squadra] = tavolo.getNomeSquadra(squadra);
+        }
+        String classifica = "Incontro: " + incontro.descrivi(nomiSquadre);
+        if (incontro.isConcluso()) {
+            classifica += "\nIncontro vinto da: " + nomiSquadre[incontro.getVincitore()] + "!";
+        }
+        return classifica;
+    }
+
+    /**
+     * Descrive punti e vittorie delle due coppie quando si gioca a squadre.
+     *
+     * @return Il testo da accodare all'etichetta del turno, vuoto se non si gioca a coppie.
+     */
+    private String descriviSquadre() {
+        if (!tavolo.isASquadre()) {
+            return "";
+        }
+        List<Giocatore> giocatori = tavolo.getGiocatori();
+        StringBuilder sb = new StringBuilder();
+        for (int squadra = 0; squadra < tavolo.getNumSquadre(); squadra++) {
+            sb.append(squadra == 0 ? "   |   " : "  -  ")
+                    .append(giocatori.get(squadra).getNome()).append(" e ")
+                    .append(giocatori.get(tavolo.getCompagno(squadra)).getNome()).append(": ")
+                    .append(String.format("%.1f", tavolo.getPunteggioSquadra(squadra)))
+                    .append(" (vittorie ").append(tavolo.getVittorieSquadra(squadra)).append(")");
+        }
+        return sb.toString();
+    }
+
     /**
      * Ricrea il layout rimuovendo e aggiungendo i componenti necessari,
      * compresi i pannelli dei giocatori e il campo da gioco.
@@ -386,9 +469,90 @@ public class CardTablePanel extends JPanel implements Observer {
         JPanel cartePanel = creaCarteUserPanel(user);
         panel.add(cartePanel, BorderLayout.CENTER);
 
+        panel.add(creaSuggerimentoPanel(isTurnoUser), BorderLayout.SOUTH);
+        aggiornaSuggerimento();
+
+        return panel;
+    }
+
+    /**
+     * Crea la riga sotto la mano dell'utente con il pulsante per chiedere la carta consigliata
+     * e l'etichetta che ne mostra il valore atteso.
+     *
+     * @param isTurnoUser True se è il turno dell'utente, false altrimenti.
+     * @return Il pannello del suggerimento.
+     */
+    private JPanel creaSuggerimentoPanel(boolean isTurnoUser) {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        panel.setOpaque(false);
+
+        JButton suggerisciButton = new JButton("Suggerisci");
+        suggerisciButton.setToolTipText("Evidenzia la carta con più punti attesi");
+        suggerisciButton.setEnabled(isTurnoUser);
+        suggerisciButton.addActionListener(e -> {
+            if (controller != null) {
+                controller.chiediSuggerimento();
+            }
+        });
+        panel.add(suggerisciButton);
+
+        suggerimentoLabel = new JLabel(" ");
+        suggerimentoLabel.setForeground(Color.WHITE);
+        suggerimentoLabel.setFont(new Font("Serif", Font.PLAIN, 14));
+        panel.add(suggerimentoLabel);
         return panel;
     }
 
+    /**
+     * Mostra nel pannello informazioni la probabilità stimata che la squadra dell'utente vinca la mano.
+     *
+     * @param probabilita  La probabilità, tra 0 e 1.
+     * @param simulazioni  Il numero di simulazioni su cui si basa la stima.
+     */
+    public void mostraProbabilitaVittoria(double probabilita, int simulazioni) {
+        playerInfoPanel.mostraProbabilitaVittoria(probabilita, simulazioni);
+    }
+
+    /**
+     * Mostra il suggerimento calcolato finora per la posizione corrente dell'utente:
+     * evidenzia la carta consigliata e ne scrive i punti attesi. Viene chiamato a ogni raffinamento,
+     * e aggiorna sul posto le etichette esistenti senza ricostruire la vista.
+     */
+    public void aggiornaSuggerimento() {
+        if (suggerimentoLabel == null) {
+            return;
+        }
+        RisultatoRicerca risultato = controller != null ? controller.getSuggerimento() : null;
+        int precedente = cartaSuggerita;
+        cartaSuggerita = -1;
+        if (risultato == null || risultato.getNumCandidati() == 0) {
+            suggerimentoLabel.setText(" ");
+        } else {
+            int migliore = risultato.getMigliore();
+            cartaSuggerita = risultato.getCandidato(migliore);
+            Carta carta = new Carta(Seme.values()[cartaSuggerita / 10], Rank.values()[cartaSuggerita % 10]);
+            suggerimentoLabel.setText(String.format("Consiglio: %d di %s, %.2f punti attesi (%d simulazioni%s)",
+                    carta.getValore(), carta.getSeme(), risultato.getPuntiMedi(migliore),
+                    risultato.getMinSimulazioni(), controller.isSuggerimentoCompleto() ? "" : ", in corso..."));
+        }
+        if (precedente != cartaSuggerita) {
+            if (carteUtente.containsKey(precedente)) {
+                carteUtente.get(precedente).setBorder(null);
+            }
+            if (carteUtente.containsKey(cartaSuggerita)) {
+                carteUtente.get(cartaSuggerita).setBorder(bordoCarta(cartaSuggerita));
+            }
+        }
+    }
+
+    /**
+     * @param indice L'indice di una carta dell'utente.
+     * @return Il bordo a riposo della carta: evidenziato se è quella consigliata, altrimenti nessuno.
+     */
+    private Border bordoCarta(int indice) {
+        return indice == cartaSuggerita ? BorderFactory.createLineBorder(new Color(60, 220, 90), 3) : null;
+    }
+
     /**
      * Crea l'etichetta con le informazioni dell'utente,
      * evidenziandola se è il suo turno.
@@ -419,8 +583,11 @@ public class CardTablePanel extends JPanel implements Observer {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 5));
         panel.setOpaque(false);
 
+        carteUtente.clear();
+        cartaSuggerita = -1;
         for (Carta carta : user.getCarte()) {
             JLabel cartaLabel = creaCartaLabel(carta, user);
+            carteUtente.put(carta.getIndice(), cartaLabel);
             panel.add(cartaLabel);
         }
 
@@ -443,7 +610,7 @@ public class CardTablePanel extends JPanel implements Observer {
             Image scaledImage = icon.getImage().getScaledInstance(80, 110, Image.SCALE_SMOOTH);
             JLabel label = new JLabel(new ImageIcon(scaledImage));
 
-            boolean isGiocabile = isCartaGiocabile(user);
+            boolean isGiocabile = isCartaGiocabile(user, carta);
 
             System.out.println("Carta " + carta.getValore() + " di " + carta.getSeme() +
                     " - Giocabile: " + isGiocabile +
@@ -466,16 +633,19 @@ public class CardTablePanel extends JPanel implements Observer {
     }
 
     /**
-     * Verifica se la carta può essere giocata dall'utente in base al turno attivo.
+     * Verifica se la carta può essere giocata dall'utente in base al turno attivo
+     * e all'obbligo di rispondere al seme di uscita.
      *
-     * @param user Il giocatore utente.
+     * @param user  Il giocatore utente.
+     * @param carta La carta da verificare.
      * @return true se la carta è giocabile, false altrimenti.
      */
-    private boolean isCartaGiocabile(Giocatore user) {
+    private boolean isCartaGiocabile(Giocatore user, Carta carta) {
         return controller != null &&
                 controller.getGiocatoreAttuale() != null &&
                 controller.getGiocatoreAttuale().equals(user) &&
-                controller.isTurnoAttivo();
+                controller.isTurnoAttivo() &&
+                controller.isCartaLegale(user, carta);
     }
 
     /**
@@ -502,7 +672,7 @@ public class CardTablePanel extends JPanel implements Observer {
 
             @Override
             public void mouseExited(MouseEvent e) {
-                label.setBorder(null);
+                label.setBorder(bordoCarta(carta.getIndice()));
             }
         });
     }
@@ -1,5 +1,8 @@
 package view;
 
+import model.Carta;
+import model.Tavolo;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
@@ -10,9 +13,13 @@ import java.net.URL;
  * Pannello che rappresenta il mazzo di carte nel gioco.
  * Visualizza un'immagine o un'etichetta testuale come mazzo,
  * e gestisce l'interazione di click tramite un listener personalizzato.
+ * Nella partita a 2 giocatori mostra anche le carte rimaste nel mazzo e l'ultima carta
+ * pescata, scoperta, da ciascun giocatore.
  */
 public class DeckPanel extends JPanel {
     private JLabel mazzoLabel;
+    private JLabel carteRimasteLabel;
+    private JPanel pescatePanel;
     private DeckClickListener clickListener;
 
     /**
@@ -46,11 +53,75 @@ public class DeckPanel extends JPanel {
      * caricando l'immagine del mazzo o mostrando un fallback testuale.
      */
     private void initComponents() {
-        setLayout(new FlowLayout(FlowLayout.CENTER));
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         setOpaque(false);
 
         createMazzoLabel();
+        mazzoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         add(mazzoLabel);
+
+        carteRimasteLabel = new JLabel(" ");
+        carteRimasteLabel.setForeground(Color.WHITE);
+        carteRimasteLabel.setFont(new Font("Serif", Font.PLAIN, 12));
+        carteRimasteLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(carteRimasteLabel);
+
+        pescatePanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 4, 2));
+        pescatePanel.setOpaque(false);
+        pescatePanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(pescatePanel);
+    }
+
+    /**
+     * Aggiorna il numero di carte rimaste nel mazzo e le ultime carte pescate scoperte.
+     * Se al tavolo non si pesca, queste informazioni restano nascoste.
+     *
+     * @param tavolo Il modello del tavolo di gioco.
+     */
+    public void aggiornaPesca(Tavolo tavolo) {
+        pescatePanel.removeAll();
+        if (tavolo == null || !tavolo.isConPesca()) {
+            carteRimasteLabel.setText(" ");
+        } else {
+            carteRimasteLabel.setText("Nel mazzo: " + tavolo.getCarteDaPescare());
+            for (int posto = 0; posto < tavolo.getGiocatori().size(); posto++) {
+                Carta pescata = tavolo.getUltimaPescata(posto);
+                if (pescata != null) {
+                    pescatePanel.add(creaPescataPanel(tavolo.getGiocatori().get(posto).getNome(), pescata));
+                }
+            }
+        }
+        pescatePanel.revalidate();
+        pescatePanel.repaint();
+    }
+
+    /**
+     * Crea il riquadro con l'immagine ridotta della carta pescata e il nome di chi l'ha pescata.
+     *
+     * @param nome   Il nome del giocatore che ha pescato.
+     * @param carta  La carta pescata.
+     * @return Il pannello della carta pescata.
+     */
+    private JPanel creaPescataPanel(String nome, Carta carta) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setOpaque(false);
+
+        URL imgURL = getClass().getResource(carta.getImmagine());
+        JLabel cartaLabel;
+        if (imgURL != null) {
+            Image scaledImage = new ImageIcon(imgURL).getImage().getScaledInstance(40, 55, Image.SCALE_SMOOTH);
+            cartaLabel = new JLabel(new ImageIcon(scaledImage));
+        } else {
+            cartaLabel = new JLabel(carta.getValore() + " " + carta.getSeme());
+            cartaLabel.setForeground(Color.WHITE);
+        }
+        panel.add(cartaLabel, BorderLayout.CENTER);
+
+        JLabel nomeLabel = new JLabel(nome, SwingConstants.CENTER);
+        nomeLabel.setForeground(Color.WHITE);
+        nomeLabel.setFont(new Font("Serif", Font.PLAIN, 10));
+        panel.add(nomeLabel, BorderLayout.SOUTH);
+        return panel;
     }
 
     /**
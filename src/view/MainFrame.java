@@ -2,6 +2,8 @@ package view;
 
 import controller.GameController;
 import model.Giocatore;
+import model.GiocatoreFactory;
+import model.Incontro;
 import model.Mazzo;
 import model.Tavolo;
 
@@ -50,8 +52,9 @@ public class MainFrame extends JFrame {
                     try {
                         int numGiocatori = Integer.parseInt(dati.get(0));
                         String nomePrincipale = dati.get(1);
+                        int obiettivo = Integer.parseInt(dati.get(2));
 
-                        showCardTable(numGiocatori, nomePrincipale);
+                        showCardTable(numGiocatori, nomePrincipale, obiettivo);
                     } catch (NumberFormatException ex) {
                         JOptionPane.showMessageDialog(MainFrame.this, "Numero giocatori non valido.", "Errore", JOptionPane.ERROR_MESSAGE);
                     }
@@ -74,17 +77,28 @@ public class MainFrame extends JFrame {
      *
      * @param numGiocatori  Numero di giocatori totali (incluso l'utente).
      * @param nomePrincipale Nome del giocatore principale (utente).
+     * @param obiettivo     Punteggio da raggiungere per vincere l'incontro.
      */
-    private void showCardTable(int numGiocatori, String nomePrincipale) {
+    private void showCardTable(int numGiocatori, String nomePrincipale, int obiettivo) {
         // Creazione del modello
         List<Giocatore> giocatori = new ArrayList<>();
         giocatori.add(new Giocatore("user", nomePrincipale, 0, 0, null));
+        // Le strategie dei bot si scelgono per nome con -Dj3sette.strategie=s1,s2,...: l'ultima vale per i posti rimanenti
+        String[] strategie = System.getProperty("j3sette.strategie", "bot").split(",");
         for (int i = 2; i <= numGiocatori; i++) {
-            giocatori.add(new Giocatore("bot", "Bot " + i, 0, 0, null));
+            String strategia = strategie[Math.min(i - 2, strategie.length - 1)].trim();
+            try {
+                // Il seed viene sostituito da quello di ogni partita (vedi Tavolo.setSeed)
+                giocatori.add(GiocatoreFactory.creaGiocatoreBot("Bot " + i, strategia, 0));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ": il bot " + i + " usa la strategia predefinita");
+                giocatori.add(GiocatoreFactory.creaGiocatoreBot("Bot " + i));
+            }
         }
 
         Mazzo mazzo = new Mazzo();
         Tavolo tavolo = new Tavolo("assets/deck.jpeg", 1, giocatori, mazzo);
+        tavolo.setIncontro(new Incontro(obiettivo, tavolo.getNumSquadre()));
 
         // Creazione della vista
         cardTablePanel = new CardTablePanel(tavolo);
@@ -1,5 +1,7 @@
 package view;
 
+import model.Incontro;
+
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
@@ -7,7 +9,7 @@ import java.util.List;
 
 /**
  * Finestra interna (JInternalFrame) che mostra un form di input per
- * inserire il numero di giocatori e il nome del giocatore principale.
+ * inserire il numero di giocatori, il nome del giocatore principale e il punteggio dell'incontro.
  * Fornisce un metodo per aprire il dialog e restituire i dati inseriti.
  */
 public class OpenInputForm extends JInternalFrame {
@@ -22,16 +24,17 @@ public class OpenInputForm extends JInternalFrame {
     }
 
     /**
-     * Mostra un dialog modale per l'inserimento del numero di giocatori e del nome principale.
+     * Mostra un dialog modale per l'inserimento del numero di giocatori, del nome principale
+     * e del punteggio da raggiungere nell'incontro.
      * Valida i dati inseriti e restituisce i valori se confermati.
      *
-     * @return Una lista di stringhe contenente il numero di giocatori e il nome principale,
+     * @return Una lista di stringhe contenente il numero di giocatori, il nome principale e l'obiettivo,
      *         oppure una lista vuota se l'utente annulla.
      */
     public List<String> openInputForm() {
         List<String> result = new ArrayList<>();
         JDialog inputDialog = new JDialog((Frame) null, "Dati Giocatori", true);
-        inputDialog.setLayout(new GridLayout(3, 2, 10, 10));
+        inputDialog.setLayout(new GridLayout(4, 2, 10, 10));
 
         JLabel labelNumGiocatori = new JLabel("Numero Giocatori:");
         JTextField fieldNumGiocatori = new JTextField();
@@ -39,6 +42,13 @@ public class OpenInputForm extends JInternalFrame {
         JLabel labelNomeMain = new JLabel("Nome Giocatore Principale:");
         JTextField fieldNomeMain = new JTextField();
 
+        JLabel labelObiettivo = new JLabel("Incontro ai punti:");
+        JComboBox<Integer> comboObiettivo = new JComboBox<>();
+        for (int obiettivo : Incontro.OBIETTIVI) {
+            comboObiettivo.addItem(obiettivo);
+        }
+        comboObiettivo.setSelectedItem(Incontro.OBIETTIVO_PREDEFINITO);
+
         JButton okButton = new JButton("OK");
         JButton cancelButton = new JButton("Annulla");
 
@@ -46,10 +56,12 @@ public class OpenInputForm extends JInternalFrame {
         inputDialog.add(fieldNumGiocatori);
         inputDialog.add(labelNomeMain);
         inputDialog.add(fieldNomeMain);
+        inputDialog.add(labelObiettivo);
+        inputDialog.add(comboObiettivo);
         inputDialog.add(okButton);
         inputDialog.add(cancelButton);
 
-        inputDialog.setSize(350, 150);
+        inputDialog.setSize(350, 190);
         inputDialog.setLocationRelativeTo(null);
 
         final boolean[] confirmed = {false};
@@ -71,6 +83,7 @@ public class OpenInputForm extends JInternalFrame {
                 }
                 result.add(nomGiocatoriStr);
                 result.add(nomeMain);
+                result.add(String.valueOf(comboObiettivo.getSelectedItem()));
                 confirmed[0] = true;
                 inputDialog.dispose();
             } catch (NumberFormatException ex) {
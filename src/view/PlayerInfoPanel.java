@@ -26,6 +26,7 @@ public class PlayerInfoPanel extends JPanel {
     private JLabel puntiLabel;
     private JLabel vittorieLabel;
     private JLabel carteLabel;
+    private JProgressBar vittoriaBar;
     private JButton restartButton;
     private GameController controller;
     private Component parentComponent;
@@ -93,6 +94,20 @@ public class PlayerInfoPanel extends JPanel {
         carteLabel = createInfoLabel();
         add(carteLabel);
 
+        add(Box.createVerticalStrut(10));
+
+        // Probabilità di vincere la mano, stimata con simulazioni dopo ogni presa
+        JLabel vittoriaLabel = createInfoLabel();
+        vittoriaLabel.setText("Probabilità di vincere la mano");
+        add(vittoriaLabel);
+        vittoriaBar = new JProgressBar(0, 1000);
+        vittoriaBar.setStringPainted(true);
+        vittoriaBar.setString("-");
+        vittoriaBar.setForeground(new Color(60, 180, 80));
+        vittoriaBar.setMaximumSize(new Dimension(150, 20));
+        vittoriaBar.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(vittoriaBar);
+
         add(Box.createVerticalStrut(15));
 
         // Bottone restart
@@ -171,11 +186,8 @@ public class PlayerInfoPanel extends JPanel {
                     getParent().repaint();
                 }
 
-                // Resetta lo stato del tavolo
-                tavolo.reset();
-
-                // Avvia una nuova partita (mescola e distribuisci carte)
-                tavolo.iniziaPartita();
+                // Annulla i calcoli dei bot, resetta il tavolo e avvia una nuova partita
+                controller.riavviaPartita();
 
                 // Reset display info giocatore
                 resetInfo();
@@ -212,10 +224,24 @@ public class PlayerInfoPanel extends JPanel {
         }
     }
 
+    /**
+     * Aggiorna la barra della probabilità di vincere la mano.
+     *
+     * @param probabilita La probabilità stimata, tra 0 e 1.
+     * @param simulazioni Il numero di simulazioni su cui si basa la stima.
+     */
+    public void mostraProbabilitaVittoria(double probabilita, int simulazioni) {
+        vittoriaBar.setValue((int) Math.round(probabilita * 1000));
+        vittoriaBar.setString(String.format("%.0f%%", probabilita * 100));
+        vittoriaBar.setToolTipText(simulazioni + " simulazioni");
+    }
+
     /**
      * Resetta le informazioni del giocatore visualizzate nel pannello.
      */
     public void resetInfo() {
         updatePlayerInfo(null);
+        vittoriaBar.setValue(0);
+        vittoriaBar.setString("-");
     }
 }